@@ -48,6 +48,10 @@ public class CLI {
 							exec.addAnalysisOption(Execution.Analysis.ICFG);
 							break;
 						//
+						case "callgraph":
+							exec.addAnalysisOption(Execution.Analysis.CALL_GRAPH);
+							break;
+						//
 						case "info":
 							exec.addAnalysisOption(Execution.Analysis.SRC_INFO);
 							break;
@@ -92,6 +96,86 @@ public class CLI {
 							}
 							break;
 						//
+						case "threads":
+							if (i < args.length - 1) {
+								++i;
+								int num = 0;
+								try {
+									num = Integer.parseInt(args[i]);
+								} catch (NumberFormatException ex) {
+									// handled below
+								}
+								if (num < 1) {
+									printHelp("Invalid number of threads: " + args[i]);
+									System.exit(1);
+								}
+								exec.setNumberOfThreads(num);
+							} else {
+								printHelp("Number of threads not specified!");
+								System.exit(1);
+							}
+							break;
+						//
+						case "dfacache":
+							if (i < args.length - 1) {
+								++i;
+								exec.setDFACachePath(args[i]);
+							} else {
+								printHelp("DFA cache file not specified!");
+								System.exit(1);
+							}
+							break;
+						//
+						case "defcache":
+							if (i < args.length - 1) {
+								++i;
+								exec.setDEFCachePath(args[i]);
+							} else {
+								printHelp("DEF cache directory not specified!");
+								System.exit(1);
+							}
+							break;
+						//
+						case "failfast":
+							exec.setFailFast(true);
+							break;
+						//
+						case "lazylib":
+							exec.setLazyLibraryResolution(true);
+							break;
+						//
+						case "entry":
+							if (i < args.length - 1) {
+								++i;
+								exec.setEntryPoints(args[i].split(","));
+							} else {
+								printHelp("Entry-point patterns not specified!");
+								System.exit(1);
+							}
+							break;
+						//
+						case "rta":
+							exec.setRapidTypeAnalysis(true);
+							break;
+						//
+						case "mergepdg":
+							exec.setMergedPDG(true);
+							break;
+						//
+						case "libindex":
+							if (i < args.length - 1) {
+								++i;
+								if (!new File(args[i]).isFile()) {
+									printHelp("Library archive not found: " + args[i]);
+									System.exit(1);
+								}
+								exec.addLibraryArchive(args[i]);
+							} else {
+								printHelp("Library archive not specified!");
+								System.exit(1);
+							}
+							break;
+						//
 						case "lang":
 							if (i < args.length - 1) {
 								++i;
@@ -157,10 +241,20 @@ public class CLI {
 			"   -help      Print this help message",
 			"   -outdir    Specify path of output directory",
 			"   -format    Specify output format; either 'DOT', 'GML', or 'JSON'",
-			"   -lang      Specify language of program source codes\n",
+			"   -lang      Specify language of program source codes",
+			"   -threads   Specify number of threads for parsing source files",
+			"   -dfacache  Specify path of a file for loading and saving warmed-up parser DFAs",
+			"   -defcache  Specify path of a directory for caching DEF-infos of imported JDK classes",
+			"   -failfast  Reject files on their first syntax error, and list them in 'rejected-files.json'",
+			"   -lazylib   Resolve JDK library classes of PDG analysis on demand, instead of all imports",
+			"   -entry     Build ICFG and call graph only from entry methods matching given patterns (e.g. 'main,*Servlet.do*')",
+			"   -rta       Resolve virtual calls of ICFG and call graph only to instantiated classes (RTA)",
+			"   -mergepdg  Export each PDG as a single graph of control and data dependences, sharing nodes",
+			"   -libindex  Build binary index of a JDK source archive (e.g. 'res/jdk7-src.zip')\n",
 			"   -ast       Perform AST (Abstract Syntax Tree) analysis",
 			"   -cfg       Perfomt CFG (Control Flow Graph) analysis",
 			"   -icfg      Perform ICFG (Interprocedural CFG) analysis",
+			"   -callgraph Perform method-level call graph analysis",
 			"   -info      Analyze and extract detailed information about program source code",
 			"   -pdg       Perform PDG (Program Dependence Graph) analysis\n",
 			"   -debug     Enable more detailed logs (only for debugging)",
@@ -169,6 +263,12 @@ public class CLI {
 			"   - If not specified, the default output directory is the current working directory.",
 			"   - If not specified, the default output format is DOT.",
 			"   - If not specified, the default language is Java.",
+			"   - If not specified, source files are parsed using a single thread.",
+			"   - If not specified, parser DFAs are not loaded nor saved between runs.",
+			"   - If not specified, DEF-infos of imported JDK classes are analyzed on each run.",
+			"   - If not specified, syntax errors are recovered, and only PDG analysis ignores such files.",
+			"   - JDK source archives are parsed on each run, unless their index (*.zip.idx) is built.",
+			"   - If not specified, PDG analysis parses all JDK classes of all imported packages.",
 			"   - There is no default value for analysis type.",
 			"   - There is no default value for input directory path.\n",
 			"EXAMPLES:\n",
@@ -178,6 +278,9 @@ public class CLI {
 			"   java -jar PROGEX.jar -outdir D:\\outputs -pdg  C:\\Project\\src\n",
 			"      This example will extract the PDGs of all Java source files in the given path and ",
 			"      will export all extracted graphs as DOT files in the given output directory.\n",
+			"   java -jar PROGEX.jar -libindex res/jdk7-src.zip -libindex lib/src.zip\n",
+			"      This example will build the binary index of the JDK source archives used by PROGEX; ",
+			"      afterwards, the PDG and ICFG analyses use the indexes instead of parsing JDK sources.\n",
 			"NOTES:\n",
 			"   - The important pre-assumption for analyzing any source code is that the ",
 			"     program is valid according to the grammar of that language. Analyzing ",
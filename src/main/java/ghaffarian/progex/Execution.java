@@ -10,13 +10,20 @@ import ghaffarian.progex.graphs.ast.AbstractSyntaxTree;
 import ghaffarian.progex.graphs.cfg.CFGBuilder;
 import ghaffarian.progex.graphs.cfg.ControlFlowGraph;
 import ghaffarian.progex.graphs.cfg.ICFGBuilder;
+import ghaffarian.progex.graphs.cg.CallGraph;
+import ghaffarian.progex.graphs.cg.CallGraphBuilder;
 import ghaffarian.progex.graphs.pdg.PDGBuilder;
 import ghaffarian.progex.graphs.pdg.ProgramDependeceGraph;
 import ghaffarian.progex.utils.FileUtils;
 import ghaffarian.progex.utils.SystemUtils;
 import ghaffarian.nanologger.Logger;
+import ghaffarian.progex.java.JavaArtifactCache;
 import ghaffarian.progex.java.JavaClass;
 import ghaffarian.progex.java.JavaClassExtractor;
+import ghaffarian.progex.java.JavaDDGBuilder;
+import ghaffarian.progex.java.JavaDFACache;
+import ghaffarian.progex.java.JavaICFGBuilder;
+import ghaffarian.progex.java.JavaLibraryIndex;
 import java.util.List;
 
 /**
@@ -29,15 +36,33 @@ public class Execution {
 	
 	private final ArrayList<Analysis> analysisTypes;
 	private final ArrayList<String> inputPaths;
+	private final ArrayList<String> libraryArchives;
     private boolean debugMode;
 	private String outputDir;
 	private Languages lang;
 	private Formats format;
+	private int numThreads;
+	private String dfaCachePath;
+	private String defCachePath;
+	private boolean failFast;
+	private boolean lazyLibraries;
+	private boolean rapidTypeAnalysis;
+	private String[] entryPoints;
+	private boolean mergedPDG;
 	
 	public Execution() {
         debugMode = false;
+		numThreads = 1;
+		dfaCachePath = null;
+		defCachePath = null;
+		failFast = false;
+		lazyLibraries = false;
+		rapidTypeAnalysis = false;
+		entryPoints = null;
+		mergedPDG = false;
 		analysisTypes = new ArrayList<>();
 		inputPaths = new ArrayList<>();
+		libraryArchives = new ArrayList<>();
 		lang = Languages.JAVA;
 		format = Formats.DOT;
 		outputDir = System.getProperty("user.dir");
@@ -54,6 +79,7 @@ public class Execution {
 		PDG			("PDG"),
 		AST			("AST"),
 		ICFG		("ICFG"),
+		CALL_GRAPH	("CG"),
 		SRC_INFO 	("INFO");
 		
 		private Analysis(String str) {
@@ -105,6 +131,10 @@ public class Execution {
 		inputPaths.add(path);
 	}
 	
+	public void addLibraryArchive(String zipPath) {
+		libraryArchives.add(zipPath);
+	}
+	
 	public void setLanguage(Languages lang) {
 		this.lang = lang;
 	}
@@ -117,6 +147,38 @@ public class Execution {
 		format = fmt;
 	}
 	
+	public void setNumberOfThreads(int num) {
+		numThreads = num;
+	}
+	
+	public void setDFACachePath(String path) {
+		dfaCachePath = path;
+	}
+	
+	public void setDEFCachePath(String path) {
+		defCachePath = path;
+	}
+	
+	public void setFailFast(boolean failFast) {
+		this.failFast = failFast;
+	}
+	
+	public void setLazyLibraryResolution(boolean lazy) {
+		lazyLibraries = lazy;
+	}
+	
+	public void setRapidTypeAnalysis(boolean rta) {
+		rapidTypeAnalysis = rta;
+	}
+	
+	public void setEntryPoints(String[] patterns) {
+		entryPoints = patterns;
+	}
+	
+	public void setMergedPDG(boolean merged) {
+		mergedPDG = merged;
+	}
+	
 	public boolean setOutputDirectory(String outPath) {
         if (!outPath.endsWith(File.separator))
             outPath += File.separator;
@@ -138,6 +200,17 @@ public class Execution {
 		str.append("\n  Language = ").append(lang);
 		str.append("\n  Output format = ").append(format);
 		str.append("\n  Output directory = ").append(outputDir);
+		str.append("\n  Number of threads = ").append(numThreads);
+		str.append("\n  Fail-fast parsing = ").append(failFast);
+		str.append("\n  Lazy library resolution = ").append(lazyLibraries);
+		str.append("\n  Rapid type analysis = ").append(rapidTypeAnalysis);
+		str.append("\n  Merged PDG export = ").append(mergedPDG);
+		if (dfaCachePath != null)
+			str.append("\n  DFA cache file = ").append(dfaCachePath);
+		if (defCachePath != null)
+			str.append("\n  DEF cache directory = ").append(defCachePath);
+		if (entryPoints != null)
+			str.append("\n  ICFG entry-points = ").append(Arrays.toString(entryPoints));
 		str.append("\n  Analysis types = ").append(Arrays.toString(analysisTypes.toArray()));
 		str.append("\n  Input paths = \n");
 		for (String path: inputPaths)
@@ -149,6 +222,18 @@ public class Execution {
 	 * Execute the PROGEX program with the given options.
 	 */
 	public void execute() {
+		// Build the binary index of the given library archives (if any)
+		if (!libraryArchives.isEmpty()) {
+			for (String zipPath: libraryArchives) {
+				try {
+					JavaLibraryIndex.build(zipPath);
+				} catch (IOException ex) {
+					Logger.error(ex);
+				}
+			}
+			if (inputPaths.isEmpty() && analysisTypes.isEmpty())
+				return;
+		}
 		if (inputPaths.isEmpty()) {
 			Logger.info("No input path provided!\nAbort.");
 			System.exit(0);
@@ -173,9 +258,30 @@ public class Execution {
 			Logger.info("Abort.");
 			System.exit(0);
 		}
+		
+		// Preload the warmed-up parser DFAs of previous runs
+		if (dfaCachePath != null && new File(dfaCachePath).isFile()) {
+			try {
+				JavaDFACache.load(new File(dfaCachePath));
+			} catch (IOException ex) {
+				Logger.error(ex);
+			}
+		}
+
+		// All analyses share the artifacts (parse-trees, CFGs, etc.) of each source file;
+		// files are parsed on demand, and in fail-fast mode rejected files are excluded.
+		JavaArtifactCache javaArtifacts = new JavaArtifactCache(filePaths, numThreads);
+		javaArtifacts.setFailFast(failFast);
+		// The data-dependence analysis session, with the library options of this execution
+		JavaDDGBuilder javaDDGBuilder = new JavaDDGBuilder(lazyLibraries, defCachePath);
+		// The interprocedural builder, with the call resolution options of this execution
+		JavaICFGBuilder javaICFGBuilder = new JavaICFGBuilder(rapidTypeAnalysis, entryPoints);
 
 		// 2. For each analysis type, do the analysis and output results
+		int analysisCounter = 0;
 		for (Analysis analysis: analysisTypes) {
+			// artifacts of each file are released after the last analysis
+			boolean lastAnalysis = ++analysisCounter == analysisTypes.size();
 			
 			Logger.debug("\nMemory Status");
 			Logger.debug("=============");
@@ -189,11 +295,15 @@ public class Execution {
 					Logger.debug("START: " + Logger.time() + '\n');
 					for (String srcFile : filePaths) {
 						try {
-                            AbstractSyntaxTree ast = ASTBuilder.build(lang.name, srcFile);
+							if (javaArtifacts.isRejected(new File(srcFile)))
+								continue;
+                            AbstractSyntaxTree ast = ASTBuilder.build(lang.name, srcFile, javaArtifacts);
 							ast.export(format.toString(), outputDir);
 						} catch (IOException ex) {
 							Logger.error(ex);
 						}
+						if (lastAnalysis)
+							javaArtifacts.release(new File(srcFile));
 					}
 					break;
 				//
@@ -203,11 +313,15 @@ public class Execution {
 					Logger.debug("START: " + Logger.time() + '\n');
 					for (String srcFile : filePaths) {
 						try {
-							ControlFlowGraph cfg = CFGBuilder.build(lang.name, srcFile);
+							if (javaArtifacts.isRejected(new File(srcFile)))
+								continue;
+							ControlFlowGraph cfg = CFGBuilder.build(lang.name, srcFile, javaArtifacts);
 							cfg.export(format.toString(), outputDir);
 						} catch (IOException ex) {
 							Logger.error(ex);
 						}
+						if (lastAnalysis)
+							javaArtifacts.release(new File(srcFile));
 					}
 					break;
 				//
@@ -216,21 +330,37 @@ public class Execution {
 					Logger.info("=====================================");
 					Logger.debug("START: " + Logger.time() + '\n');
 					try {
-						ControlFlowGraph icfg = ICFGBuilder.buildForAll(lang.name, filePaths);
+						ControlFlowGraph icfg = ICFGBuilder.buildForAll(lang.name, javaArtifacts, javaICFGBuilder);
 						icfg.export(format.toString(), outputDir);
 					} catch (IOException ex) {
 						Logger.error(ex);
 					}
 					break;
 				//
+				case "CG":
+					Logger.info("\nCall-Graph Analysis");
+					Logger.info("===================");
+					Logger.debug("START: " + Logger.time() + '\n');
+					try {
+						CallGraph callGraph = CallGraphBuilder.buildForAll(lang.name, javaArtifacts, javaICFGBuilder);
+						callGraph.export(format.toString(), outputDir);
+					} catch (IOException ex) {
+						Logger.error(ex);
+					}
+					break;
+				//
 				case "PDG":
 					Logger.info("\nProgram-Dependence Analysis");
 					Logger.info("===========================");
 					Logger.debug("START: " + Logger.time() + '\n');
 					try {
-						for (ProgramDependeceGraph pdg: PDGBuilder.buildForAll(lang.name, filePaths)) {
-							pdg.CDS.export(format.toString(), outputDir);
-							pdg.DDS.export(format.toString(), outputDir);
+						for (ProgramDependeceGraph pdg: PDGBuilder.buildForAll(lang.name, javaArtifacts, javaDDGBuilder)) {
+							if (mergedPDG) {
+								pdg.export(format.toString(), outputDir);
+							} else {
+								pdg.CDS.export(format.toString(), outputDir);
+								pdg.DDS.export(format.toString(), outputDir);
+							}
                             if (debugMode) {
                                 pdg.DDS.getCFG().export(format.toString(), outputDir);
                                 pdg.DDS.printAllNodesUseDefs(Logger.Level.DEBUG);
@@ -245,8 +375,11 @@ public class Execution {
 					Logger.info("\nCode Information Analysis");
 					Logger.info("=========================");
 					Logger.debug("START: " + Logger.time() + '\n');
-					for (String srcFile : filePaths)
-						analyzeInfo(lang.name, srcFile);
+					for (String srcFile : filePaths) {
+						analyzeInfo(lang.name, srcFile, javaArtifacts);
+						if (lastAnalysis)
+							javaArtifacts.release(new File(srcFile));
+					}
 					break;
 				//
 				default:
@@ -254,23 +387,41 @@ public class Execution {
 			}
 			Logger.debug("\nFINISH: " + Logger.time());
 		}
+		// In fail-fast mode, rejected files are reported
+		if (failFast) {
+			try {
+				javaArtifacts.exportRejectedFiles(outputDir);
+			} catch (IOException ex) {
+				Logger.error(ex);
+			}
+		}
+		//
+		if (dfaCachePath != null) {
+			try {
+				JavaDFACache.save(new File(dfaCachePath));
+			} catch (IOException ex) {
+				Logger.error(ex);
+			}
+		}
 		//
 		Logger.debug("\nMemory Status");
 		Logger.debug("=============");
 		Logger.debug(SystemUtils.getMemoryStats());
 	}
     
-	private void analyzeInfo(String lang, String srcFilePath) {
+	private void analyzeInfo(String lang, String srcFilePath, JavaArtifactCache javaArtifacts) {
 		switch (lang.toLowerCase()) {
 			case "c":
 				return;
 			//
 			case "java":
 				try {
+					if (javaArtifacts.isRejected(new File(srcFilePath)))
+						return;
 					Logger.info("\n========================================\n");
 					Logger.info("FILE: " + srcFilePath);
 					// first extract class info
-					List<JavaClass> classInfoList = JavaClassExtractor.extractInfo(srcFilePath);
+					List<JavaClass> classInfoList = javaArtifacts.getClassInfos(new File(srcFilePath));
 					for (JavaClass classInfo : classInfoList)
 						Logger.info("\n" + classInfo);
 					// then extract imports info
@@ -1,8 +1,10 @@
 /*** In The Name of Allah ***/
 package ghaffarian.progex.graphs.ast;
 
+import java.io.File;
 import java.io.IOException;
 import ghaffarian.progex.java.JavaASTBuilder;
+import ghaffarian.progex.java.JavaArtifactCache;
 
 /**
  * Abstract Syntax Tree (AST) Builder.
@@ -30,5 +32,25 @@ public class ASTBuilder {
 				return null;
 		}
 	}
+    
+	/**
+	 * Build and return the AST of the given source code file with specified language.
+	 * The given artifact-cache is used for Java source files.
+	 */
+	public static AbstractSyntaxTree build(String lang, String srcFilePath, JavaArtifactCache javaArtifacts) throws IOException {
+		switch (lang) {
+			case "C":
+				return null;
+			//
+			case "Java":
+				return JavaASTBuilder.build(new File(srcFilePath), javaArtifacts);
+			//
+			case "Python":
+				return null;
+			//
+			default:
+				return null;
+		}
+	}
 
 }
@@ -1,7 +1,9 @@
 /*** In The Name of Allah ***/
 package ghaffarian.progex.graphs.cfg;
 
+import java.io.File;
 import java.io.IOException;
+import ghaffarian.progex.java.JavaArtifactCache;
 import ghaffarian.progex.java.JavaCFGBuilder;
 
 /**
@@ -31,4 +33,24 @@ public class CFGBuilder {
 		}
 	}
 	
+	/**
+	 * Build and return the CFG of the given source code file with specified language.
+	 * The given artifact-cache is used for Java source files.
+	 */
+	public static ControlFlowGraph build(String lang, String srcFilePath, JavaArtifactCache javaArtifacts) throws IOException {
+		switch (lang) {
+			case "C":
+				return null;
+			//
+			case "Java":
+				return JavaCFGBuilder.build(new File(srcFilePath), javaArtifacts);
+			//
+			case "Python":
+				return null;
+			//
+			default:
+				return null;
+		}
+	}
+	
 }
@@ -2,6 +2,7 @@
 package ghaffarian.progex.graphs.cfg;
 
 import java.io.IOException;
+import ghaffarian.progex.java.JavaArtifactCache;
 import ghaffarian.progex.java.JavaICFGBuilder;
 
 /**
@@ -30,4 +31,33 @@ public class ICFGBuilder {
 				return null;
 		}
 	}
+	
+	/**
+	 * Build and return ICFG of the source code files of the given artifact-cache.
+	 * The given artifact-cache is used for Java source files.
+	 */
+	public static ControlFlowGraph buildForAll(String lang, JavaArtifactCache javaArtifacts) throws IOException {
+		return buildForAll(lang, javaArtifacts, new JavaICFGBuilder());
+	}
+	
+	/**
+	 * Build and return ICFG of the source code files of the given artifact-cache.
+	 * The given artifact-cache and builder are used for Java source files.
+	 */
+	public static ControlFlowGraph buildForAll(String lang, JavaArtifactCache javaArtifacts, 
+			JavaICFGBuilder javaICFGBuilder) throws IOException {
+		switch (lang) {
+			case "C":
+				return null;
+			//
+			case "Java":
+				return javaICFGBuilder.build(javaArtifacts);
+			//
+			case "Python":
+				return null;
+			//
+			default:
+				return null;
+		}
+	}
 }
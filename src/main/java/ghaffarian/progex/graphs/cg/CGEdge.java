@@ -0,0 +1,39 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.graphs.cg;
+
+/**
+ * Class type of Call Graph (CG) edges.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class CGEdge {
+
+	public final Type type;
+
+	public CGEdge(Type type) {
+		this.type = type;
+	}
+
+    @Override
+    public String toString() {
+        return type.toString();
+    }
+
+	/**
+	 * Enumeration of different types for CG edges.
+	 */
+	public enum Type {
+		CALLS ("Call");
+
+		public final String label;
+
+		private Type(String lbl) {
+			label = lbl;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+}
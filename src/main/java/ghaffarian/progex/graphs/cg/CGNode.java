@@ -0,0 +1,66 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.graphs.cg;
+
+/**
+ * Class type of Call Graph (CG) nodes; each node is a method.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class CGNode {
+
+	private final String packageName;
+	private final String className;
+	private final String methodName;
+	private final String[] argTypes;
+	private final int lineOfCode;
+	private final String filePath;
+
+	public CGNode(String pkg, String cls, String method, String[] args, int line, String file) {
+		packageName = pkg;
+		className = cls;
+		methodName = method;
+		argTypes = args == null ? new String[0] : args;
+		lineOfCode = line;
+		filePath = file;
+	}
+
+	public String getPackage() {
+		return packageName;
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	public String getMethodName() {
+		return methodName;
+	}
+
+	public String[] getArgumentTypes() {
+		return argTypes.clone();
+	}
+
+	public int getLineOfCode() {
+		return lineOfCode;
+	}
+
+	public String getFilePath() {
+		return filePath;
+	}
+
+	/**
+	 * Returns the qualified signature of this method; e.g. 'pkg.Class.method(int,String)'.
+	 */
+	public String getSignature() {
+		StringBuilder signature = new StringBuilder();
+		if (packageName != null && !packageName.isEmpty())
+			signature.append(packageName).append('.');
+		signature.append(className).append('.').append(methodName);
+		return signature.append('(').append(String.join(",", argTypes)).append(')').toString();
+	}
+
+	@Override
+	public String toString() {
+		return lineOfCode + ": " + getSignature();
+	}
+}
@@ -0,0 +1,171 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.graphs.cg;
+
+import ghaffarian.graphs.Edge;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import ghaffarian.nanologger.Logger;
+import ghaffarian.progex.graphs.AbstractProgramGraph;
+import ghaffarian.progex.utils.StringUtils;
+
+/**
+ * Method-level Call Graph (CG) of a program.
+ * Each node is a method, and each edge is a call from a method to a possible target.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class CallGraph extends AbstractProgramGraph<CGNode, CGEdge> {
+
+	public final String fileName;
+
+	public CallGraph(String fileName) {
+		super();
+		this.fileName = fileName;
+        properties.put("label", "CG of " + fileName);
+        properties.put("type", "Call Graph (CG)");
+	}
+
+    @Override
+	public void exportDOT(String outDir) throws FileNotFoundException {
+        if (!outDir.endsWith(File.separator))
+            outDir += File.separator;
+        File outDirFile = new File(outDir);
+        outDirFile.mkdirs();
+		String filename = fileName.substring(0, fileName.indexOf('.'));
+		String filepath = outDir + filename + "-CG.dot";
+		try (PrintWriter dot = new PrintWriter(filepath, "UTF-8")) {
+			dot.println("digraph " + filename + "_CG {");
+            dot.println("  // graph-vertices");
+			Map<CGNode, String> nodeNames = new LinkedHashMap<>();
+			int nodeCounter = 1;
+			for (CGNode node: allVertices) {
+				String name = "v" + nodeCounter++;
+				nodeNames.put(node, name);
+				dot.println("  " + name + "  [label=\"" + StringUtils.escape(node.getSignature()) + "\"];");
+			}
+			dot.println("  // graph-edges");
+			for (Edge<CGNode, CGEdge> edge: allEdges)
+				dot.println("  " + nodeNames.get(edge.source) + " -> " + nodeNames.get(edge.target) + ";");
+			dot.println("  // end-of-graph\n}");
+		} catch (UnsupportedEncodingException ex) {
+			Logger.error(ex);
+		}
+		Logger.info("CG exported to: " + filepath);
+	}
+
+    @Override
+    public void exportGML(String outDir) throws IOException {
+        if (!outDir.endsWith(File.separator))
+            outDir += File.separator;
+        File outDirFile = new File(outDir);
+        outDirFile.mkdirs();
+		String filename = fileName.substring(0, fileName.indexOf('.'));
+		String filepath = outDir + filename + "-CG.gml";
+		try (PrintWriter gml = new PrintWriter(filepath, "UTF-8")) {
+			gml.println("graph [");
+			gml.println("  directed 1");
+			gml.println("  multigraph 0");
+			for (Entry<String, String> property: properties.entrySet()) {
+                switch (property.getKey()) {
+                    case "directed":
+                        continue;
+                    default:
+                        gml.println("  " + property.getKey() + " \"" + property.getValue() + "\"");
+                }
+            }
+            gml.println("  file \"" + this.fileName + "\"\n");
+            //
+			Map<CGNode, Integer> nodeIDs = new LinkedHashMap<>();
+			int nodeCounter = 0;
+			for (CGNode node: allVertices) {
+				gml.println("  node [");
+				gml.println("    id " + nodeCounter);
+				gml.println("    line " + node.getLineOfCode());
+				gml.println("    label \"" + StringUtils.escape(node.getSignature()) + "\"");
+				gml.println("  ]");
+				nodeIDs.put(node, nodeCounter);
+				++nodeCounter;
+			}
+            gml.println();
+            //
+			int edgeCounter = 0;
+			for (Edge<CGNode, CGEdge> edge: allEdges) {
+				gml.println("  edge [");
+				gml.println("    id " + edgeCounter);
+				gml.println("    source " + nodeIDs.get(edge.source));
+				gml.println("    target " + nodeIDs.get(edge.target));
+				gml.println("    label \"" + edge.label.type + "\"");
+				gml.println("  ]");
+				++edgeCounter;
+			}
+			gml.println("]");
+		} catch (UnsupportedEncodingException ex) {
+			Logger.error(ex);
+		}
+		Logger.info("CG exported to: " + filepath);
+    }
+
+    @Override
+	public void exportJSON(String outDir) throws FileNotFoundException {
+        if (!outDir.endsWith(File.separator))
+            outDir += File.separator;
+        File outDirFile = new File(outDir);
+        outDirFile.mkdirs();
+		String filename = fileName.substring(0, fileName.indexOf('.'));
+		String filepath = outDir + filename + "-CG.json";
+		try (PrintWriter json = new PrintWriter(filepath, "UTF-8")) {
+			json.println("{\n  \"directed\": true,");
+			json.println("  \"multigraph\": false,");
+			for (Entry<String, String> property: properties.entrySet()) {
+                switch (property.getKey()) {
+                    case "directed":
+                        continue;
+                    default:
+                        json.println("  \"" + property.getKey() + "\": \"" + property.getValue() + "\",");
+                }
+            }
+			json.println("  \"file\": \"" + fileName + "\",\n");
+            //
+			json.println("  \"nodes\": [");
+			Map<CGNode, Integer> nodeIDs = new LinkedHashMap<>();
+			int nodeCounter = 0;
+			for (CGNode node: allVertices) {
+                json.println("    {");
+				json.println("      \"id\": " + nodeCounter + ",");
+				json.println("      \"line\": " + node.getLineOfCode() + ",");
+				json.println("      \"label\": \"" + StringUtils.escape(node.getSignature()) + "\"");
+				nodeIDs.put(node, nodeCounter);
+				++nodeCounter;
+                if (nodeCounter == allVertices.size())
+                    json.println("    }");
+                else
+                    json.println("    },");
+			}
+            //
+			json.println("  ],\n\n  \"edges\": [");
+			int edgeCounter = 0;
+			for (Edge<CGNode, CGEdge> edge: allEdges) {
+				json.println("    {");
+				json.println("      \"id\": " + edgeCounter + ",");
+				json.println("      \"source\": " + nodeIDs.get(edge.source) + ",");
+				json.println("      \"target\": " + nodeIDs.get(edge.target) + ",");
+				json.println("      \"label\": \"" + edge.label.type + "\"");
+				++edgeCounter;
+                if (edgeCounter == allEdges.size())
+                    json.println("    }");
+                else
+                    json.println("    },");
+			}
+			json.println("  ]\n}");
+		} catch (UnsupportedEncodingException ex) {
+			Logger.error(ex);
+		}
+		Logger.info("CG exported to: " + filepath);
+	}
+}
@@ -0,0 +1,44 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.graphs.cg;
+
+import java.io.IOException;
+import ghaffarian.progex.java.JavaArtifactCache;
+import ghaffarian.progex.java.JavaICFGBuilder;
+
+/**
+ * Call Graph (CG) Builder.
+ * This class invokes the appropriate builder based on the given language parameter.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class CallGraphBuilder {
+
+	/**
+	 * Build and return the call graph of the source code files of the given artifact-cache.
+	 * The given artifact-cache is used for Java source files.
+	 */
+	public static CallGraph buildForAll(String lang, JavaArtifactCache javaArtifacts) throws IOException {
+		return buildForAll(lang, javaArtifacts, new JavaICFGBuilder());
+	}
+
+	/**
+	 * Build and return the call graph of the source code files of the given artifact-cache.
+	 * The given artifact-cache and builder are used for Java source files.
+	 */
+	public static CallGraph buildForAll(String lang, JavaArtifactCache javaArtifacts, 
+			JavaICFGBuilder javaICFGBuilder) throws IOException {
+		switch (lang) {
+			case "C":
+				return null;
+			//
+			case "Java":
+				return javaICFGBuilder.buildCallGraph(javaArtifacts);
+			//
+			case "Python":
+				return null;
+			//
+			default:
+				return null;
+		}
+	}
+}
@@ -206,6 +206,10 @@ public class ControlDependenceGraph extends AbstractProgramGraph<PDNode, CDEdge>
 		Logger.info("CDS of PDG exported to: " + filepath);
 	}
 
+	public File getSourceFile() {
+		return srcFile;
+	}
+
 	private String getFileName() {
 		return srcFile.getName();
 	}
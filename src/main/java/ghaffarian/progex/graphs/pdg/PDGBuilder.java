@@ -2,6 +2,8 @@
 package ghaffarian.progex.graphs.pdg;
 
 import java.io.IOException;
+import ghaffarian.progex.java.JavaArtifactCache;
+import ghaffarian.progex.java.JavaDDGBuilder;
 import ghaffarian.progex.java.JavaPDGBuilder;
 
 /**
@@ -13,12 +15,37 @@ import ghaffarian.progex.java.JavaPDGBuilder;
 public class PDGBuilder {
 	
 	public static ProgramDependeceGraph[] buildForAll(String lang, String[] srcFilePaths) throws IOException {
+		return buildForAll(lang, srcFilePaths, 1);
+	}
+	
+	public static ProgramDependeceGraph[] buildForAll(String lang, String[] srcFilePaths, int numThreads) throws IOException {
+		switch (lang) {
+			case "C":
+				return null;
+			//
+			case "Java":
+				return JavaPDGBuilder.buildForAll(srcFilePaths, numThreads);
+			//
+			case "Python":
+				return null;
+			//
+			default:
+				return null;
+		}
+	}
+	
+	public static ProgramDependeceGraph[] buildForAll(String lang, JavaArtifactCache javaArtifacts) throws IOException {
+		return buildForAll(lang, javaArtifacts, new JavaDDGBuilder());
+	}
+	
+	public static ProgramDependeceGraph[] buildForAll(String lang, JavaArtifactCache javaArtifacts, 
+			JavaDDGBuilder javaDDGBuilder) throws IOException {
 		switch (lang) {
 			case "C":
 				return null;
 			//
 			case "Java":
-				return JavaPDGBuilder.buildForAll(srcFilePaths);
+				return JavaPDGBuilder.buildForAll(javaArtifacts, javaDDGBuilder);
 			//
 			case "Python":
 				return null;
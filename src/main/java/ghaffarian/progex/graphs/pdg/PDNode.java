@@ -14,14 +14,31 @@ import java.util.*;
  */
 public class PDNode {
 
+	private static final int[] NONE = new int[0];
+
 	private Map<String, Object> properties;
-	private Set<String> DEFs, USEs, selfFlows;
+	private final SymbolTable symbols;
+	private int[] DEFs, USEs, selfFlows;  // sorted IDs of the symbol table
+	private LocalVars localVars;          // only used without a symbol table
 	private List<ParserRuleContext> astNodeList = Collections.emptyList();
 
+	/**
+	 * Create a PDNode without a symbol table; such as the region nodes of a CDG.
+	 * The DEF-USE variables of such a node (if any) are kept in plain sets.
+	 */
 	public PDNode() {
-		DEFs = new HashSet<>();
-		USEs = new HashSet<>();
-		selfFlows = new HashSet<>();
+		this(null);
+	}
+
+	/**
+	 * Create a PDNode whose DEF-USE variables are interned in the given symbol table;
+	 * the table is shared by all PDNodes of an analysis.
+	 */
+	public PDNode(SymbolTable symbols) {
+		this.symbols = symbols;
+		DEFs = NONE;
+		USEs = NONE;
+		selfFlows = NONE;
 		properties = new HashMap<>();
 	}
 
@@ -74,35 +91,98 @@ public class PDNode {
 	}
 
 	public boolean addDEF(String var) {
-		return DEFs.add(var);
+		if (symbols == null)
+			return localVars().defs.add(var);
+		int[] defs = add(DEFs, var);
+		if (defs == DEFs)
+			return false;
+		DEFs = defs;
+		return true;
 	}
 	
 	public boolean hasDEF(String var) {
-		return DEFs.contains(var);
+		if (symbols == null)
+			return localVars != null && localVars.defs.contains(var);
+		return contains(DEFs, var);
 	}
 
 	public String[] getAllDEFs() {
-		return DEFs.toArray(new String[DEFs.size()]);
+		if (symbols == null)
+			return localVars == null ? new String[0] : LocalVars.names(localVars.defs);
+		return names(DEFs);
 	}
 	
 	public boolean addUSE(String var) {
-		return USEs.add(var);
+		if (symbols == null)
+			return localVars().uses.add(var);
+		int[] uses = add(USEs, var);
+		if (uses == USEs)
+			return false;
+		USEs = uses;
+		return true;
 	}
 	
 	public boolean hasUSE(String var) {
-		return USEs.contains(var);
+		if (symbols == null)
+			return localVars != null && localVars.uses.contains(var);
+		return contains(USEs, var);
 	}
 	
 	public String[] getAllUSEs() {
-		return USEs.toArray(new String[USEs.size()]);
+		if (symbols == null)
+			return localVars == null ? new String[0] : LocalVars.names(localVars.uses);
+		return names(USEs);
 	}
 	
 	public boolean addSelfFlow(String var) {
-		return selfFlows.add(var);
+		if (symbols == null)
+			return localVars().selfFlows.add(var);
+		int[] flows = add(selfFlows, var);
+		if (flows == selfFlows)
+			return false;
+		selfFlows = flows;
+		return true;
 	}
 	
 	public String[] getAllSelfFlows() {
-		return selfFlows.toArray(new String[selfFlows.size()]);
+		if (symbols == null)
+			return localVars == null ? new String[0] : LocalVars.names(localVars.selfFlows);
+		return names(selfFlows);
+	}
+	
+	/**
+	 * Returns the given set with the given variable added,
+	 * or the same set if the variable is already a member.
+	 */
+	private int[] add(int[] set, String var) {
+		int id = symbols.intern(var);
+		int pos = Arrays.binarySearch(set, id);
+		if (pos >= 0)
+			return set;
+		pos = -(pos + 1);
+		int[] result = new int[set.length + 1];
+		System.arraycopy(set, 0, result, 0, pos);
+		result[pos] = id;
+		System.arraycopy(set, pos, result, pos + 1, set.length - pos);
+		return result;
+	}
+	
+	private boolean contains(int[] set, String var) {
+		if (set.length == 0)
+			return false;
+		int id = symbols.lookup(var);
+		return id >= 0 && Arrays.binarySearch(set, id) >= 0;
+	}
+	
+	/**
+	 * Returns the variable names of the given set, in alphabetical order.
+	 */
+	private String[] names(int[] set) {
+		String[] names = new String[set.length];
+		for (int i = 0; i < set.length; ++i)
+			names[i] = symbols.nameOf(set[i]);
+		Arrays.sort(names);
+		return names;
 	}
 	
 	public void setProperty(String key, Object value) {
@@ -123,4 +203,30 @@ public class PDNode {
 		String code = (String) properties.get("code");
 		return (line + ": " + code);
 	}
+	
+	private LocalVars localVars() {
+		if (localVars == null)
+			localVars = new LocalVars();
+		return localVars;
+	}
+	
+	
+	/**
+	 * The DEF-USE variables of a PDNode without a symbol table.
+	 */
+	private static class LocalVars {
+		
+		final Set<String> defs = new HashSet<>(4);
+		final Set<String> uses = new HashSet<>(4);
+		final Set<String> selfFlows = new HashSet<>(4);
+		
+		/**
+		 * Returns the variable names of the given set, in alphabetical order.
+		 */
+		static String[] names(Set<String> set) {
+			String[] names = set.toArray(new String[set.size()]);
+			Arrays.sort(names);
+			return names;
+		}
+	}
 }
@@ -1,6 +1,24 @@
 /*** In The Name of Allah ***/
 package ghaffarian.progex.graphs.pdg;
 
+import ghaffarian.graphs.Edge;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import ghaffarian.nanologger.Logger;
+import ghaffarian.progex.graphs.cfg.CFEdge;
+import ghaffarian.progex.graphs.cfg.CFNode;
+import ghaffarian.progex.graphs.cfg.ControlFlowGraph;
+import ghaffarian.progex.utils.StringUtils;
+
 /**
  * Program Dependence Graph (PDG).
  * A PDG consists of two main subgraphs:
@@ -8,9 +26,10 @@ package ghaffarian.progex.graphs.pdg;
  * and Data Dependence Subgraph (DDS).
  * In this class, both the CDS and DDS are accessible.
  * 
- * NOTE: the vertex-sets of the two subgraphs are not equivalent and 
- *       are different sets with different node instances.
- *       This might change in future versions.
+ * NOTE: statements of the two subgraphs share the same node instances
+ *       when the CDS is built from the DDS; the CDS also contains region
+ *       nodes, and the CFG attached to the DDS contains nodes (e.g. 'end')
+ *       which are not part of the other subgraph.
  * 
  * @author Seyed Mohammad Ghaffarian
  */
@@ -42,4 +61,322 @@ public class ProgramDependeceGraph {
 		CDS = cds;
 		DDS = dds;
 	}
+
+	/**
+	 * Export the merged PDG, consisting of the CDS and DDS (and its CFG)
+	 * over a single set of nodes, to the specified file format.
+	 * The file will be saved in the given directory path.
+	 */
+	public void export(String format, String outDir) throws IOException {
+		switch (format) {
+			case "DOT":
+				exportDOT(outDir);
+				break;
+
+			case "GML":
+				exportGML(outDir);
+				break;
+
+			case "JSON":
+				exportJSON(outDir);
+				break;
+		}
+	}
+
+	/**
+	 * Export the merged PDG to DOT file format.
+	 * The DOT file will be saved inside the given directory.
+	 */
+	public void exportDOT(String outDir) throws IOException {
+		if (!outDir.endsWith(File.separator))
+			outDir += File.separator;
+		new File(outDir).mkdirs();
+		String filename = FILE_NAME.substring(0, FILE_NAME.indexOf('.'));
+		String filepath = outDir + filename + "-PDG.dot";
+		MergedNodes nodes = new MergedNodes(CDS, DDS);
+		try (PrintWriter dot = new PrintWriter(filepath, "UTF-8")) {
+			dot.println("digraph " + filename + "_PDG {");
+			dot.println("  // graph-vertices");
+			for (int id = 0; id < nodes.size(); ++id) {
+				StringBuilder label = new StringBuilder("  [label=\"");
+				if (nodes.getLineOfCode(id) > 0)
+					label.append(nodes.getLineOfCode(id)).append(":  ");
+				label.append(StringUtils.escape(nodes.getLabel(id))).append("\"];");
+				dot.println("  v" + (id + 1) + label.toString());
+			}
+			dot.println("  // graph-edges");
+			for (Edge<PDNode, CDEdge> edge: nodes.ctrlDepEdges) {
+				String src = "v" + (nodes.getID(edge.source) + 1);
+				String trg = "v" + (nodes.getID(edge.target) + 1);
+				if (edge.label.type.equals(CDEdge.Type.EPSILON))
+					dot.println("  " + src + " -> " + trg + ";");
+				else
+					dot.println("  " + src + " -> " + trg + "  [label=\"" + edge.label.type + "\"];");
+			}
+			for (Edge<CFNode, CFEdge> edge: nodes.ctrlFlowEdges)
+				dot.println("  v" + (nodes.getID(edge.source) + 1) + " -> v" + (nodes.getID(edge.target) + 1) +
+							"  [arrowhead=empty, color=gray, style=dashed, label=\"" + edge.label.type + "\"];");
+			for (Edge<PDNode, DDEdge> edge: nodes.dataDepEdges)
+				dot.println("  v" + (nodes.getID(edge.source) + 1) + " -> v" + (nodes.getID(edge.target) + 1) +
+							"  [style=bold, label=\" (" + edge.label.var + ")\"];");
+			dot.println("  // end-of-graph\n}");
+		} catch (UnsupportedEncodingException ex) {
+			Logger.error(ex);
+		}
+		Logger.info("PDG exported to: " + filepath);
+	}
+
+	/**
+	 * Export the merged PDG to GML file format.
+	 * The GML file will be saved inside the given directory.
+	 */
+	public void exportGML(String outDir) throws IOException {
+		if (!outDir.endsWith(File.separator))
+			outDir += File.separator;
+		new File(outDir).mkdirs();
+		String filename = FILE_NAME.substring(0, FILE_NAME.indexOf('.'));
+		String filepath = outDir + filename + "-PDG.gml";
+		MergedNodes nodes = new MergedNodes(CDS, DDS);
+		try (PrintWriter gml = new PrintWriter(filepath, "UTF-8")) {
+			gml.println("graph [");
+			gml.println("  directed 1");
+			gml.println("  multigraph 1");
+			gml.println("  label \"PDG of " + FILE_NAME + "\"");
+			gml.println("  type \"Program Dependence Graph (PDG)\"");
+			gml.println("  file \"" + FILE_NAME + "\"\n");
+			//
+			for (int id = 0; id < nodes.size(); ++id) {
+				gml.println("  node [");
+				gml.println("    id " + id);
+				gml.println("    line " + nodes.getLineOfCode(id));
+				gml.println("    label \"" + StringUtils.escape(nodes.getLabel(id)) + "\"");
+				PDNode dataNode = nodes.getDataNode(id);
+				if (dataNode != null) {
+					gml.println("    defs " + StringUtils.toGmlArray(dataNode.getAllDEFs(), "var"));
+					gml.println("    uses " + StringUtils.toGmlArray(dataNode.getAllUSEs(), "var"));
+				}
+				gml.println("  ]");
+			}
+			gml.println();
+			//
+			int edgeCounter = 0;
+			for (Edge<PDNode, CDEdge> edge: nodes.ctrlDepEdges)
+				printGmlEdge(gml, edgeCounter++, nodes.getID(edge.source), nodes.getID(edge.target),
+						null, edge.label.type.toString());
+			for (Edge<CFNode, CFEdge> edge: nodes.ctrlFlowEdges)
+				printGmlEdge(gml, edgeCounter++, nodes.getID(edge.source), nodes.getID(edge.target),
+						"Control", edge.label.type.toString());
+			for (Edge<PDNode, DDEdge> edge: nodes.dataDepEdges)
+				printGmlEdge(gml, edgeCounter++, nodes.getID(edge.source), nodes.getID(edge.target),
+						edge.label.type.toString(), edge.label.var);
+			gml.println("]");
+		} catch (UnsupportedEncodingException ex) {
+			Logger.error(ex);
+		}
+		Logger.info("PDG exported to: " + filepath);
+	}
+
+	private void printGmlEdge(PrintWriter gml, int id, int source, int target, String type, String label) {
+		gml.println("  edge [");
+		gml.println("    id " + id);
+		gml.println("    source " + source);
+		gml.println("    target " + target);
+		if (type != null)
+			gml.println("    type \"" + type + "\"");
+		gml.println("    label \"" + label + "\"");
+		gml.println("  ]");
+	}
+
+	/**
+	 * Export the merged PDG to JSON file format.
+	 * The JSON file will be saved inside the given directory.
+	 */
+	public void exportJSON(String outDir) throws IOException {
+		if (!outDir.endsWith(File.separator))
+			outDir += File.separator;
+		new File(outDir).mkdirs();
+		String filename = FILE_NAME.substring(0, FILE_NAME.indexOf('.'));
+		String filepath;
+		int i = 0;
+		do {
+			i++;
+			filepath = outDir + filename + "-" + i + "-PDG.json";
+		} while (new File(filepath).exists());
+		MergedNodes nodes = new MergedNodes(CDS, DDS);
+		try (PrintWriter json = new PrintWriter(filepath, "UTF-8")) {
+			json.println("{");
+			json.println("  \"directed\": true,");
+			json.println("  \"multigraph\": true,");
+			json.println("  \"label\": " + StringUtils.toJsonString("PDG of " + FILE_NAME) + ",");
+			json.println("  \"type\": \"Program Dependence Graph (PDG)\",");
+			json.println("  \"file\": " + StringUtils.toJsonString(FILE_NAME) + ",");
+			json.println("  \"path\": " + StringUtils.toJsonString(CDS.getSourceFile().getPath()) + ",");
+			//
+			json.println("  \"nodes\": [");
+			for (int id = 0; id < nodes.size(); ++id) {
+				json.println("    {");
+				json.println("      \"id\": " + id + ",");
+				json.println("      \"line\": " + nodes.getLineOfCode(id) + ",");
+				PDNode pdNode = nodes.getPDNode(id);
+				if (pdNode != null) {
+					if (pdNode.getASTNodeList().size() > 0) {
+						json.println("      \"astId\": " + pdNode.getASTNodeList().hashCode() + ",");
+						json.print("      \"tokens\":");
+						json.print(pdNode.formatTokensToJsonArray(CDS.tokens));
+						json.println(",");
+					}
+					var isEntryPoint = (Boolean) pdNode.getProperty("entryPoint");
+					if (isEntryPoint != null)
+						json.println("      \"entryPoint\": " + isEntryPoint + ",");
+					var name = (String) pdNode.getProperty("name");
+					if (isEntryPoint != null && name != null)
+						json.println("      \"name\": " + StringUtils.toJsonString(name) + ",");
+				}
+				PDNode dataNode = nodes.getDataNode(id);
+				if (dataNode != null) {
+					json.println("      \"defs\": " + StringUtils.toJsonArray(dataNode.getAllDEFs()) + ",");
+					json.println("      \"uses\": " + StringUtils.toJsonArray(dataNode.getAllUSEs()) + ",");
+				}
+				json.println("      \"label\": " + StringUtils.toJsonString(nodes.getLabel(id)));
+				if (id + 1 == nodes.size())
+					json.println("    }");
+				else
+					json.println("    },");
+			}
+			//
+			json.println("  ],");
+			json.println();
+			json.println("  \"edges\": [");
+			int edgeCounter = 0;
+			for (Edge<PDNode, CDEdge> edge: nodes.ctrlDepEdges)
+				printJsonEdge(json, edgeCounter++, nodes.getID(edge.source), nodes.getID(edge.target),
+						null, edge.label.type.toString());
+			for (Edge<CFNode, CFEdge> edge: nodes.ctrlFlowEdges)
+				printJsonEdge(json, edgeCounter++, nodes.getID(edge.source), nodes.getID(edge.target),
+						"Control", edge.label.type.toString());
+			for (Edge<PDNode, DDEdge> edge: nodes.dataDepEdges)
+				printJsonEdge(json, edgeCounter++, nodes.getID(edge.source), nodes.getID(edge.target),
+						edge.label.type.toString(), edge.label.var);
+			json.println();
+			json.println("  ]");
+			json.println("}");
+		} catch (UnsupportedEncodingException ex) {
+			Logger.error(ex);
+		}
+		Logger.info("PDG exported to: " + filepath);
+	}
+
+	private void printJsonEdge(PrintWriter json, int id, int source, int target, String type, String label) {
+		if (id > 0)
+			json.println(",");
+		json.println("    {");
+		json.println("      \"id\": " + id + ",");
+		json.println("      \"source\": " + source + ",");
+		json.println("      \"target\": " + target + ",");
+		if (type != null)
+			json.println("      \"type\": " + StringUtils.toJsonString(type) + ",");
+		json.println("      \"label\": " + StringUtils.toJsonString(label));
+		json.print("    }");
+	}
+
+
+	/**
+	 * The single node-set of a merged PDG; i.e. all nodes of the CDS, followed by
+	 * the nodes of the CFG (attached to the DDS) which are not shared with the CDS.
+	 */
+	private static class MergedNodes {
+
+		final List<Edge<PDNode, CDEdge>> ctrlDepEdges;
+		final List<Edge<CFNode, CFEdge>> ctrlFlowEdges;
+		final List<Edge<PDNode, DDEdge>> dataDepEdges;
+		private final List<Object> nodes;
+		private final Map<Object, Integer> nodeIDs;
+		private final Set<PDNode> dataNodes;
+
+		MergedNodes(ControlDependenceGraph cds, DataDependenceGraph dds) {
+			nodes = new ArrayList<>();
+			nodeIDs = new IdentityHashMap<>();
+			dataNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+			ctrlDepEdges = new ArrayList<>();
+			ctrlFlowEdges = new ArrayList<>();
+			dataDepEdges = new ArrayList<>();
+			Iterator<PDNode> pdNodes = cds.allVerticesIterator();
+			while (pdNodes.hasNext())
+				add(pdNodes.next());
+			Iterator<Edge<PDNode, CDEdge>> cdEdges = cds.allEdgesIterator();
+			while (cdEdges.hasNext())
+				ctrlDepEdges.add(cdEdges.next());
+			//
+			ControlFlowGraph cfg = dds.getCFG();
+			Iterator<CFNode> cfNodes = cfg.allVerticesIterator();
+			while (cfNodes.hasNext()) {
+				CFNode node = cfNodes.next();
+				PDNode pdNode = (PDNode) node.getProperty("pdnode");
+				if (pdNode == null) {
+					add(node);
+					continue;
+				}
+				dataNodes.add(pdNode);
+				Integer id = nodeIDs.get(pdNode);
+				if (id == null) {
+					id = add(node);
+					nodeIDs.put(pdNode, id);
+				} else
+					nodeIDs.put(node, id);
+			}
+			Iterator<Edge<CFNode, CFEdge>> cfEdges = cfg.allEdgesIterator();
+			while (cfEdges.hasNext())
+				ctrlFlowEdges.add(cfEdges.next());
+			Iterator<Edge<PDNode, DDEdge>> ddEdges = dds.allEdgesIterator();
+			while (ddEdges.hasNext())
+				dataDepEdges.add(ddEdges.next());
+		}
+
+		private int add(Object node) {
+			int id = nodes.size();
+			nodes.add(node);
+			nodeIDs.put(node, id);
+			return id;
+		}
+
+		int size() {
+			return nodes.size();
+		}
+
+		int getID(Object node) {
+			return nodeIDs.get(node);
+		}
+
+		/**
+		 * Returns the PDNode of the given node-ID, or null for a CFG-only node.
+		 */
+		PDNode getPDNode(int id) {
+			Object node = nodes.get(id);
+			if (node instanceof PDNode)
+				return (PDNode) node;
+			return (PDNode) ((CFNode) node).getProperty("pdnode");
+		}
+
+		/**
+		 * Returns the PDNode of the given node-ID if it has DEF-USE info, or null otherwise.
+		 */
+		PDNode getDataNode(int id) {
+			PDNode pdNode = getPDNode(id);
+			return dataNodes.contains(pdNode) ? pdNode : null;
+		}
+
+		int getLineOfCode(int id) {
+			Object node = nodes.get(id);
+			if (node instanceof PDNode)
+				return ((PDNode) node).getLineOfCode();
+			return ((CFNode) node).getLineOfCode();
+		}
+
+		String getLabel(int id) {
+			Object node = nodes.get(id);
+			if (node instanceof PDNode)
+				return ((PDNode) node).getCodeStr();
+			return ((CFNode) node).getCode();
+		}
+	}
 }
@@ -0,0 +1,181 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.graphs.pdg;
+
+import ghaffarian.graphs.Edge;
+import ghaffarian.progex.graphs.cfg.CFEdge;
+import ghaffarian.progex.graphs.cfg.CFNode;
+import ghaffarian.progex.graphs.cfg.CFPathTraversal;
+import ghaffarian.progex.graphs.cfg.ControlFlowGraph;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reaching-definitions analysis over a control-flow graph,
+ * whose nodes are attached with PDNodes (the 'pdnode' property).
+ *
+ * Each definition is a pair of a PDNode and one of its DEFs, and is identified by
+ * an index; so the definitions reaching each node are a dense bit-set. The sets are
+ * computed by the classic iterative (work-list) algorithm, and each definition flows
+ * to all nodes it reaches which USE its variable; except for its own node, whose
+ * self-flows are given by the PDNode itself. Only the nodes reachable from the
+ * method entries of the CFG are considered.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class ReachingDefinitions {
+
+	private final CFNode[] nodes;
+	private final PDNode[] pdNodes;
+	private final int[][] successors;
+	private final int[] defStart;
+	private final String[] defVars;
+	private final Map<String, BitSet> varDefs;
+	private BitSet[] reachIn;
+
+	/**
+	 * Analyze the reaching definitions of the given CFG.
+	 */
+	public ReachingDefinitions(ControlFlowGraph cfg) {
+		// Number all nodes reachable from the method entries, in the order of visit
+		List<CFNode> order = new ArrayList<>();
+		Map<CFNode, Integer> index = new IdentityHashMap<>();
+		for (CFNode entry: cfg.getAllMethodEntries()) {
+			CFPathTraversal traversal = new CFPathTraversal(cfg, entry);
+			while (traversal.hasNext()) {
+				CFNode node = traversal.next();
+				if (index.containsKey(node)) {
+					traversal.continueNextPath();
+					continue;
+				}
+				index.put(node, order.size());
+				order.add(node);
+			}
+		}
+		nodes = order.toArray(new CFNode[order.size()]);
+		pdNodes = new PDNode[nodes.length];
+		successors = new int[nodes.length][];
+		// Number all definitions, in the same order
+		defStart = new int[nodes.length + 1];
+		List<String> vars = new ArrayList<>();
+		varDefs = new HashMap<>();
+		for (int n = 0; n < nodes.length; ++n) {
+			defStart[n] = vars.size();
+			pdNodes[n] = (PDNode) nodes[n].getProperty("pdnode");
+			if (pdNodes[n] != null) {
+				for (String def: pdNodes[n].getAllDEFs()) {
+					varDefs.computeIfAbsent(def, k -> new BitSet()).set(vars.size());
+					vars.add(def);
+				}
+			}
+			List<Integer> succs = new ArrayList<>();
+			Iterator<Edge<CFNode, CFEdge>> outEdges = cfg.outgoingEdgesIterator(nodes[n]);
+			while (outEdges.hasNext())
+				succs.add(index.get(outEdges.next().target));
+			successors[n] = new int[succs.size()];
+			for (int i = 0; i < successors[n].length; ++i)
+				successors[n][i] = succs.get(i);
+		}
+		defStart[nodes.length] = vars.size();
+		defVars = vars.toArray(new String[vars.size()]);
+		solve();
+	}
+
+	/**
+	 * Compute the definitions reaching the start of each node, until no more changes.
+	 */
+	private void solve() {
+		reachIn = new BitSet[nodes.length];
+		BitSet[] kills = new BitSet[nodes.length];
+		for (int n = 0; n < nodes.length; ++n) {
+			reachIn[n] = new BitSet();
+			if (defStart[n] < defStart[n + 1]) {
+				kills[n] = new BitSet();
+				for (int d = defStart[n]; d < defStart[n + 1]; ++d)
+					kills[n].or(varDefs.get(defVars[d]));
+			}
+		}
+		Deque<Integer> workList = new ArrayDeque<>();
+		boolean[] queued = new boolean[nodes.length];
+		for (int n = 0; n < nodes.length; ++n) {
+			workList.add(n);
+			queued[n] = true;
+		}
+		BitSet reachOut = new BitSet();
+		BitSet missing = new BitSet();
+		while (!workList.isEmpty()) {
+			int n = workList.poll();
+			queued[n] = false;
+			// OUT[n] = GEN[n] + (IN[n] - KILL[n])
+			reachOut.clear();
+			reachOut.or(reachIn[n]);
+			if (kills[n] != null) {
+				reachOut.andNot(kills[n]);
+				reachOut.set(defStart[n], defStart[n + 1]);
+			}
+			for (int s: successors[n]) {
+				missing.clear();
+				missing.or(reachOut);
+				missing.andNot(reachIn[s]);
+				if (!missing.isEmpty()) {
+					reachIn[s].or(reachOut);
+					if (!queued[s]) {
+						workList.add(s);
+						queued[s] = true;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add the data-flow edges of the analyzed CFG to the given DDG.
+	 * The edges of each defining node are added in the order of its DEFs,
+	 * after its self-flows; and the defining nodes are ordered by the CFG.
+	 */
+	public void addDataFlowEdges(DataDependenceGraph ddg) {
+		// Collect the USE nodes of each definition
+		List<List<Integer>> defUses = new ArrayList<>(Collections.nCopies(defVars.length, null));
+		BitSet uses = new BitSet();
+		for (int n = 0; n < nodes.length; ++n) {
+			if (pdNodes[n] == null || reachIn[n].isEmpty())
+				continue;
+			for (String use: pdNodes[n].getAllUSEs()) {
+				BitSet defs = varDefs.get(use);
+				if (defs == null)
+					continue;
+				uses.clear();
+				uses.or(reachIn[n]);
+				uses.and(defs);
+				for (int d = uses.nextSetBit(0); d >= 0; d = uses.nextSetBit(d + 1)) {
+					if (d >= defStart[n] && d < defStart[n + 1])
+						continue;  // a definition does not flow to its own node
+					if (defUses.get(d) == null)
+						defUses.set(d, new ArrayList<>());
+					defUses.get(d).add(n);
+				}
+			}
+		}
+		// Add the edges, in the order of definitions
+		for (int n = 0; n < nodes.length; ++n) {
+			if (defStart[n] == defStart[n + 1])
+				continue;
+			PDNode defNode = pdNodes[n];
+			for (String flow: defNode.getAllSelfFlows())
+				ddg.addEdge(new Edge<>(defNode, new DDEdge(DDEdge.Type.FLOW, flow), defNode));
+			for (int d = defStart[n]; d < defStart[n + 1]; ++d) {
+				if (defUses.get(d) == null)
+					continue;
+				for (int u: defUses.get(d))
+					ddg.addEdge(new Edge<>(defNode, new DDEdge(DDEdge.Type.FLOW, defVars[d]), pdNodes[u]));
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.graphs.pdg;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of interned variable names (such as '$THIS.x'),
+ * which assigns a unique integer ID to each name.
+ *
+ * A single table is shared by all PDNodes of an analysis, so the DEF-USE
+ * sets of the nodes are kept as IDs, and the names are only needed for export.
+ * Interning and lookups are safe for concurrent use.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class SymbolTable {
+
+	private final Map<String, Integer> ids;
+	private volatile String[] names;
+	private int count;
+
+	public SymbolTable() {
+		ids = new ConcurrentHashMap<>();
+		names = new String[64];
+		count = 0;
+	}
+
+	/**
+	 * Returns the ID of the given name;
+	 * a new ID is assigned if the name is not yet interned.
+	 */
+	public int intern(String name) {
+		Integer id = ids.get(name);
+		if (id != null)
+			return id;
+		synchronized (this) {
+			id = ids.get(name);
+			if (id != null)
+				return id;
+			if (count == names.length)
+				names = Arrays.copyOf(names, 2 * count);
+			names[count] = name;
+			ids.put(name, count);  // published after the name is stored
+			return count++;
+		}
+	}
+
+	/**
+	 * Returns the ID of the given name, or -1 if the name is not interned.
+	 */
+	public int lookup(String name) {
+		if (name == null)
+			return -1;
+		Integer id = ids.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the name of the given ID.
+	 */
+	public String nameOf(int id) {
+		return names[id];
+	}
+
+	/**
+	 * Returns the number of interned names.
+	 */
+	public int size() {
+		return ids.size();
+	}
+}
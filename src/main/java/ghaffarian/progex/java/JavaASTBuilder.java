@@ -2,21 +2,16 @@
 package ghaffarian.progex.java;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Map;
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.misc.Interval;
 import org.antlr.v4.runtime.tree.ParseTree;
 import ghaffarian.progex.graphs.ast.ASNode;
 import ghaffarian.progex.graphs.ast.AbstractSyntaxTree;
 import ghaffarian.progex.java.parser.JavaBaseVisitor;
-import ghaffarian.progex.java.parser.JavaLexer;
 import ghaffarian.progex.java.parser.JavaParser;
 import ghaffarian.nanologger.Logger;
 import java.util.LinkedHashMap;
@@ -44,15 +39,18 @@ public class JavaASTBuilder {
 	public static AbstractSyntaxTree build(File javaFile) throws IOException {
 		if (!javaFile.getName().endsWith(".java"))
 			throw new IOException("Not a Java File!");
-		InputStream inFile = new FileInputStream(javaFile);
-		ANTLRInputStream input = new ANTLRInputStream(inFile);
-		JavaLexer lexer = new JavaLexer(input);
-		CommonTokenStream tokens = new CommonTokenStream(lexer);
-		JavaParser parser = new JavaParser(tokens);
-		ParseTree tree = parser.compilationUnit();
+		ParseTree tree = JavaSourceParser.parse(javaFile);
 		return build(javaFile.getPath(), tree, null, null);
 	}
 	
+	/**
+	 * ‌Build and return the Abstract Syntax Tree (AST) for the given Java source file.
+	 * The parse-tree of the file is taken from the given artifact-cache.
+	 */
+	public static AbstractSyntaxTree build(File javaFile, JavaArtifactCache artifacts) throws IOException {
+		return build(javaFile.getPath(), artifacts.getParseTree(javaFile), null, null);
+	}
+	
 	/**
 	 * ‌Build and return the Abstract Syntax Tree (AST) for the given Parse-Tree.
 	 * The 'ctxProps' map includes contextual-properties for particular nodes 
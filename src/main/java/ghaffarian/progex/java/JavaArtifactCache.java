@@ -0,0 +1,441 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.tree.ParseTree;
+import ghaffarian.nanologger.Logger;
+import ghaffarian.progex.graphs.cfg.CFNode;
+import ghaffarian.progex.graphs.cfg.ControlFlowGraph;
+import ghaffarian.progex.java.JavaSourceParser.SyntaxErrorException;
+import ghaffarian.progex.utils.StringUtils;
+
+/**
+ * A per-run cache of the artifacts extracted from Java source files.
+ *
+ * Each file is parsed once (unless released), and its parse-tree, token stream,
+ * class-infos and control-flow graph are shared among all analyses.
+ * All artifacts are computed on demand; i.e. a file is parsed on the first
+ * request of its artifacts, unless all files are parsed at once (using 
+ * multiple threads) by 'parseAll'. The artifacts of a file can be released
+ * after its last analysis; they are recomputed if requested again.
+ * In fail-fast mode, files with syntax errors are rejected without recovery.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class JavaArtifactCache {
+
+	private final int numThreads;
+	private final Map<String, FileArtifacts> artifacts;
+	private volatile boolean failFast;
+
+	public JavaArtifactCache(String[] javaFilePaths, int numThreads) {
+		this.failFast = false;
+		this.numThreads = numThreads;
+		artifacts = new LinkedHashMap<>();
+		for (String path: javaFilePaths)
+			artifacts.put(path, new FileArtifacts(new File(path)));
+	}
+
+	public JavaArtifactCache(File[] javaFiles, int numThreads) {
+		this.failFast = false;
+		this.numThreads = numThreads;
+		artifacts = new LinkedHashMap<>();
+		for (File file: javaFiles)
+			artifacts.put(file.getPath(), new FileArtifacts(file));
+	}
+
+	/**
+	 * Enable or disable the fail-fast mode for parsing.
+	 * In fail-fast mode, parsing of each file is aborted on its first error,
+	 * and the file is rejected; i.e. it has no parse-tree or other artifacts.
+	 * This setting only affects files which are not yet parsed.
+	 */
+	public void setFailFast(boolean failFast) {
+		this.failFast = failFast;
+	}
+
+	/**
+	 * Returns the number of threads which are used for analyzing the files of this cache.
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Returns all Java files of this cache, in the order they were given.
+	 */
+	public synchronized File[] getFiles() {
+		File[] files = new File[artifacts.size()];
+		int i = 0;
+		for (FileArtifacts fa: artifacts.values())
+			files[i++] = fa.file;
+		return files;
+	}
+
+	/**
+	 * Returns the Java files of this cache which are not rejected, in the order they were given.
+	 */
+	public File[] getAcceptedFiles() throws IOException {
+		List<File> accepted = new ArrayList<>();
+		for (File file: getFiles())
+			if (!isRejected(file))
+				accepted.add(file);
+		return accepted.toArray(new File[accepted.size()]);
+	}
+
+	/**
+	 * Parse all Java files of this cache which are not yet parsed.
+	 * The configured number of threads are used for parsing.
+	 */
+	public void parseAll() throws IOException {
+		List<FileArtifacts> unparsed = new ArrayList<>();
+		synchronized (this) {
+			for (FileArtifacts fa: artifacts.values())
+				if (!fa.isParsed())
+					unparsed.add(fa);
+		}
+		if (unparsed.isEmpty())
+			return;
+		Logger.info("Parsing all source files ... ");
+		if (numThreads <= 1 || unparsed.size() <= 1) {
+			for (FileArtifacts fa: unparsed)
+				fa.parse();
+		} else {
+			ExecutorService pool = Executors.newFixedThreadPool(Math.min(numThreads, unparsed.size()));
+			try {
+				List<Future<Void>> results = new ArrayList<>(unparsed.size());
+				for (FileArtifacts fa: unparsed) {
+					results.add(pool.submit(() -> {
+						fa.parse();
+						return null;
+					}));
+				}
+				for (Future<Void> result: results)
+					result.get();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Parsing interrupted!", ex);
+			} catch (ExecutionException ex) {
+				if (ex.getCause() instanceof IOException)
+					throw (IOException) ex.getCause();
+				if (ex.getCause() instanceof RuntimeException)
+					throw (RuntimeException) ex.getCause();
+				throw new IOException(ex.getCause());
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+		Logger.info("Done.");
+	}
+
+	/**
+	 * Returns the parse-tree of the given Java file.
+	 */
+	public ParseTree getParseTree(File javaFile) throws IOException {
+		return get(javaFile).getParseTree();
+	}
+
+	/**
+	 * Returns the token stream of the given Java file.
+	 */
+	public CommonTokenStream getTokenStream(File javaFile) throws IOException {
+		return get(javaFile).getTokenStream();
+	}
+
+	/**
+	 * Checks whether any syntax error was found when parsing the given Java file.
+	 */
+	public boolean hasSyntaxErrors(File javaFile) throws IOException {
+		return get(javaFile).getNumSyntaxErrors() > 0;
+	}
+
+	/**
+	 * Checks whether the given Java file is rejected due to a syntax error in fail-fast mode.
+	 */
+	public boolean isRejected(File javaFile) throws IOException {
+		return get(javaFile).getRejection() != null;
+	}
+
+	/**
+	 * Release the artifacts (parse-tree, token stream, class-infos and CFG) of the 
+	 * given Java file; the syntax-error status of the file is kept.
+	 */
+	public void release(File javaFile) {
+		get(javaFile).release();
+	}
+
+	/**
+	 * Export a JSON report of all Java files of this cache which are rejected
+	 * in fail-fast mode, along with the first syntax error of each file.
+	 * Files which are not yet parsed are checked, without keeping their artifacts.
+	 */
+	public void exportRejectedFiles(String outDir) throws IOException {
+		if (!outDir.endsWith(File.separator))
+			outDir += File.separator;
+		File outDirFile = new File(outDir);
+		outDirFile.mkdirs();
+		String filepath = outDir + "rejected-files.json";
+		File[] files = getFiles();
+		List<File> rejected = new ArrayList<>();
+		for (File file: files) {
+			FileArtifacts fa = get(file);
+			boolean checked = fa.isChecked();
+			if (fa.getRejection() != null)
+				rejected.add(file);
+			if (!checked)
+				fa.release();
+		}
+		try (PrintWriter json = new PrintWriter(filepath, "UTF-8")) {
+			json.println("{");
+			json.println("  \"total\": " + files.length + ",");
+			json.println("  \"rejected\": [");
+			for (int i = 0; i < rejected.size(); ++i) {
+				SyntaxErrorException error = get(rejected.get(i)).getRejection();
+				json.println("    {");
+				json.println("      \"file\": " + StringUtils.toJsonString(rejected.get(i).getPath()) + ",");
+				json.println("      \"line\": " + error.getLine() + ",");
+				json.println("      \"column\": " + error.getColumn() + ",");
+				json.println("      \"error\": " + StringUtils.toJsonString(error.getMessage()));
+				if (i == rejected.size() - 1)
+					json.println("    }");
+				else
+					json.println("    },");
+			}
+			json.println("  ]\n}");
+		}
+		Logger.info(rejected.size() + " rejected files reported to: " + filepath);
+	}
+
+	/**
+	 * Returns the class-infos of the given Java file.
+	 */
+	public List<JavaClass> getClassInfos(File javaFile) throws IOException {
+		return get(javaFile).getClassInfos();
+	}
+
+	/**
+	 * Returns the control-flow graph of the given Java file.
+	 * The same CFG object is returned on each call; hence, contextual-properties
+	 * of different analyses are added to the same graph by 'addContextualProperties'.
+	 */
+	public ControlFlowGraph getCFG(File javaFile) throws IOException {
+		return get(javaFile).getCFG();
+	}
+
+	/**
+	 * Returns the exit points of each method of the CFG of the given Java file,
+	 * by the method entry; as recorded by the CFG builder.
+	 */
+	public Map<CFNode, List<CFNode>> getMethodExits(File javaFile) throws IOException {
+		return get(javaFile).getMethodExits();
+	}
+
+	/**
+	 * Add the given contextual-properties to the nodes of the CFG of the given Java file.
+	 * Returns the nodes which are given a property, in the order of 'ctxProps'.
+	 */
+	public List<CFNode> addContextualProperties(File javaFile, String propKey,
+			Map<ParserRuleContext, Object> ctxProps) throws IOException {
+		return get(javaFile).addContextualProperties(propKey, ctxProps);
+	}
+
+	/**
+	 * Returns the given contextual-properties by the nodes of the CFG of the given Java file,
+	 * in the order of 'ctxProps'; without adding them to the nodes.
+	 */
+	public <T> Map<CFNode, T> getNodeProperties(File javaFile, Map<ParserRuleContext, T> ctxProps) throws IOException {
+		return get(javaFile).getNodeProperties(ctxProps);
+	}
+
+	/**
+	 * Add an already parsed Java file to this cache.
+	 */
+	synchronized void put(File javaFile, ParseTree tree, CommonTokenStream tokens) {
+		FileArtifacts fa = new FileArtifacts(javaFile);
+		fa.parsed = true;
+		fa.checked = true;
+		fa.parseTree = tree;
+		fa.tokens = tokens;
+		artifacts.put(javaFile.getPath(), fa);
+	}
+
+	private synchronized FileArtifacts get(File javaFile) {
+		return artifacts.computeIfAbsent(javaFile.getPath(), path -> new FileArtifacts(javaFile));
+	}
+
+
+	/**
+	 * Holder of the cached artifacts of a single Java file.
+	 */
+	private class FileArtifacts {
+
+		private final File file;
+		private boolean parsed;
+		private boolean checked;
+		private CommonTokenStream tokens;
+		private ParseTree parseTree;
+		private int numSyntaxErrors;
+		private SyntaxErrorException rejection;
+		private List<JavaClass> classInfos;
+		private ControlFlowGraph cfg;
+		private Map<ParserRuleContext, CFNode> cfgNodes;
+		private Map<CFNode, List<CFNode>> methodExits;
+
+		FileArtifacts(File file) {
+			this.file = file;
+		}
+
+		synchronized boolean isParsed() {
+			return parsed || rejection != null;
+		}
+
+		synchronized boolean isChecked() {
+			return checked;
+		}
+
+		synchronized void parse() throws IOException {
+			// rejected files are never parsed again
+			if (parsed || rejection != null)
+				return;
+			parsed = true;
+			checked = true;
+			Logger.info("Parsing " + file.getPath());
+			if (failFast) {
+				tokens = JavaSourceParser.tokenize(file);
+				try {
+					parseTree = JavaSourceParser.parseFailFast(tokens);
+				} catch (SyntaxErrorException ex) {
+					tokens = null;
+					numSyntaxErrors = 1;
+					rejection = ex;
+					Logger.error("Rejected " + file.getPath() + ": line " + ex.getLine() + ":" +
+							ex.getColumn() + " " + ex.getMessage());
+				}
+				return;
+			}
+			var listener = new SyntaxErrorCountListener();
+			tokens = JavaSourceParser.tokenize(file, listener);
+			parseTree = JavaSourceParser.parse(tokens, listener);
+			// parser.getNumberOfSyntaxErrors() is insufficient for detecting syntax errors,
+			// since a tokenizing error causes no parsing errors in some case.
+			numSyntaxErrors = listener.getNumErrors();
+			if (numSyntaxErrors > 0)
+				Logger.error("Error on parsing " + file.getPath());
+		}
+
+		synchronized ParseTree getParseTree() throws IOException {
+			parse();
+			return parseTree;
+		}
+
+		synchronized CommonTokenStream getTokenStream() throws IOException {
+			parse();
+			return tokens;
+		}
+
+		synchronized int getNumSyntaxErrors() throws IOException {
+			if (!checked)
+				parse();
+			return numSyntaxErrors;
+		}
+
+		synchronized SyntaxErrorException getRejection() throws IOException {
+			if (!checked)
+				parse();
+			return rejection;
+		}
+
+		synchronized void release() {
+			parsed = false;
+			tokens = null;
+			parseTree = null;
+			classInfos = null;
+			cfg = null;
+			cfgNodes = null;
+			methodExits = null;
+		}
+
+		synchronized List<JavaClass> getClassInfos() throws IOException {
+			if (classInfos == null)
+				classInfos = JavaClassExtractor.extractInfo(file.getAbsolutePath(), getParseTree());
+			return classInfos;
+		}
+
+		synchronized ControlFlowGraph getCFG() throws IOException {
+			if (cfg == null) {
+				cfgNodes = new IdentityHashMap<>();
+				methodExits = new IdentityHashMap<>();
+				cfg = JavaCFGBuilder.build(file.getName(), getParseTree(), cfgNodes, methodExits);
+			}
+			return cfg;
+		}
+
+		synchronized Map<CFNode, List<CFNode>> getMethodExits() throws IOException {
+			getCFG();
+			return methodExits;
+		}
+
+		synchronized List<CFNode> addContextualProperties(String propKey,
+				Map<ParserRuleContext, Object> ctxProps) throws IOException {
+			getCFG();
+			return JavaCFGBuilder.addContextualProperties(cfgNodes, propKey, ctxProps);
+		}
+
+		synchronized <T> Map<CFNode, T> getNodeProperties(Map<ParserRuleContext, T> ctxProps) throws IOException {
+			getCFG();
+			return JavaCFGBuilder.getNodeProperties(cfgNodes, ctxProps);
+		}
+	}
+
+
+	/**
+	 * Error listener which only counts the number of reported syntax errors.
+	 */
+	private static class SyntaxErrorCountListener implements ANTLRErrorListener {
+		private int numErrors = 0;
+		@Override
+		public void syntaxError(Recognizer<?, ?> recognizer, Object o, int i, int i1, String s, RecognitionException e) {
+			Logger.debug("syntaxError found.");
+			numErrors += 1;
+		}
+
+		@Override
+		public void reportAmbiguity(Parser parser, DFA dfa, int i, int i1, boolean b, BitSet bitSet, ATNConfigSet atnConfigSet) {
+			// nop
+		}
+
+		@Override
+		public void reportAttemptingFullContext(Parser parser, DFA dfa, int i, int i1, BitSet bitSet, ATNConfigSet atnConfigSet) {
+			// nop
+		}
+
+		@Override
+		public void reportContextSensitivity(Parser parser, DFA dfa, int i, int i1, int i2, ATNConfigSet atnConfigSet) {
+			// nop
+		}
+
+		public int getNumErrors() {
+			return numErrors;
+		}
+	}
+}
@@ -3,21 +3,18 @@ package ghaffarian.progex.java;
 
 import ghaffarian.graphs.*;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.*;
 
-import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.misc.Interval;
 import org.antlr.v4.runtime.tree.ParseTree;
 import ghaffarian.progex.graphs.pdg.CDEdge;
 import ghaffarian.progex.graphs.pdg.ControlDependenceGraph;
+import ghaffarian.progex.graphs.pdg.DataDependenceGraph;
 import ghaffarian.progex.graphs.pdg.PDNode;
 import ghaffarian.progex.java.parser.JavaBaseVisitor;
-import ghaffarian.progex.java.parser.JavaLexer;
 import ghaffarian.progex.java.parser.JavaParser;
 import ghaffarian.nanologger.Logger;
 
@@ -33,19 +30,34 @@ public class JavaCDGBuilder {
 	public static ControlDependenceGraph build(File javaFile) throws IOException {
 		if (!javaFile.getName().endsWith(".java"))
 			throw new IOException("Not a Java File!");
-		InputStream inFile = new FileInputStream(javaFile);
-		ANTLRInputStream input = new ANTLRInputStream(inFile);
-		JavaLexer lexer = new JavaLexer(input);
-		CommonTokenStream tokens = new CommonTokenStream(lexer);
-		JavaParser parser = new JavaParser(tokens);
-		ParseTree tree = parser.compilationUnit();
+		CommonTokenStream tokens = JavaSourceParser.tokenize(javaFile);
+		ParseTree tree = JavaSourceParser.parse(tokens);
 		return build(tree, javaFile, tokens);
 	}
 
 	public static ControlDependenceGraph build(ParseTree tree, File javaFile, CommonTokenStream tokens) {
+		return build(tree, javaFile, tokens, null);
+	}
+
+	/**
+	 * Builds the CDG of the given parse-tree, reusing the PDNodes of the given DDG
+	 * (if not null) for statements of the same AST-nodes; so both subgraphs share 
+	 * a single node instance per statement.
+	 */
+	public static ControlDependenceGraph build(ParseTree tree, File javaFile, 
+			CommonTokenStream tokens, DataDependenceGraph ddg) {
 		Logger.debug("CTRL DEP ANALYSIS: " + javaFile.getPath());
 		ControlDependenceGraph cdg = new ControlDependenceGraph(javaFile, tokens);
-		ControlDependencyVisitor visitor = new ControlDependencyVisitor(cdg);
+		Map<List<ParserRuleContext>, PDNode> sharedNodes = new HashMap<>();
+		if (ddg != null) {
+			Iterator<PDNode> dataNodes = ddg.allVerticesIterator();
+			while (dataNodes.hasNext()) {
+				PDNode node = dataNodes.next();
+				if (!node.getASTNodeList().isEmpty())
+					sharedNodes.putIfAbsent(node.getASTNodeList(), node);
+			}
+		}
+		ControlDependencyVisitor visitor = new ControlDependencyVisitor(cdg, sharedNodes);
 		visitor.visit(tree);
 		return cdg;
 	}
@@ -54,6 +66,7 @@ public class JavaCDGBuilder {
 	private static class ControlDependencyVisitor extends JavaBaseVisitor<Void> {
 		
 		private ControlDependenceGraph cdg;
+		private Map<List<ParserRuleContext>, PDNode> sharedNodes;
 		private Deque<PDNode> ctrlDeps;
 		private Deque<PDNode> negDeps;
 		private Deque<Integer> jmpCounts;
@@ -64,8 +77,9 @@ public class JavaCDGBuilder {
 		private int regionCounter;
 		private int jmpCounter;
 
-		public ControlDependencyVisitor(ControlDependenceGraph cdg) {
+		public ControlDependencyVisitor(ControlDependenceGraph cdg, Map<List<ParserRuleContext>, PDNode> sharedNodes) {
 			this.cdg = cdg;
+			this.sharedNodes = sharedNodes;
 			ctrlDeps = new ArrayDeque<>();
 			negDeps = new ArrayDeque<>();
 			jumpDeps = new ArrayDeque<>();
@@ -89,9 +103,23 @@ public class JavaCDGBuilder {
 			jmpCounter = 0;
 		}
 
+		/**
+		 * Returns the shared PDNode of the given AST-nodes (if any);
+		 * otherwise creates a new PDNode for them.
+		 */
+		private PDNode newNode(ParserRuleContext... astNodes) {
+			List<ParserRuleContext> astNodeList = List.of(astNodes);
+			PDNode node = sharedNodes.get(astNodeList);
+			if (node == null) {
+				node = new PDNode();
+				node.setASTNodeList(astNodeList);
+			}
+			return node;
+		}
+
 		@Override
 		public Void visitClassDeclaration(JavaParser.ClassDeclarationContext ctx) {
-			ControlDependencyVisitor classVisitor = new ControlDependencyVisitor(cdg);
+			ControlDependencyVisitor classVisitor = new ControlDependencyVisitor(cdg, sharedNodes);
 			return classVisitor.visit(ctx.classBody());
 		}
 		
@@ -142,10 +170,9 @@ public class JavaCDGBuilder {
 			// Identifier formalParameters ('throws' qualifiedNameList)?  constructorBody
 			init();
 			//
-			PDNode entry = new PDNode();
+			PDNode entry = newNode(ctx.formalParameters());
 			entry.setLineOfCode(ctx.getStart().getLine());
 			entry.setCodeStr(ctx.Identifier().getText() + ' ' + getOriginalCodeText(ctx.formalParameters()));
-			entry.setASTNodeList(ctx.formalParameters());
 			entry.setProperty("name", ctx.Identifier().getText());
             entry.setProperty("entryPoint", true);
             cdg.addVertex(entry);
@@ -168,7 +195,7 @@ public class JavaCDGBuilder {
 			//     ('throws' qualifiedNameList)?  ( methodBody | ';' )
 			init();
 			//
-			PDNode entry = new PDNode();
+			PDNode entry = newNode(ctx.formalParameters());
 			entry.setLineOfCode(ctx.getStart().getLine());
 			String retType;
 			if (ctx.typeType() == null)
@@ -177,7 +204,6 @@ public class JavaCDGBuilder {
 				retType = getOriginalCodeText(ctx.typeType());
 			String args = getOriginalCodeText(ctx.formalParameters());
 			entry.setCodeStr(retType + " " + ctx.Identifier() + args);
-			entry.setASTNodeList(ctx.formalParameters()); //entry.setASTNodeList(ctx.typeType(), ctx.formalParameters());
 			entry.setProperty("name", ctx.Identifier().getText());
 			entry.setProperty("type", retType);
             entry.setProperty("entryPoint", true);
@@ -198,10 +224,9 @@ public class JavaCDGBuilder {
 		@Override
 		public Void visitStatementExpression(JavaParser.StatementExpressionContext ctx) {
 			// statementExpression ';'
-			PDNode expr = new PDNode();
+			PDNode expr = newNode(ctx);
 			expr.setLineOfCode(ctx.getStart().getLine());
 			expr.setCodeStr(getOriginalCodeText(ctx));
-			expr.setASTNodeList(ctx);
 			Logger.debug(expr.getLineOfCode() + ": " + expr.getCodeStr());
 			addNodeEdge(expr);
 			return null;
@@ -210,10 +235,9 @@ public class JavaCDGBuilder {
 		@Override
 		public Void visitLocalVariableDeclaration(JavaParser.LocalVariableDeclarationContext ctx) {
 			// localVariableDeclaration :  variableModifier* typeType variableDeclarators
-			PDNode varDec = new PDNode();
+			PDNode varDec = newNode(ctx);
 			varDec.setLineOfCode(ctx.getStart().getLine());
 			varDec.setCodeStr(getOriginalCodeText(ctx));
-			varDec.setASTNodeList(ctx);
 			addNodeEdge(varDec);
 			return null;
 		}
@@ -221,10 +245,9 @@ public class JavaCDGBuilder {
 		@Override
 		public Void visitIfStatement(JavaParser.IfStatementContext ctx) {
 			// 'if' parExpression statement ('else' statement)?
-			PDNode ifNode = new PDNode();
+			PDNode ifNode = newNode(ctx.parExpression());
 			ifNode.setLineOfCode(ctx.getStart().getLine());
 			ifNode.setCodeStr("if " + getOriginalCodeText(ctx.parExpression()));
-			ifNode.setASTNodeList(ctx.parExpression());
 			addNodeEdge(ifNode);
 			//
 			PDNode thenRegion = new PDNode();
@@ -270,10 +293,9 @@ public class JavaCDGBuilder {
 				// This is a for-each loop;
 				//   enhancedForControl: 
 				//     variableModifier* typeType variableDeclaratorId ':' expression
-				PDNode forExpr = new PDNode();
+				PDNode forExpr = newNode(ctx.forControl());
 				forExpr.setLineOfCode(ctx.forControl().getStart().getLine());
 				forExpr.setCodeStr("for (" + getOriginalCodeText(ctx.forControl()) + ")");
-				forExpr.setASTNodeList(ctx.forControl());
 				addNodeEdge(forExpr);
 				//
 				PDNode loopRegion = new PDNode();
@@ -291,26 +313,24 @@ public class JavaCDGBuilder {
 				PDNode forInit;
 				PDNode forExpr, forUpdate;
 				if (ctx.forControl().forInit() != null) { // non-empty init
-					forInit = new PDNode();
+					forInit = newNode(ctx.forControl().forInit());
 					forInit.setLineOfCode(ctx.forControl().forInit().getStart().getLine());
 					forInit.setCodeStr(getOriginalCodeText(ctx.forControl().forInit()));
-					forInit.setASTNodeList(ctx.forControl().forInit());
 					addNodeEdge(forInit);
 				}
 				int forExprLine;
-				forExpr = new PDNode();
 				String forExprCode;
 				if (ctx.forControl().expression() == null) { // empty for-loop-predicate
+					forExpr = new PDNode();
 					forExprCode = ";";
 					forExprLine = ctx.getStart().getLine();
 				} else {
+					forExpr = newNode(ctx.forControl().expression());
 					forExprCode = getOriginalCodeText(ctx.forControl().expression());
 					forExprLine = ctx.forControl().expression().getStart().getLine();
-					forExpr.setASTNodeList(ctx.forControl().expression());
 				}
 				forExpr.setLineOfCode(forExprLine);
 				forExpr.setCodeStr("for (" + forExprCode + ")");
-				// setASTNodeList is called at the previous block.
 				addNodeEdge(forExpr);
 				//
 				PDNode loopRegion = new PDNode();
@@ -322,10 +342,9 @@ public class JavaCDGBuilder {
 				pushLoopBlockDep(loopRegion);
 				visit(ctx.statement());
 				if (ctx.forControl().forUpdate() != null) { // non-empty for-update
-					forUpdate = new PDNode();
+					forUpdate = newNode(ctx.forControl().forUpdate());
 					forUpdate.setLineOfCode(ctx.forControl().forUpdate().getStart().getLine());
 					forUpdate.setCodeStr(getOriginalCodeText(ctx.forControl().forUpdate()));
-					forUpdate.setASTNodeList(ctx.forControl().forUpdate());
 					// we don't use 'addNodeEdge(forUpdate)' because the behavior of for-update
 					// step is different from other statements with regards to break/continue.
 					cdg.addVertex(forUpdate);
@@ -339,10 +358,9 @@ public class JavaCDGBuilder {
 		@Override
 		public Void visitWhileStatement(JavaParser.WhileStatementContext ctx) {
 			// 'while' parExpression statement
-			PDNode whileNode = new PDNode();
+			PDNode whileNode = newNode(ctx.parExpression());
 			whileNode.setLineOfCode(ctx.getStart().getLine());
 			whileNode.setCodeStr("while " + getOriginalCodeText(ctx.parExpression()));
-			whileNode.setASTNodeList(ctx.parExpression());
 			addNodeEdge(whileNode);
 			//
 			PDNode loopRegion = new PDNode();
@@ -368,10 +386,9 @@ public class JavaCDGBuilder {
 			pushLoopBlockDep(doRegion);
 			visit(ctx.statement());
 			// the while-node is treated as the last statement of the loop
-			PDNode whileNode = new PDNode();
+			PDNode whileNode = newNode(ctx.parExpression());
 			whileNode.setLineOfCode(ctx.parExpression().getStart().getLine());
 			whileNode.setCodeStr("while " + getOriginalCodeText(ctx.parExpression()));
-			whileNode.setASTNodeList(ctx.parExpression());
 			addNodeEdge(whileNode);
 			//
 			popLoopBlockDep(doRegion);
@@ -384,10 +401,9 @@ public class JavaCDGBuilder {
 		@Override
 		public Void visitSwitchStatement(JavaParser.SwitchStatementContext ctx) {
 			// 'switch' parExpression '{' switchBlockStatementGroup* switchLabel* '}'
-			PDNode switchNode = new PDNode();
+			PDNode switchNode = newNode(ctx.parExpression());
 			switchNode.setLineOfCode(ctx.getStart().getLine());
 			switchNode.setCodeStr("switch " + getOriginalCodeText(ctx.parExpression()));
-			switchNode.setASTNodeList(ctx.parExpression());
 			addNodeEdge(switchNode);
 			//
 			pushLoopBlockDep(switchNode);
@@ -407,10 +423,9 @@ public class JavaCDGBuilder {
 										   List<JavaParser.BlockStatementContext> block) {
 			//  switchLabel :  'case' constantExpression ':'  |  'case' enumConstantName ':'  |  'default' ':'
 			if (cases.size() == 1 && cases.get(0).getText().startsWith("default")) { // TODO fix inaccurate condition
-				PDNode defaultStmnt = new PDNode();
+				PDNode defaultStmnt = newNode(cases.get(0));
 				defaultStmnt.setLineOfCode(cases.get(0).getStart().getLine());
 				defaultStmnt.setCodeStr(getOriginalCodeText(cases.get(0)));
-				defaultStmnt.setASTNodeList(cases.get(0));
 				addNodeEdge(defaultStmnt);
 				if (block != null) {
 					negDeps.push(defaultStmnt);
@@ -419,10 +434,9 @@ public class JavaCDGBuilder {
 					negDeps.pop();
 				}
 			} else if (cases.size() > 0) {
-				PDNode lastCase =  new PDNode();
+				PDNode lastCase = newNode(cases.get(0));
 				lastCase.setLineOfCode(cases.get(0).getStart().getLine());
 				lastCase.setCodeStr(getOriginalCodeText(cases.get(0)));
-				lastCase.setASTNodeList(cases.get(0));
 				addNodeEdge(lastCase);
 				//
 				PDNode thenRegion = null;
@@ -435,10 +449,9 @@ public class JavaCDGBuilder {
 				}
 				//
 				for (JavaParser.SwitchLabelContext ctx : cases.subList(1, cases.size())) {
-					PDNode nextCase = new PDNode();
+					PDNode nextCase = newNode(ctx);
 					nextCase.setLineOfCode(ctx.getStart().getLine());
 					nextCase.setCodeStr(getOriginalCodeText(ctx));
-					nextCase.setASTNodeList(ctx);
 					cdg.addVertex(nextCase);
 					cdg.addEdge(new Edge<>(lastCase, new CDEdge(CDEdge.Type.FALSE), nextCase));
 					cdg.addEdge(new Edge<>(nextCase, new CDEdge(CDEdge.Type.TRUE), thenRegion));
@@ -487,10 +500,9 @@ public class JavaCDGBuilder {
 		@Override
 		public Void visitSynchBlockStatement(JavaParser.SynchBlockStatementContext ctx) {
 			// 'synchronized' parExpression block
-			PDNode syncRegion = new PDNode();
+			PDNode syncRegion = newNode(ctx.parExpression());
 			syncRegion.setLineOfCode(ctx.getStart().getLine());
 			syncRegion.setCodeStr("synchronized " + getOriginalCodeText(ctx.parExpression()));
-			syncRegion.setASTNodeList(ctx.parExpression());
 			addNodeEdge(syncRegion);
 			pushCtrlDep(syncRegion);
 			visit(ctx.block());
@@ -501,10 +513,9 @@ public class JavaCDGBuilder {
 		@Override
 		public Void visitBreakStatement(JavaParser.BreakStatementContext ctx) {
 			// 'break' Identifier? ';'
-			PDNode brk = new PDNode();
+			PDNode brk = newNode(ctx);
 			brk.setLineOfCode(ctx.getStart().getLine());
 			brk.setCodeStr(getOriginalCodeText(ctx));
-			brk.setASTNodeList(ctx);
 			addNodeEdge(brk);
 			//
 			// Check for the special case of a 'break' inside a 'default' switch-block:
@@ -527,10 +538,9 @@ public class JavaCDGBuilder {
 		@Override
 		public Void visitContinueStatement(JavaParser.ContinueStatementContext ctx) {
 			// 'continue' Identifier? ';'
-			PDNode cnt = new PDNode();
+			PDNode cnt = newNode(ctx);
 			cnt.setLineOfCode(ctx.getStart().getLine());
 			cnt.setCodeStr(getOriginalCodeText(ctx));
-			cnt.setASTNodeList(ctx);
 			addNodeEdge(cnt);
 			// NOTE: an important assumption here is that 'continue' 
 			//       is the last statement inside an if-else body
@@ -547,10 +557,9 @@ public class JavaCDGBuilder {
 		@Override
 		public Void visitReturnStatement(JavaParser.ReturnStatementContext ctx) {
 			// 'return' expression? ';'
-			PDNode ret = new PDNode();
+			PDNode ret = newNode(ctx);
 			ret.setLineOfCode(ctx.getStart().getLine());
 			ret.setCodeStr(getOriginalCodeText(ctx));
-			ret.setASTNodeList(ctx);
 			addNodeEdge(ret);
 			// NOTE: an important assumption here is that 'return' 
 			//       is the last statement inside an if-else body
@@ -568,10 +577,9 @@ public class JavaCDGBuilder {
 		@Override
 		public Void visitThrowStatement(JavaParser.ThrowStatementContext ctx) {
 			// 'throw' expression ';'
-			PDNode thr = new PDNode();
+			PDNode thr = newNode(ctx);
 			thr.setLineOfCode(ctx.getStart().getLine());
 			thr.setCodeStr(getOriginalCodeText(ctx));
-			thr.setASTNodeList(ctx);
 			addNodeEdge(thr);
 			// NOTE: an important assumption here is that 'throw' 
 			//       is the last statement inside an if-else body,
@@ -603,10 +611,9 @@ public class JavaCDGBuilder {
 				// 'catch' '(' variableModifier* catchType Identifier ')' block
 				PDNode catchNode;
 				for (JavaParser.CatchClauseContext cx : ctx.catchClause()) {
-					catchNode = new PDNode();
+					catchNode = newNode(cx.catchType());
 					catchNode.setLineOfCode(cx.getStart().getLine());
 					catchNode.setCodeStr("catch (" + cx.catchType().getText() + " " + cx.Identifier().getText() + ")");
-					catchNode.setASTNodeList(cx.catchType());
 					catchNode.setProperty("name", cx.Identifier().getText());
 					cdg.addVertex(catchNode);
 					cdg.addEdge(new Edge<>(tryRegion, new CDEdge(CDEdge.Type.THROWS), catchNode));
@@ -648,10 +655,9 @@ public class JavaCDGBuilder {
 			//
 			// Iterate over all resources ...
 			for (JavaParser.ResourceContext rsrc: ctx.resourceSpecification().resources().resource()) {
-				PDNode resource = new PDNode();
+				PDNode resource = newNode(rsrc);
 				resource.setLineOfCode(rsrc.getStart().getLine());
 				resource.setCodeStr(getOriginalCodeText(rsrc));
-				resource.setASTNodeList(rsrc);
 				addNodeEdge(resource);
 			}
 			//
@@ -661,10 +667,9 @@ public class JavaCDGBuilder {
 				// 'catch' '(' variableModifier* catchType Identifier ')' block
 				PDNode catchNode;
 				for (JavaParser.CatchClauseContext cx : ctx.catchClause()) {
-					catchNode = new PDNode();
+					catchNode = newNode(cx.catchType());
 					catchNode.setLineOfCode(cx.getStart().getLine());
 					catchNode.setCodeStr("catch (" + cx.catchType().getText() + " " + cx.Identifier().getText() + ")");
-					catchNode.setASTNodeList(cx.catchType());
 					catchNode.setProperty("name", cx.Identifier().getText());
 					cdg.addVertex(catchNode);
 					cdg.addEdge(new Edge<>(tryRegion, new CDEdge(CDEdge.Type.THROWS), catchNode));
@@ -3,17 +3,14 @@ package ghaffarian.progex.java;
 
 import ghaffarian.graphs.*;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.misc.Interval;
 import org.antlr.v4.runtime.tree.ParseTree;
@@ -21,7 +18,6 @@ import ghaffarian.progex.graphs.cfg.CFEdge;
 import ghaffarian.progex.graphs.cfg.CFNode;
 import ghaffarian.progex.graphs.cfg.ControlFlowGraph;
 import ghaffarian.progex.java.parser.JavaBaseVisitor;
-import ghaffarian.progex.java.parser.JavaLexer;
 import ghaffarian.progex.java.parser.JavaParser;
 import ghaffarian.nanologger.Logger;
 
@@ -47,13 +43,16 @@ public class JavaCFGBuilder {
 	public static ControlFlowGraph build(File javaFile) throws IOException {
 		if (!javaFile.getName().endsWith(".java"))
 			throw new IOException("Not a Java File!");
-		InputStream inFile = new FileInputStream(javaFile);
-		ANTLRInputStream input = new ANTLRInputStream(inFile);
-		JavaLexer lexer = new JavaLexer(input);
-		CommonTokenStream tokens = new CommonTokenStream(lexer);
-		JavaParser parser = new JavaParser(tokens);
-		ParseTree tree = parser.compilationUnit();
-		return build(javaFile.getName(), tree, null, null);
+		ParseTree tree = JavaSourceParser.parse(javaFile);
+		return build(javaFile.getName(), tree, (String) null, null);
+	}
+	
+	/**
+	 * ‌Build and return the Control Flow Graph (CFG) for the given Java source file.
+	 * The CFG is taken from (and kept in) the given artifact-cache.
+	 */
+	public static ControlFlowGraph build(File javaFile, JavaArtifactCache artifacts) throws IOException {
+		return artifacts.getCFG(javaFile);
 	}
 	
 	/**
@@ -65,11 +64,70 @@ public class JavaCFGBuilder {
 	public static ControlFlowGraph build(String javaFileName, ParseTree tree, 
 			String propKey, Map<ParserRuleContext, Object> ctxProps) {
 		ControlFlowGraph cfg = new ControlFlowGraph(javaFileName);
-		ControlFlowVisitor visitor = new ControlFlowVisitor(cfg, propKey, ctxProps);
+		ControlFlowVisitor visitor = new ControlFlowVisitor(cfg, propKey, ctxProps, null, null);
+		visitor.visit(tree);
+		return cfg;
+	}
+	
+	/**
+	 * ‌Build and return the Control Flow Graph (CFG) for the given Parse-Tree.
+	 * The CFG node of each context which can hold a contextual-property 
+	 * is recorded in the given 'ctxNodes' map; so that contextual-properties 
+	 * can be added later on, using the 'addContextualProperties' method.
+	 */
+	public static ControlFlowGraph build(String javaFileName, ParseTree tree, 
+			Map<ParserRuleContext, CFNode> ctxNodes) {
+		return build(javaFileName, tree, ctxNodes, null);
+	}
+	
+	/**
+	 * ‌Build and return the Control Flow Graph (CFG) for the given Parse-Tree.
+	 * The CFG node of each context which can hold a contextual-property 
+	 * is recorded in the given 'ctxNodes' map; and if 'methodExits' is given, 
+	 * the exit points of each method (i.e. its return and uncaught throw nodes, 
+	 * and the node which falls off its end) are recorded by the method entry.
+	 */
+	public static ControlFlowGraph build(String javaFileName, ParseTree tree, 
+			Map<ParserRuleContext, CFNode> ctxNodes, Map<CFNode, List<CFNode>> methodExits) {
+		ControlFlowGraph cfg = new ControlFlowGraph(javaFileName);
+		ControlFlowVisitor visitor = new ControlFlowVisitor(cfg, null, null, ctxNodes, methodExits);
 		visitor.visit(tree);
 		return cfg;
 	}
 	
+	/**
+	 * Add the given contextual-properties to the CFG nodes recorded in 'ctxNodes'.
+	 * The result is the same as building the CFG using the same contextual-properties.
+	 * Returns the nodes which are given a property, in the order of 'ctxProps'.
+	 */
+	public static List<CFNode> addContextualProperties(Map<ParserRuleContext, CFNode> ctxNodes,
+			String propKey, Map<ParserRuleContext, Object> ctxProps) {
+		List<CFNode> nodes = new ArrayList<>();
+		for (Map.Entry<ParserRuleContext, Object> entry: ctxProps.entrySet()) {
+			CFNode node = ctxNodes.get(entry.getKey());
+			if (node != null && entry.getValue() != null) {
+				node.setProperty(propKey, entry.getValue());
+				nodes.add(node);
+			}
+		}
+		return nodes;
+	}
+	
+	/**
+	 * Returns the given contextual-properties by the CFG nodes recorded in 'ctxNodes',
+	 * in the order of 'ctxProps'; without adding them to the nodes.
+	 */
+	public static <T> Map<CFNode, T> getNodeProperties(Map<ParserRuleContext, CFNode> ctxNodes,
+			Map<ParserRuleContext, T> ctxProps) {
+		Map<CFNode, T> nodeProps = new LinkedHashMap<>();
+		for (Map.Entry<ParserRuleContext, T> entry: ctxProps.entrySet()) {
+			CFNode node = ctxNodes.get(entry.getKey());
+			if (node != null && entry.getValue() != null)
+				nodeProps.put(node, entry.getValue());
+		}
+		return nodeProps;
+	}
+	
 	/**
 	 * Visitor-class which constructs the CFG by walking the parse-tree.
 	 */
@@ -85,9 +143,13 @@ public class JavaCFGBuilder {
 		private boolean dontPop;
 		private String propKey;
 		private Map<ParserRuleContext, Object> contexutalProperties;
+		private Map<ParserRuleContext, CFNode> contextNodes;
+		private Map<CFNode, List<CFNode>> methodExits;
+		private List<CFNode> exits;
 		private Deque<String> classNames;
 
-		public ControlFlowVisitor(ControlFlowGraph cfg, String propKey, Map<ParserRuleContext, Object> ctxProps) {
+		public ControlFlowVisitor(ControlFlowGraph cfg, String propKey, Map<ParserRuleContext, Object> ctxProps, 
+				Map<ParserRuleContext, CFNode> ctxNodes, Map<CFNode, List<CFNode>> methodExits) {
 			preNodes = new ArrayDeque<>();
 			preEdges = new ArrayDeque<>();
 			loopBlocks = new ArrayDeque<>();
@@ -100,6 +162,8 @@ public class JavaCFGBuilder {
 			//
 			this.propKey = propKey;
 			contexutalProperties = ctxProps;
+			contextNodes = ctxNodes;
+			this.methodExits = methodExits;
 		}
 
 		/**
@@ -112,14 +176,18 @@ public class JavaCFGBuilder {
 			labeledBlocks.clear();
 			tryBlocks.clear();
 			dontPop = false;
+			exits = methodExits == null ? null : new ArrayList<>();
 		}
 		
 		/**
 		 * Add contextual properties to the given node.
 		 * This will first check to see if there is any property for the 
 		 * given context, and if so, the property will be added to the node.
+		 * The node of the given context is also recorded, if requested.
 		 */
 		private void addContextualProperty(CFNode node, ParserRuleContext ctx) {
+			if (contextNodes != null)
+				contextNodes.put(ctx, node);
 			if (propKey != null && contexutalProperties != null) {
 				Object prop = contexutalProperties.get(ctx);
 				if (prop != null)
@@ -139,7 +207,8 @@ public class JavaCFGBuilder {
 			// classDeclaration 
 			//   :  'class' Identifier typeParameters? 
 			//      ('extends' typeType)? ('implements' typeList)? classBody
-			ControlFlowVisitor classVisitor = new ControlFlowVisitor(this.cfg, this.propKey, this.contexutalProperties);
+			ControlFlowVisitor classVisitor = new ControlFlowVisitor(this.cfg, this.propKey, this.contexutalProperties, 
+					this.contextNodes, this.methodExits);
 			classVisitor.classNames.push(ctx.Identifier().getText());
 			classVisitor.visit(ctx.classBody());
 			return null;
@@ -180,6 +249,9 @@ public class JavaCFGBuilder {
 				//
 				preNodes.push(block);
 				preEdges.push(CFEdge.Type.EPSILON);
+				visitChildren(ctx);
+				recordExits(block);
+				return null;
 			}
 			return visitChildren(ctx);
 		}
@@ -213,7 +285,9 @@ public class JavaCFGBuilder {
 			//
 			preNodes.push(entry);
 			preEdges.push(CFEdge.Type.EPSILON);
-			return visitChildren(ctx);
+			visitChildren(ctx);
+			recordExits(entry);
+			return null;
 		}
 
 		@Override
@@ -240,7 +314,9 @@ public class JavaCFGBuilder {
 			//
 			preNodes.push(entry);
 			preEdges.push(CFEdge.Type.EPSILON);
-			return visitChildren(ctx);
+			visitChildren(ctx);
+			recordExits(entry);
+			return null;
 		}
 
 		@Override
@@ -553,6 +629,8 @@ public class JavaCFGBuilder {
 			ret.setCode(getOriginalCodeText(ctx));
 			addContextualProperty(ret, ctx);
 			addNodeAndPreEdge(ret);
+			if (exits != null)
+				exits.add(ret);
 			dontPop = true;
 			return null;
 		}
@@ -847,6 +925,8 @@ public class JavaCFGBuilder {
 				// in such a situation, the method declaration has a throws clause;
 				// so we should create a special node for the method-throws, 
 				// and create an edge from this throw-statement to that throws-node.
+				if (exits != null)
+					exits.add(throwNode);
 			}
 			dontPop = true;
 			return null;
@@ -859,6 +939,25 @@ public class JavaCFGBuilder {
 			return cfg;
 		}
 
+		/**
+		 * Record the exit points of the method of the given entry, if requested;
+		 * i.e. the return and uncaught throw nodes collected during the visit, 
+		 * and the last node of the method if it falls off the end.
+		 * The last node is not an exit if it already has a successor (e.g. the end-try 
+		 * of a try-catch at the end), or it is not reachable (e.g. the endif of an 
+		 * if-else whose branches both exit) which is the case if it has no incoming edge.
+		 */
+		private void recordExits(CFNode entry) {
+			if (methodExits == null)
+				return;
+			if (!dontPop && !preNodes.isEmpty()) {
+				CFNode last = preNodes.peek();
+				if (cfg.getOutDegree(last) == 0 && (last == entry || cfg.getInDegree(last) > 0))
+					exits.add(last);
+			}
+			methodExits.put(entry, exits);
+		}
+
 		/**
 		 * Add this node to the CFG and create edge from pre-node to this node.
 		 */
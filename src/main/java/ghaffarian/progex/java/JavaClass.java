@@ -3,6 +3,7 @@ package ghaffarian.progex.java;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Objects;
 
 /**
@@ -20,6 +21,7 @@ public class JavaClass {
 	private String typeParameters;
 	private String[] implementations;
 	private ArrayList<JavaField> fields;
+	private HashMap<String, JavaField> fieldsByName;
 	private ArrayList<JavaMethod> methods;
 	
 	public JavaClass(String name, String pkg, String extend, String filePath, String[] imports) {
@@ -30,6 +32,7 @@ public class JavaClass {
 		IMPORTS = imports;
 		implementations = null;
 		fields = new ArrayList<>();
+		fieldsByName = new HashMap<>();
 		methods = new ArrayList<>();
 	}
 	
@@ -43,13 +46,18 @@ public class JavaClass {
 	
 	public void addField(JavaField field) {
 		fields.add(field);
+		fieldsByName.putIfAbsent(field.NAME, field);
 	}
 	
 	public boolean hasField(String name) {
-		for (JavaField fld: fields)
-			if (fld.NAME.equals(name))
-				return true;
-		return false;
+		return fieldsByName.containsKey(name);
+	}
+	
+	/**
+	 * Returns the (first) field with the given name, or null if there is no such field.
+	 */
+	public JavaField getField(String name) {
+		return fieldsByName.get(name);
 	}
 	
 	public JavaField[] getAllFields() {
@@ -2,21 +2,19 @@
 package ghaffarian.progex.java;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
-import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 import ghaffarian.progex.java.parser.JavaBaseVisitor;
-import ghaffarian.progex.java.parser.JavaLexer;
 import ghaffarian.progex.java.parser.JavaParser;
 
 /**
@@ -26,20 +24,28 @@ import ghaffarian.progex.java.parser.JavaParser;
  */
 public class JavaClassExtractor {
 	
+	private static final String LIBRARY_ZIP = "lib/src.zip";
+	private static final int LIBRARY_CACHE_CAPACITY = 2048;
+	
+	// Bounded LRU cache of the class-infos of library entries
+	private static final Map<String, LibraryEntry> libraryCache = 
+			new LinkedHashMap<String, LibraryEntry>(256, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, LibraryEntry> eldest) {
+					return size() > LIBRARY_CACHE_CAPACITY;
+				}
+			};
+	
 	public static List<JavaClass> extractInfo(String javaFile) throws IOException {
 		return extractInfo(new File(javaFile));
 	}
 	
 	public static List<JavaClass> extractInfo(File javaFile) throws IOException {
-		return extractInfo(javaFile.getAbsolutePath(), new FileInputStream(javaFile));
+		return extractInfo(javaFile.getAbsolutePath(), JavaSourceParser.parse(javaFile));
 	}
 	
 	public static List<JavaClass> extractInfo(String javaFilePath, InputStream inStream) throws IOException {
-		ANTLRInputStream input = new ANTLRInputStream(inStream);
-		JavaLexer lexer = new JavaLexer(input);
-		CommonTokenStream tokens = new CommonTokenStream(lexer);
-		JavaParser parser = new JavaParser(tokens);
-		ParseTree tree = parser.compilationUnit();
+		ParseTree tree = JavaSourceParser.parse(inStream);
 		return extractInfo(javaFilePath, tree);
 	}
 	
@@ -48,60 +54,116 @@ public class JavaClassExtractor {
 		return visitor.build(tree);
 	}
 	
+	/**
+	 * Extract the interface declarations of the given parse-tree, as JavaClass structures.
+	 * The EXTENDS of an interface is null, and its super-interfaces are given as interfaces.
+	 */
+	public static List<JavaClass> extractInterfacesInfo(String javaFilePath, ParseTree tree) {
+		JavaInterfaceVisitor visitor = new JavaInterfaceVisitor(javaFilePath);
+		return visitor.build(tree);
+	}
+	
+	/**
+	 * Returns the class-infos of the 'java.lang' package of the Java library.
+	 * The returned class-infos are shared, and must not be modified.
+	 */
 	public static List<JavaClass> extractJavaLangInfo() throws IOException {
-		ZipFile zip = new ZipFile("lib/src.zip");
-		ArrayList<JavaClass> javaLangClasses = new ArrayList<>();
-		String qualifiedName = "java.lang.*";
-		for (ZipEntry ent: getPackageEntries(zip, qualifiedName))
-			javaLangClasses.addAll(JavaClassExtractor.extractInfo("src.zip/" + ent.getName(), zip.getInputStream(ent)));
-		return javaLangClasses;
+		return extractImportsInfo(new String[] {"java.lang.*"});
 	}
 	
+	/**
+	 * Returns the class-infos of the given imports from the Java library.
+	 * Each library entry is extracted at most once, and kept in a bounded cache;
+	 * hence, the returned class-infos are shared, and must not be modified.
+	 */
 	public static List<JavaClass> extractImportsInfo(String[] imports) throws IOException {
-		ZipFile zip = new ZipFile("lib/src.zip");
+		return extractImportsInfo(LIBRARY_ZIP, imports);
+	}
+	
+	/**
+	 * Returns the class-infos of the given imports from the given source archive of the Java library.
+	 * Each library entry is extracted at most once, and kept in a bounded cache;
+	 * hence, the returned class-infos are shared, and must not be modified.
+	 */
+	public static List<JavaClass> extractImportsInfo(String zipPath, String[] imports) throws IOException {
+		JavaLibraryIndex index = JavaLibraryIndex.forArchive(zipPath);
+		if (index != null)
+			return extractImportsInfo(zipPath, imports, index);
+		ArrayList<JavaClass> classes = new ArrayList<>();
+		try (ZipFile zip = new ZipFile(zipPath)) {
+			for (String qualifiedName: imports) {
+				if (qualifiedName.endsWith(".*")) {
+					for (ZipEntry ent: JavaPackageIndex.getPackageEntries(zip, qualifiedName))
+						classes.addAll(getLibraryClasses(zipPath, ent.getName(), 
+								() -> extractInfo("src.zip/" + ent.getName(), zip.getInputStream(ent))));
+				} else {
+					ZipEntry entry = getZipEntry(zip, qualifiedName);
+					if (entry == null)
+						continue;
+					classes.addAll(getLibraryClasses(zipPath, entry.getName(), 
+							() -> extractInfo("src.zip/" + entry.getName(), zip.getInputStream(entry))));
+				}
+			}
+		}
+		return classes;
+	}
+	
+	/**
+	 * Extract the class-infos of the given imports from the given library index.
+	 */
+	private static List<JavaClass> extractImportsInfo(String zipPath, String[] imports, JavaLibraryIndex index) 
+			throws IOException {
 		ArrayList<JavaClass> classes = new ArrayList<>();
 		for (String qualifiedName: imports) {
 			if (qualifiedName.endsWith(".*")) {
-				for (ZipEntry ent: getPackageEntries(zip, qualifiedName))
-					classes.addAll(JavaClassExtractor.extractInfo("src.zip/" + ent.getName(), zip.getInputStream(ent)));
+				for (String entry: index.getPackageEntries(qualifiedName))
+					classes.addAll(getLibraryClasses(zipPath, entry, () -> index.getClasses(entry)));
 			} else {
-				ZipEntry entry = getZipEntry(zip, qualifiedName);
-				if (entry == null)
-					continue;
-				classes.addAll(JavaClassExtractor.extractInfo("src.zip/" + entry.getName(), zip.getInputStream(entry)));
+				String entry = qualifiedName.replace('.', '/') + ".java";
+				classes.addAll(getLibraryClasses(zipPath, entry, () -> index.getClasses(entry)));
 			}
 		}
 		return classes;
 	}
 	
+	/**
+	 * Returns the cached class-infos of the given library entry;
+	 * the given extractor is only used if the entry is not cached.
+	 */
+	private static List<JavaClass> getLibraryClasses(String zipPath, String entryName, LibraryExtractor extractor) 
+			throws IOException {
+		LibraryEntry entry;
+		synchronized (libraryCache) {
+			entry = libraryCache.computeIfAbsent(zipPath + '!' + entryName, key -> new LibraryEntry());
+		}
+		return entry.getClasses(extractor);
+	}
+	
 	private static ZipEntry getZipEntry(ZipFile zip, String qualifiedName) {
 		// qualifiedName does not end with ".*"
 		return zip.getEntry(qualifiedName.replace('.', '/') + ".java");
 	}
 	
-	private static ZipEntry[] getPackageEntries(ZipFile zip, String qualifiedName) {
-		// qualifiedName ends with ".*"
-		String pkg = qualifiedName.replace('.', '/').substring(0, qualifiedName.length() - 1);
-		int slashCount = countSlashes(pkg);
-		ArrayList<ZipEntry> entries = new ArrayList<>();
-		Enumeration<? extends ZipEntry> zipEntries = zip.entries();
-		while (zipEntries.hasMoreElements()) {
-			ZipEntry entry = zipEntries.nextElement();
-			if (entry.getName().startsWith(pkg) 
-					&& !entry.isDirectory()
-					&& slashCount == countSlashes(entry.getName())) {
-				entries.add(entry);
-			}
-		}
-		return entries.toArray(new ZipEntry[entries.size()]);
+	/**
+	 * Extractor of the class-infos of a single library entry.
+	 */
+	private interface LibraryExtractor {
+		List<JavaClass> extract() throws IOException;
 	}
 	
-	private static int countSlashes(String str) {
-		int slashCount = 0;
-		for (char chr: str.toCharArray())
-			if (chr == '/')
-				++slashCount;
-		return slashCount;
+	/**
+	 * Holder of the class-infos of a single library entry,
+	 * which are extracted at most once, even if requested concurrently.
+	 */
+	private static class LibraryEntry {
+		
+		private List<JavaClass> classes;
+		
+		synchronized List<JavaClass> getClasses(LibraryExtractor extractor) throws IOException {
+			if (classes == null)
+				classes = Collections.unmodifiableList(extractor.extract());
+			return classes;
+		}
 	}
 	
 	private static class JavaClassVisitor extends JavaBaseVisitor<String> {
@@ -354,4 +416,109 @@ public class JavaClassExtractor {
 			return null;
 		}
 	}
+
+	/**
+	 * Visitor which only extracts the interface declarations, 
+	 * along with their method declarations.
+	 */
+	private static class JavaInterfaceVisitor extends JavaBaseVisitor<String> {
+		
+		private String filePath;
+		private String packageName;
+		private List<String> importsList;
+		private List<JavaClass> interfaces;
+		private Deque<JavaClass> activeInterfaces;
+		
+		public JavaInterfaceVisitor(String path) {
+			filePath = path;
+		}
+		
+		public List<JavaClass> build(ParseTree tree) {
+			packageName = "";
+			interfaces = new ArrayList<>();
+			importsList = new ArrayList<>();
+			activeInterfaces = new ArrayDeque<>();
+			visit(tree);
+			return interfaces;
+		}
+		
+		@Override
+		public String visitPackageDeclaration(JavaParser.PackageDeclarationContext ctx) {
+			// packageDeclaration :  annotation* 'package' qualifiedName ';'
+			packageName = ctx.qualifiedName().getText();
+			return null;
+		}
+		
+		@Override
+		public String visitImportDeclaration(JavaParser.ImportDeclarationContext ctx) {
+			// importDeclaration :  'import' 'static'? qualifiedName ('.' '*')? ';'
+			String qualifiedName = ctx.qualifiedName().getText();
+			int last = ctx.getChildCount() - 1;
+			if (ctx.getChild(last - 1).getText().equals("*")
+					&& ctx.getChild(last - 2).getText().equals("."))
+				qualifiedName += ".*";
+			importsList.add(qualifiedName);
+			return null;
+		}
+		
+		@Override
+		public String visitInterfaceDeclaration(JavaParser.InterfaceDeclarationContext ctx) {
+			// interfaceDeclaration
+			//   :  'interface' Identifier typeParameters? ('extends' typeList)? interfaceBody
+			String[] superInterfaces = null;
+			if (ctx.typeList() != null) {
+				List<String> superList = new ArrayList<>();
+				for (JavaParser.TypeTypeContext type: ctx.typeList().typeType())
+					superList.add(type.getText());
+				superInterfaces = superList.toArray(new String[superList.size()]);
+			}
+			String[] imports = importsList.toArray(new String[importsList.size()]);
+			JavaClass intf = new JavaClass(ctx.Identifier().getText(), packageName, null, filePath, imports);
+			if (ctx.typeParameters() != null)
+				intf.setTypeParameters(ctx.typeParameters().getText().substring(1, ctx.typeParameters().getText().length()-1).trim());
+			intf.setInterfaces(superInterfaces);
+			activeInterfaces.push(intf);
+			visit(ctx.interfaceBody());
+			interfaces.add(activeInterfaces.pop());
+			return null;
+		}
+		
+		@Override
+		public String visitInterfaceMethodDeclaration(JavaParser.InterfaceMethodDeclarationContext ctx) {
+			// interfaceMethodDeclaration
+			//   :  interfaceMethodModifier* (typeType|'void') Identifier formalParameters ('[' ']')*
+			//      ('throws' qualifiedNameList)? ( methodBody | ';' )
+			String type = "void";
+			if (ctx.typeType() != null)
+				type = ctx.typeType().getText();
+			List<String> argsList = new ArrayList<>();
+			if (ctx.formalParameters().formalParameterList() != null) {
+				for (JavaParser.FormalParameterContext param : 
+						ctx.formalParameters().formalParameterList().formalParameter()) {
+					argsList.add(param.typeType().getText());
+				}
+				if (ctx.formalParameters().formalParameterList().lastFormalParameter() != null) {
+					argsList.add(ctx.formalParameters().formalParameterList().lastFormalParameter().typeType().getText());
+				}
+			}
+			String[] args = argsList.isEmpty() ? null : argsList.toArray(new String[argsList.size()]);
+			boolean isStatic = false;
+			for (JavaParser.InterfaceMethodModifierContext modifier : ctx.interfaceMethodModifier())
+				isStatic |= modifier.getText().equals("static");
+			int line = ctx.getStart().getLine();
+			activeInterfaces.peek().addMethod(new JavaMethod("public", isStatic, ctx.methodBody() == null, type, ctx.Identifier().getText(), args, line));
+			return null;
+		}
+		
+		@Override
+		public String visitBlock(JavaParser.BlockContext ctx) {
+			// no interface is declared inside code blocks
+			return null;
+		}
+		
+		@Override
+		public String visitEnumDeclaration(JavaParser.EnumDeclarationContext ctx) {
+			return null;
+		}
+	}
 }
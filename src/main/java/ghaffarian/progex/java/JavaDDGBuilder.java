@@ -3,23 +3,31 @@ package ghaffarian.progex.java;
 
 import ghaffarian.graphs.*;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.misc.Interval;
@@ -28,13 +36,13 @@ import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.RuleNode;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import ghaffarian.progex.graphs.cfg.CFNode;
-import ghaffarian.progex.graphs.cfg.CFPathTraversal;
 import ghaffarian.progex.graphs.cfg.ControlFlowGraph;
 import ghaffarian.progex.graphs.pdg.DDEdge;
 import ghaffarian.progex.graphs.pdg.DataDependenceGraph;
 import ghaffarian.progex.graphs.pdg.PDNode;
+import ghaffarian.progex.graphs.pdg.ReachingDefinitions;
+import ghaffarian.progex.graphs.pdg.SymbolTable;
 import ghaffarian.progex.java.parser.JavaBaseVisitor;
-import ghaffarian.progex.java.parser.JavaLexer;
 import ghaffarian.progex.java.parser.JavaParser;
 import ghaffarian.nanologger.Logger;
 
@@ -43,50 +51,143 @@ import ghaffarian.nanologger.Logger;
  * The DDG is actually a subgraph of the Program Dependence Graph (PDG).
  * This implementation is based on ANTLRv4's Visitor pattern.
  * 
+ * Each instance is an analysis session, which keeps the whole state of its analysis;
+ * so independent sessions can build DDGs concurrently (e.g. from different threads).
+ * The state of a build is released when the build is finished.
+ * 
  * @author Seyed Mohammad Ghaffarian
  */
 public class JavaDDGBuilder {
 	
 	// Just for debugging
-	private static String currentFile;
+	private String currentFile;
 	
 	// NOTE: This doesn't handle duplicate class names;
 	//       yet assuming no duplicate class names is fair enough.
 	//       To handle that, we should use 'Map<String, List<JavaClass>>'
-	private static Map<String, JavaClass> allClassInfos;
-
-    private static Map<String, List<MethodDefInfo>> methodDEFs;
+	private Map<String, JavaClass> allClassInfos;
 
+    private MethodDefIndex methodDEFs;
+	
+	// Source archive of the Java library (and its index, if built)
+	private static final String DEFAULT_LIBRARY_ZIP = "res/jdk7-src.zip";
+	private final String libraryPath;
+	
+	// Lazy resolution of imported library classes
+	private final boolean lazyLibraries;
+	private LibraryResolver libraryResolver;
+	
+	// Memoized DEF summaries of library entries, which are resolved lazily;
+	// these are kept by the session for all its builds, since they only depend on the library.
+	private final Map<String, LibrarySummary> librarySummaries = new HashMap<>();
+	
+	// Persistent cache of library DEF-infos, and the names looked up by the library analysis
+	private final File libraryDEFCacheDir;
+	private Set<String> lookedUpMethods, lookedUpClasses;
+	
+	/**
+	 * Create a new analysis session, with the default options;
+	 * i.e. all imported library classes are analyzed beforehand, without any cache.
+	 */
+	public JavaDDGBuilder() {
+		this(false, (File) null, DEFAULT_LIBRARY_ZIP);
+	}
+	
+	/**
+	 * Create a new analysis session, with the given options.
+	 * In lazy mode, a library class is only loaded and analyzed when a method-call 
+	 * actually needs it; i.e. for the class of a defined callee, or of a constructor.
+	 * Otherwise, all classes of all imports are analyzed beforehand.
+	 * If a DEF cache directory is given, the converged DEF-infos of imported library
+	 * classes are cached between runs; otherwise they are analyzed on each run.
+	 * 
+	 * @param lazyLibraries  whether imported library classes are resolved lazily
+	 * @param defCachePath   directory for caching library DEF-infos (can be null)
+	 */
+	public JavaDDGBuilder(boolean lazyLibraries, String defCachePath) {
+		this(lazyLibraries, defCachePath, DEFAULT_LIBRARY_ZIP);
+	}
+	
+	/**
+	 * Create a new analysis session, with the given options;
+	 * the imported library classes are taken from the given source archive.
+	 * 
+	 * @param lazyLibraries  whether imported library classes are resolved lazily
+	 * @param defCachePath   directory for caching library DEF-infos (can be null)
+	 * @param libraryPath    source archive of the Java library (such as 'res/jdk7-src.zip')
+	 */
+	public JavaDDGBuilder(boolean lazyLibraries, String defCachePath, String libraryPath) {
+		this(lazyLibraries, defCachePath == null ? null : new File(defCachePath), libraryPath);
+	}
+	
+	private JavaDDGBuilder(boolean lazyLibraries, File defCacheDir, String libraryPath) {
+		this.lazyLibraries = lazyLibraries;
+		this.libraryDEFCacheDir = defCacheDir;
+		this.libraryPath = libraryPath;
+	}
+	
 	public static DataDependenceGraph[] buildForAll(File[] files) throws IOException {
-		// Parse all Java source files
-		Logger.info("Parsing all source files ... ");
-		ParseTree[] parseTrees = new ParseTree[files.length];
-		CommonTokenStream[] tokenStreams = new CommonTokenStream[files.length];
-		for (int i = 0; i < files.length; ++i) {
-			InputStream inFile = new FileInputStream(files[i]);
-			ANTLRInputStream input = new ANTLRInputStream(inFile);
-			JavaLexer lexer = new JavaLexer(input);
-			CommonTokenStream tokens = new CommonTokenStream(lexer);
-			tokenStreams[i] = tokens;
-			JavaParser parser = new JavaParser(tokens);
-			parseTrees[i] = parser.compilationUnit();
-		}
-		Logger.info("Done.");
-
-		return buildForAll(parseTrees, files, tokenStreams);
+		JavaArtifactCache artifacts = new JavaArtifactCache(files, 1);
+		artifacts.parseAll();
+		return buildForAll(files, artifacts);
 	}
 
 	public static DataDependenceGraph[] buildForAll(ParseTree[] parseTrees, File[] files, CommonTokenStream[] tokenStreams) throws IOException {
 		assert(parseTrees!=null);
 		assert(files!=null);
 		assert(parseTrees.length == files.length);
+		JavaArtifactCache artifacts = new JavaArtifactCache(new File[0], 1);
+		for (int i = 0; i < files.length; ++i)
+			artifacts.put(files[i], parseTrees[i], tokenStreams[i]);
+		return buildForAll(files, artifacts);
+	}
+
+	/**
+	 * Build and return the DDGs of the given Java files, using a new session with the default options.
+	 * The parse-trees, token streams, class-infos and CFGs 
+	 * of the files are taken from the given artifact-cache.
+	 */
+	public static DataDependenceGraph[] buildForAll(File[] files, JavaArtifactCache artifacts) throws IOException {
+		return new JavaDDGBuilder().build(files, artifacts);
+	}
+
+	/**
+	 * Build and return the DDGs of the given Java files.
+	 * The parse-trees, token streams, class-infos and CFGs 
+	 * of the files are taken from the given artifact-cache.
+	 * Builds of the same session are run one at a time.
+	 */
+	public synchronized DataDependenceGraph[] build(File[] files, JavaArtifactCache artifacts) throws IOException {
+		try {
+			return buildDDGs(files, artifacts);
+		} finally {
+			release();
+		}
+	}
+	
+	/**
+	 * Release the analysis state of this session; i.e. the class-infos and method DEF-infos.
+	 */
+	private void release() {
+		allClassInfos = null;
+		methodDEFs = null;
+		libraryResolver = null;
+		lookedUpMethods = null;
+		lookedUpClasses = null;
+		currentFile = null;
+	}
+	
+	private DataDependenceGraph[] buildDDGs(File[] files, JavaArtifactCache artifacts) throws IOException {
+		ParseTree[] parseTrees = new ParseTree[files.length];
+		for (int i = 0; i < files.length; ++i)
+			parseTrees[i] = artifacts.getParseTree(files[i]);
 
 		// Extract the information of all given Java classes
 		Logger.info("\nExtracting class-infos ... ");
 		allClassInfos = new HashMap<>();
 		List<JavaClass[]> filesClasses = new ArrayList<>();
 		for (int i = 0; i < files.length; ++i) {
-			List<JavaClass> classesList = JavaClassExtractor.extractInfo(files[i].getPath(), parseTrees[i]);
+			List<JavaClass> classesList = artifacts.getClassInfos(files[i]);
 			filesClasses.add(classesList.toArray(new JavaClass[classesList.size()]));
 			for (JavaClass cls: classesList) 
 				allClassInfos.put(cls.NAME, cls);
@@ -95,22 +196,11 @@ public class JavaDDGBuilder {
 		
 		// Initialize method DEF information
 		Logger.info("\nInitializing method-DEF infos ... ");
-		methodDEFs = new HashMap<>();
-		for (JavaClass[] classArray: filesClasses) {
-			for (JavaClass cls : classArray) {
-				for (JavaMethod mtd : cls.getAllMethods()) {
-					List<MethodDefInfo> list = methodDEFs.get(mtd.NAME);
-					if (list == null) {
-						list = new ArrayList<>();
-						list.add(new MethodDefInfo(mtd.RET_TYPE, mtd.NAME, cls.PACKAGE, cls.NAME, mtd.ARG_TYPES));
-						methodDEFs.put(mtd.NAME, list);
-					} else {
-						list.add(new MethodDefInfo(mtd.RET_TYPE, mtd.NAME, cls.PACKAGE, cls.NAME, mtd.ARG_TYPES));
-						// no need to do 'methodDEFs.put(...)' again
-					}
-				}
-			}
-		}
+		methodDEFs = new MethodDefIndex();
+		for (JavaClass[] classArray: filesClasses)
+			for (JavaClass cls : classArray)
+				for (JavaMethod mtd : cls.getAllMethods())
+					methodDEFs.add(new MethodDefInfo(mtd.RET_TYPE, mtd.NAME, cls.PACKAGE, cls.NAME, mtd.ARG_TYPES));
 		Logger.info("Done.");
 		
 		// Analyze method DEF information for imported libraries
@@ -119,37 +209,53 @@ public class JavaDDGBuilder {
 		// Iteratively, extract USE-DEF info for all program statements ...
 		DataDependenceGraph[] ddgs = new DataDependenceGraph[files.length];
 		for (int i = 0; i < ddgs.length; ++i)
-			ddgs[i] = new DataDependenceGraph(files[i], tokenStreams[i]);
+			ddgs[i] = new DataDependenceGraph(files[i], artifacts.getTokenStream(files[i]));
 		//
 		Map<ParserRuleContext, Object>[] pdNodes = new Map[parseTrees.length];
 		for (int i = 0; i < parseTrees.length; ++i)
 			pdNodes[i] = new IdentityHashMap<>();
 		//
 		Logger.info("\nIterative DEF-USE analysis ... ");
-		boolean changed;
-		int iteration = 0;
-		do {
-			++iteration;
-			changed = false;
+		// Files are analyzed concurrently, except in the lazy mode;
+		// since resolving library classes modifies the class and DEF infos of the session.
+		int numThreads = libraryResolver == null ? Math.min(artifacts.getNumThreads(), files.length) : 1;
+		ExecutorService pool = numThreads > 1 ? Executors.newFixedThreadPool(numThreads) : null;
+		try {
+			// The first pass creates all PDNodes, and records the analysis units 
+			// (i.e. method declarations) along with the method DEF-infos they use.
+			DefUseSchedule schedule = new DefUseSchedule();
+			List<Callable<Integer>> tasks = new ArrayList<>(files.length);
 			for (int i = 0; i < files.length; ++i) {
-				Logger.info("Analyzing DEF-USE relationships on " + files[i].getPath());
-				currentFile = files[i].getName();
-				if (ddgs[i] != null) {
-					DefUseVisitor defUse = new DefUseVisitor(iteration, filesClasses.get(i), ddgs[i], pdNodes[i]);
-					try {
-						defUse.visit(parseTrees[i]);
-					} catch (NullPointerException e) {
-						Logger.error("Error on analyzing DEF-USE relationships on " + files[i].getPath());
-						Logger.error(e);
-						ddgs[i] = null;
-						pdNodes[i] = null;
+				final int f = i;
+				tasks.add(() -> {
+					Logger.info("Analyzing DEF-USE relationships on " + files[f].getPath());
+					if (ddgs[f] != null) {
+						DefUseVisitor defUse = new DefUseVisitor(1, filesClasses.get(f), ddgs[f], pdNodes[f], schedule, f);
+						try {
+							defUse.visit(parseTrees[f]);
+						} catch (NullPointerException e) {
+							Logger.error("Error on analyzing DEF-USE relationships on " + files[f].getPath());
+							Logger.error(e);
+							ddgs[f] = null;
+							pdNodes[f] = null;
+						}
 					}
-					changed |= defUse.changed;
-				}
+					return 1;
+				});
 			}
-			Logger.debug("Iteration #" + iteration + ": " + (changed ? "CHANGED" : "NO-CHANGE"));
-			Logger.debug("\n========================================\n");
-		} while (changed);
+			invokeAll(pool, tasks);
+			schedule.sortUnits();
+			// The remaining iterations are only done for the units which need them
+			analyzeUnitsBottomUp(pool, schedule, files, filesClasses, ddgs, pdNodes);
+		} finally {
+			if (pool != null)
+				pool.shutdownNow();
+			if (libraryResolver != null) {
+				Logger.info("Resolved " + libraryResolver.getResolvedCount() + " library classes.");
+				libraryResolver.close();
+				libraryResolver = null;
+			}
+		}
 		Logger.info("Done.");
 		
 		// Build control-flow graphs for all Java files including the extracted DEF-USE info ...
@@ -159,7 +265,8 @@ public class JavaDDGBuilder {
 			Logger.info("Calculating CFG from " + files[i].getPath());
 			if (ddgs[i]!=null) {
 				try {
-					cfgs[i] = JavaCFGBuilder.build(files[i].getName(), parseTrees[i], "pdnode", pdNodes[i]);
+					cfgs[i] = artifacts.getCFG(files[i]);
+					artifacts.addContextualProperties(files[i], "pdnode", pdNodes[i]);
 				} catch(NullPointerException e) {
 					Logger.error("Error on calculating CFG from " + files[i].getPath());
 					Logger.error(e);
@@ -185,10 +292,203 @@ public class JavaDDGBuilder {
 		return ddgs;
 	}
 	
+	/**
+	 * Iterative DEF-USE analysis of the recorded units, until no more changes.
+	 * 
+	 * Units are analyzed bottom-up, in the order of the strongly connected components 
+	 * of their dependencies; where a unit depends on the units which may modify the 
+	 * method DEF-infos it uses. Hence, callees are analyzed before their callers, and 
+	 * only the components with recursion are iterated. Moreover, a unit is only analyzed 
+	 * again if any of the DEF-infos it uses is modified after its last analysis.
+	 * Since DEF-USE sets and DEF-infos only grow, the result is the same as
+	 * analyzing all files over and over again, until no more changes.
+	 */
+	private void analyzeUnitsBottomUp(ExecutorService pool, DefUseSchedule schedule, File[] files, 
+			List<JavaClass[]> filesClasses, DataDependenceGraph[] ddgs, Map<ParserRuleContext, Object>[] pdNodes) 
+			throws IOException {
+		List<DefUseUnit> units = schedule.units;
+		Map<MethodDefInfo, List<DefUseUnit>> writers = new IdentityHashMap<>();
+		for (DefUseUnit unit: units)
+			for (MethodDefInfo info: unit.writes)
+				writers.computeIfAbsent(info, k -> new ArrayList<>()).add(unit);
+		int visits = 0;
+		List<List<DefUseUnit>> components = findComponents(units, writers);
+		// Components of the same level (i.e. the length of the longest dependency
+		// path from them) are independent of each other, and analyzed concurrently.
+		List<List<Callable<Integer>>> levels = new ArrayList<>();
+		Map<DefUseUnit, Integer> unitLevels = new IdentityHashMap<>();
+		for (List<DefUseUnit> component: components) {
+			int level = 0;
+			for (DefUseUnit unit: component)
+				for (MethodDefInfo info: unit.reads)
+					for (DefUseUnit writer: writers.getOrDefault(info, Collections.emptyList()))
+						if (unitLevels.containsKey(writer))
+							level = Math.max(level, unitLevels.get(writer) + 1);
+			for (DefUseUnit unit: component)
+				unitLevels.put(unit, level);
+			if (level == levels.size())
+				levels.add(new ArrayList<>());
+			levels.get(level).add(() -> {
+				int count = 0;
+				boolean again;
+				do {
+					again = false;
+					for (DefUseUnit unit: component) {
+						if (ddgs[unit.file] != null && schedule.isModified(unit)) {
+							analyzeUnit(unit, schedule, files, filesClasses, ddgs, pdNodes);
+							again = true;
+							++count;
+						}
+					}
+				} while (again);
+				return count;
+			});
+		}
+		for (List<Callable<Integer>> level: levels)
+			visits += invokeAll(pool, level);
+		// All units are now stable, unless the dependencies were changed 
+		// by resolving more library classes (in the lazy mode) while analyzing
+		int count;
+		do {
+			List<Callable<Integer>> tasks = new ArrayList<>();
+			for (DefUseUnit unit: units) {
+				if (ddgs[unit.file] != null && schedule.isModified(unit)) {
+					tasks.add(() -> {
+						analyzeUnit(unit, schedule, files, filesClasses, ddgs, pdNodes);
+						return 1;
+					});
+				}
+			}
+			count = invokeAll(pool, tasks);
+			visits += count;
+		} while (count > 0);
+		Logger.debug("DEF-USE units = " + units.size() + ", components = " + components.size() + 
+				", levels = " + levels.size() + ", re-analyzed units = " + visits);
+	}
+	
+	/**
+	 * Run all given tasks using the given thread-pool, and return the sum of their results.
+	 * If the thread-pool is null, the tasks are run sequentially in the given order.
+	 */
+	private static int invokeAll(ExecutorService pool, List<Callable<Integer>> tasks) throws IOException {
+		int sum = 0;
+		try {
+			if (pool == null || tasks.size() <= 1) {
+				for (Callable<Integer> task: tasks)
+					sum += task.call();
+			} else {
+				for (Future<Integer> result: pool.invokeAll(tasks))
+					sum += result.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("DEF-USE analysis interrupted!", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException)
+				throw (IOException) ex.getCause();
+			if (ex.getCause() instanceof RuntimeException)
+				throw (RuntimeException) ex.getCause();
+			throw new IOException(ex.getCause());
+		} catch (IOException | RuntimeException ex) {
+			throw ex;
+		} catch (Exception ex) {
+			throw new IOException(ex);
+		}
+		return sum;
+	}
+	
+	/**
+	 * Analyze DEF-USE relationships of the given unit once more.
+	 */
+	private void analyzeUnit(DefUseUnit unit, DefUseSchedule schedule, File[] files, 
+			List<JavaClass[]> filesClasses, DataDependenceGraph[] ddgs, Map<ParserRuleContext, Object>[] pdNodes) {
+		int i = unit.file;
+		Logger.debug("Analyzing DEF-USE relationships on " + files[i].getPath() + 
+				" : line " + unit.declaration.getStart().getLine());
+		DefUseVisitor defUse = new DefUseVisitor(2, filesClasses.get(i), ddgs[i], pdNodes[i], schedule, i);
+		try {
+			defUse.visitUnit(unit);
+		} catch (NullPointerException e) {
+			Logger.error("Error on analyzing DEF-USE relationships on " + files[i].getPath());
+			Logger.error(e);
+			ddgs[i] = null;
+			pdNodes[i] = null;
+		}
+	}
+	
+	/**
+	 * Returns the strongly connected components of the dependencies among the given units,
+	 * in reverse topological order; i.e. each component comes after all its dependencies.
+	 * Units of each component are kept in their original order.
+	 * This is an iterative version of Tarjan's algorithm.
+	 */
+	private static List<List<DefUseUnit>> findComponents(List<DefUseUnit> units, 
+			Map<MethodDefInfo, List<DefUseUnit>> writers) {
+		Map<DefUseUnit, Integer> order = new IdentityHashMap<>();
+		for (DefUseUnit unit: units)
+			order.put(unit, order.size());
+		List<DefUseUnit>[] dependencies = new List[units.size()];
+		for (DefUseUnit unit: units) {
+			Set<DefUseUnit> deps = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (MethodDefInfo info: unit.reads)
+				deps.addAll(writers.getOrDefault(info, Collections.emptyList()));
+			dependencies[order.get(unit)] = new ArrayList<>(deps);
+		}
+		int counter = 0;
+		int[] index = new int[units.size()];
+		int[] lowLink = new int[units.size()];
+		int[] nextDep = new int[units.size()];
+		boolean[] onStack = new boolean[units.size()];
+		Arrays.fill(index, -1);
+		Deque<Integer> stack = new ArrayDeque<>();
+		Deque<Integer> callStack = new ArrayDeque<>();
+		List<List<DefUseUnit>> components = new ArrayList<>();
+		for (int root = 0; root < units.size(); ++root) {
+			if (index[root] >= 0)
+				continue;
+			callStack.push(root);
+			index[root] = lowLink[root] = counter++;
+			stack.push(root);
+			onStack[root] = true;
+			while (!callStack.isEmpty()) {
+				int v = callStack.peek();
+				if (nextDep[v] < dependencies[v].size()) {
+					int w = order.get(dependencies[v].get(nextDep[v]++));
+					if (index[w] < 0) {
+						index[w] = lowLink[w] = counter++;
+						stack.push(w);
+						onStack[w] = true;
+						callStack.push(w);
+					} else if (onStack[w])
+						lowLink[v] = Math.min(lowLink[v], index[w]);
+				} else {
+					callStack.pop();
+					if (!callStack.isEmpty())
+						lowLink[callStack.peek()] = Math.min(lowLink[callStack.peek()], lowLink[v]);
+					if (lowLink[v] == index[v]) {
+						List<Integer> members = new ArrayList<>();
+						int w;
+						do {
+							w = stack.pop();
+							onStack[w] = false;
+							members.add(w);
+						} while (w != v);
+						Collections.sort(members);
+						List<DefUseUnit> component = new ArrayList<>(members.size());
+						for (int m: members)
+							component.add(units.get(m));
+						components.add(component);
+					}
+				}
+			}
+		}
+		return components;
+	}
+	
 	/**
 	 * Analyze method DEF information for imported libraries. 
 	 */
-	private static void analyzeImportsDEF(List<JavaClass[]> filesClasses) throws IOException {
+	private void analyzeImportsDEF(List<JavaClass[]> filesClasses) throws IOException {
 		// Extract the import strings
 		Logger.info("\nExtracting & Parsing imports ... ");
 		Set<String> rawImports = new LinkedHashSet<>();
@@ -197,122 +497,318 @@ public class JavaDDGBuilder {
 			for (JavaClass cls: classes) 
 				for (String qualifiedName: cls.IMPORTS)
 					rawImports.add(qualifiedName);
+		// In lazy mode, library classes are resolved on demand during the analysis
+		if (lazyLibraries) {
+			libraryResolver = new LibraryResolver(libraryPath, rawImports);
+			Logger.info("Done.");
+			return;
+		}
+		// If the library is indexed, the DEF-infos are taken from the index
+		JavaLibraryIndex index = JavaLibraryIndex.forArchive(libraryPath);
+		if (index != null) {
+			analyzeImportsDEF(rawImports, index);
+			return;
+		}
+		// The project classes, before adding any library classes
+		Map<String, JavaClass> projectClassInfos = null;
+		if (libraryDEFCacheDir != null)
+			projectClassInfos = new HashMap<>(allClassInfos);
 		// NOTE: imports can contain specific or whole package imports;
 		//       so, we need to extract specific ZIP-entries for all imports.
 		// For each import find the ZIP-entries, 
 		// and extract the ParseTree and JavaClass[] infos
-		ZipFile zip = new ZipFile("res/jdk7-src.zip");
 		Set<String> imports = new LinkedHashSet<>();
 		List<ParseTree> importsParseTrees = new ArrayList<>();
 		List<JavaClass[]> importsClassInfos = new ArrayList<>();
-		for (String qualifiedName: rawImports) {
-			if (qualifiedName.endsWith(".*")) {
-				for (ZipEntry ent: getPackageEntries(zip, qualifiedName)) {
-					if (imports.add(ent.getName())) {
-						ANTLRInputStream input = new ANTLRInputStream(zip.getInputStream(ent));
-						JavaLexer lexer = new JavaLexer(input);
-						CommonTokenStream tokens = new CommonTokenStream(lexer);
-						JavaParser parser = new JavaParser(tokens);
-						ParseTree tree = parser.compilationUnit();
+		try (ZipFile zip = new ZipFile(libraryPath)) {
+			for (String qualifiedName: rawImports) {
+				if (qualifiedName.endsWith(".*")) {
+					for (ZipEntry ent: JavaPackageIndex.getPackageEntries(zip, qualifiedName)) {
+						if (imports.add(ent.getName())) {
+							ParseTree tree = JavaSourceParser.parse(zip.getInputStream(ent));
+							//
+							importsParseTrees.add(tree);
+							List<JavaClass> list = JavaClassExtractor.extractInfo("src.zip/" + ent.getName(), tree);
+							importsClassInfos.add(list.toArray(new JavaClass[list.size()]));
+							for (JavaClass cls: list) 
+								allClassInfos.put(cls.NAME, cls);
+						}
+					}
+				} else {
+					String path = qualifiedName.replace('.', '/') + ".java";
+					if (imports.add(path)) {
+						ZipEntry entry = zip.getEntry(path);
+						if (entry == null) {
+							imports.remove(path);
+							continue;
+						}
+						//
+						ParseTree tree = JavaSourceParser.parse(zip.getInputStream(entry));
 						//
 						importsParseTrees.add(tree);
-						List<JavaClass> list = JavaClassExtractor.extractInfo("src.zip/" + ent.getName(), tree);
+						List<JavaClass> list = JavaClassExtractor.extractInfo("src.zip/" + path, tree);
 						importsClassInfos.add(list.toArray(new JavaClass[list.size()]));
-						for (JavaClass cls: list) 
-							allClassInfos.put(cls.NAME, cls);
-					}
-				}
-			} else {
-				String path = qualifiedName.replace('.', '/') + ".java";
-				if (imports.add(path)) {
-					ZipEntry entry = zip.getEntry(path);
-					if (entry == null) {
-						imports.remove(path);
-						continue;
 					}
-					//
-					ANTLRInputStream input = new ANTLRInputStream(zip.getInputStream(entry));
-					JavaLexer lexer = new JavaLexer(input);
-					CommonTokenStream tokens = new CommonTokenStream(lexer);
-					JavaParser parser = new JavaParser(tokens);
-					ParseTree tree = parser.compilationUnit();
-					//
-					importsParseTrees.add(tree);
-					List<JavaClass> list = JavaClassExtractor.extractInfo("src.zip/" + path, tree);
-					importsClassInfos.add(list.toArray(new JavaClass[list.size()]));
 				}
 			}
 		}
 		Logger.info("Done.");
+		// The project method DEF-infos, before adding any library methods
+		Map<String, List<MethodDefInfo>> projectMethodDEFs = null;
+		if (libraryDEFCacheDir != null) {
+			projectMethodDEFs = new HashMap<>();
+			for (Map.Entry<String, List<MethodDefInfo>> ent: methodDEFs.entrySet())
+				projectMethodDEFs.put(ent.getKey(), new ArrayList<>(ent.getValue()));
+		}
 		// 
+		List<MethodDefInfo> libraryDefInfos = new ArrayList<>();
 		for (JavaClass[] classArray: importsClassInfos) {
 			for (JavaClass cls : classArray) {
 				for (JavaMethod mtd : cls.getAllMethods()) {
-					List<MethodDefInfo> list = methodDEFs.get(mtd.NAME);
-					if (list == null) {
-						list = new ArrayList<>();
-						list.add(new MethodDefInfo(mtd.RET_TYPE, mtd.NAME, cls.PACKAGE, cls.NAME, mtd.ARG_TYPES));
-						methodDEFs.put(mtd.NAME, list);
-					} else {
-						list.add(new MethodDefInfo(mtd.RET_TYPE, mtd.NAME, cls.PACKAGE, cls.NAME, mtd.ARG_TYPES));
-						// no need to do 'methodDEFs.put(...)' again
-					}
+					MethodDefInfo info = new MethodDefInfo(mtd.RET_TYPE, mtd.NAME, cls.PACKAGE, cls.NAME, mtd.ARG_TYPES);
+					libraryDefInfos.add(info);
+					methodDEFs.add(info);
 				}
 			}
 		}
 		//
 		Logger.info("\nAnalyzing imports DEF-USE ... ");
+		if (libraryDEFCacheDir == null)
+			analyzeLibraryFixpoint(imports, importsParseTrees, importsClassInfos);
+		else
+			analyzeImportsFixpoint(libraryPath, new ArrayList<>(imports), importsParseTrees, importsClassInfos, 
+					libraryDefInfos, projectClassInfos, projectMethodDEFs);
+		Logger.info("Done.");
+	}
+	
+	/**
+	 * Iterative DEF-USE analysis of the imported library classes, using the persistent cache;
+	 * the analysis is skipped entirely, if valid converged DEF-infos are cached.
+	 * The project classes and method DEF-infos are only used for validating the cache.
+	 */
+	private void analyzeImportsFixpoint(String zipPath, List<String> entryNames, 
+			List<ParseTree> parseTrees, List<JavaClass[]> classInfos, List<MethodDefInfo> libraryDefInfos,
+			Map<String, JavaClass> projectClassInfos, Map<String, List<MethodDefInfo>> projectMethodDEFs) 
+			throws IOException {
+		long checksum = JavaLibraryIndex.fingerprint(zipPath);
+		JavaLibraryDEFCache cache = JavaLibraryDEFCache.load(libraryDEFCacheDir, checksum, entryNames);
+		if (cache != null && Arrays.equals(cache.projectFingerprint, projectFingerprint(cache.methodNames, 
+				cache.classNames, projectClassInfos, projectMethodDEFs)) && cache.applyTo(libraryDefInfos)) {
+			Logger.info("Library DEF-infos loaded from cache.");
+			return;
+		}
+		// record all names looked up by the analysis, for validating the cache in later runs
+		Set<String> methodNames = new TreeSet<>();
+		Set<String> classNames = new TreeSet<>();
+		lookedUpMethods = methodNames;
+		lookedUpClasses = classNames;
+		try {
+			analyzeLibraryFixpoint(entryNames, parseTrees, classInfos);
+		} finally {
+			lookedUpMethods = null;
+			lookedUpClasses = null;
+		}
+		byte[] fingerprint = projectFingerprint(methodNames, classNames, projectClassInfos, projectMethodDEFs);
+		JavaLibraryDEFCache.save(libraryDEFCacheDir, checksum, entryNames, 
+				methodNames, classNames, fingerprint, libraryDefInfos);
+	}
+	
+	/**
+	 * Computes a fingerprint of the project methods and classes of the given names;
+	 * i.e. the part of the project state which can affect the library analysis.
+	 */
+	private static byte[] projectFingerprint(Set<String> methodNames, Set<String> classNames,
+			Map<String, JavaClass> projectClassInfos, Map<String, List<MethodDefInfo>> projectMethodDEFs) {
+		StringBuilder state = new StringBuilder();
+		for (String name: methodNames) {
+			state.append(name).append(':');
+			List<MethodDefInfo> list = projectMethodDEFs.get(name);
+			if (list != null)
+				for (MethodDefInfo info: list)
+					state.append(info).append(';');
+			state.append('\n');
+		}
+		for (String name: classNames) {
+			state.append(name).append(':');
+			JavaClass cls = projectClassInfos.get(name);
+			if (cls != null) {
+				state.append(cls.PACKAGE).append('.').append(cls.NAME);
+				for (JavaMethod mtd: cls.getAllMethods())
+					state.append(';').append(mtd.NAME);
+			}
+			state.append('\n');
+		}
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(state.toString().getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+	
+	/**
+	 * Returns the DEF-infos of all methods with the given name;
+	 * the name is recorded if the library analysis is being recorded.
+	 */
+	private List<MethodDefInfo> lookupMethodDEFs(String name) {
+		if (lookedUpMethods != null && name != null)
+			lookedUpMethods.add(name);
+		return methodDEFs.get(name);
+	}
+	
+	/**
+	 * Returns the class-info of the given type name;
+	 * the name is recorded if the library analysis is being recorded.
+	 */
+	private JavaClass lookupClassInfo(String type) {
+		if (lookedUpClasses != null && type != null)
+			lookedUpClasses.add(type);
+		return allClassInfos.get(type);
+	}
+	
+	/**
+	 * Analyze method DEF information for imported libraries, using the library index.
+	 * The imports are resolved the same as the ZIP-entries of the library;
+	 * but the method DEF-infos are taken from the index, without any analysis.
+	 * See JavaLibraryIndex for the cases where these differ from the analyzed DEF-infos.
+	 */
+	private void analyzeImportsDEF(Set<String> rawImports, JavaLibraryIndex index) throws IOException {
+		Set<String> imports = new LinkedHashSet<>();
+		for (String qualifiedName: rawImports) {
+			if (qualifiedName.endsWith(".*")) {
+				for (String entry: index.getPackageEntries(qualifiedName)) {
+					if (imports.add(entry)) {
+						for (JavaClass cls: index.getClasses(entry))
+							allClassInfos.put(cls.NAME, cls);
+					}
+				}
+			} else {
+				String path = qualifiedName.replace('.', '/') + ".java";
+				if (index.hasEntry(path))
+					imports.add(path);
+			}
+		}
+		Logger.info("Done.");
+		//
+		for (String entry: imports) {
+			for (MethodDefInfo info: index.getMethodDefInfos(entry))
+				methodDEFs.add(info);
+		}
+	}
+	
+	/**
+	 * Analyze method DEF information for all classes of a library, and
+	 * return the DEF-infos of all methods; this is used for building library indexes.
+	 */
+	static Map<JavaMethod, MethodDefInfo> analyzeLibraryDEFs(List<String> entryNames, 
+			List<ParseTree> parseTrees, List<JavaClass[]> classInfos) {
+		Logger.info("\nAnalyzing library DEF-USE ... ");
+		Map<JavaMethod, MethodDefInfo> defInfos = 
+				new JavaDDGBuilder(false, (File) null, null).summarizeLibrary(entryNames, parseTrees, classInfos);
+		Logger.info("Done.");
+		return defInfos;
+	}
+	
+	/**
+	 * Analyze method DEF information for the given library classes in isolation,
+	 * and return the DEF-infos of all methods; the analysis state is reset afterwards.
+	 */
+	private Map<JavaMethod, MethodDefInfo> summarizeLibrary(List<String> entryNames, 
+			List<ParseTree> parseTrees, List<JavaClass[]> classInfos) {
+		allClassInfos = new HashMap<>();
+		methodDEFs = new MethodDefIndex();
+		Map<JavaMethod, MethodDefInfo> defInfos = new IdentityHashMap<>();
+		for (JavaClass[] classArray: classInfos) {
+			for (JavaClass cls : classArray) {
+				allClassInfos.put(cls.NAME, cls);
+				for (JavaMethod mtd : cls.getAllMethods()) {
+					MethodDefInfo info = new MethodDefInfo(mtd.RET_TYPE, mtd.NAME, cls.PACKAGE, cls.NAME, mtd.ARG_TYPES);
+					methodDEFs.add(info);
+					defInfos.put(mtd, info);
+				}
+			}
+		}
+		analyzeLibraryFixpoint(entryNames, parseTrees, classInfos);
+		allClassInfos = null;
+		methodDEFs = null;
+		return defInfos;
+	}
+	
+	/**
+	 * Iterative DEF-USE analysis of the given library sources, until no more changes.
+	 * Only the method DEF-infos are of interest; so a dummy DDG is used.
+	 */
+	private void analyzeLibraryFixpoint(Collection<String> entryNames, 
+			List<ParseTree> parseTrees, List<JavaClass[]> classInfos) {
 		Map<ParserRuleContext, Object> dummyMap = new HashMap<>();
 		DataDependenceGraph dummyDDG = new DataDependenceGraph(new File("Dummy.java"), null);
+		SymbolTable symbols = new SymbolTable();
+		boolean[] failed = new boolean[parseTrees.size()];
 		boolean changed;
 		int iteration = 0;
 		do {
 			++iteration;
 			changed = false;
 			int i = 0;
-			for (String imprt: imports) {
-				currentFile = "src.zip/" + imprt;
-				DefUseVisitor defUse = new DefUseVisitor(iteration, importsClassInfos.get(i), dummyDDG, dummyMap);
-				defUse.visit(importsParseTrees.get(i));
-				changed |= defUse.changed;
+			for (String entry: entryNames) {
+				currentFile = "src.zip/" + entry;
+				if (!failed[i]) {
+					DefUseVisitor defUse = new DefUseVisitor(iteration, classInfos.get(i), dummyDDG, dummyMap, symbols);
+					try {
+						defUse.visit(parseTrees.get(i));
+					} catch (NullPointerException e) {
+						Logger.error("Error on analyzing DEF-USE relationships on " + currentFile);
+						Logger.error(e);
+						failed[i] = true;
+					}
+					changed |= defUse.changed;
+				}
 				++i;
 			}
 		} while (changed);
-		Logger.info("Done.");
-		//
-		dummyDDG = null;
 		dummyMap.clear();
 	}
 	
 	/**
-	 * Returns an array of ZipEntry for a given wildcard package import.
+	 * Returns the memoized DEF summary of the given library entry;
+	 * the entry is parsed and analyzed in isolation, if not summarized before.
 	 */
-	private static ZipEntry[] getPackageEntries(ZipFile zip, String qualifiedName) {
-		// qualifiedName ends with ".*"
-		String pkg = qualifiedName.replace('.', '/').substring(0, qualifiedName.length() - 1);
-		int slashCount = countSlashes(pkg);
-		ArrayList<ZipEntry> entries = new ArrayList<>();
-		Enumeration<? extends ZipEntry> zipEntries = zip.entries();
-		while (zipEntries.hasMoreElements()) {
-			ZipEntry entry = zipEntries.nextElement();
-			if (entry.getName().startsWith(pkg) 
-					&& !entry.isDirectory()
-					&& slashCount == countSlashes(entry.getName())) {
-				entries.add(entry);
-			}
+	private LibrarySummary getLibrarySummary(ZipFile zip, String entryName) throws IOException {
+		String key = zip.getName() + '!' + entryName;
+		synchronized (librarySummaries) {
+			LibrarySummary summary = librarySummaries.get(key);
+			if (summary != null)
+				return summary;
+		}
+		Logger.info("Resolving library class " + entryName);
+		ParseTree tree = JavaSourceParser.parse(zip.getInputStream(zip.getEntry(entryName)));
+		JavaClass[] classes;
+		List<MethodDefInfo> defInfos = new ArrayList<>();
+		try {
+			List<JavaClass> list = JavaClassExtractor.extractInfo("src.zip/" + entryName, tree);
+			classes = list.toArray(new JavaClass[list.size()]);
+		} catch (RuntimeException ex) {
+			Logger.error("Error on extracting class-infos of " + entryName);
+			Logger.error(ex);
+			classes = new JavaClass[0];
+		}
+		// the entry is analyzed in a separate session, apart from the current project
+		Map<JavaMethod, MethodDefInfo> entryDefInfos = new JavaDDGBuilder(false, (File) null, null).summarizeLibrary(
+				Arrays.asList(entryName), Arrays.asList(tree), Arrays.<JavaClass[]>asList(classes));
+		for (JavaClass cls: classes)
+			for (JavaMethod mtd: cls.getAllMethods())
+				defInfos.add(entryDefInfos.get(mtd));
+		LibrarySummary summary = new LibrarySummary(classes, defInfos);
+		synchronized (librarySummaries) {
+			LibrarySummary previous = librarySummaries.putIfAbsent(key, summary);
+			return previous == null ? summary : previous;
 		}
-		return entries.toArray(new ZipEntry[entries.size()]);
 	}
 	
 	/**
-	 * Returns the number of forward-slash ('/') characters in a given string.
+	 * Returns the simple class name of the given library entry.
 	 */
-	private static int countSlashes(String str) {
-		int slashCount = 0;
-		for (char chr: str.toCharArray())
-			if (chr == '/')
-				++slashCount;
-		return slashCount;
+	private static String getClassName(String entryName) {
+		return entryName.substring(entryName.lastIndexOf('/') + 1, entryName.length() - 5);
 	}
 	
 	/**
@@ -320,58 +816,13 @@ public class JavaDDGBuilder {
 	 * to add Flow-dependence edges to the corresponding DDG.
 	 */
 	private static void addDataFlowEdges(ControlFlowGraph cfg, DataDependenceGraph ddg) {
-		Set<CFNode> visitedDefs = new LinkedHashSet<>();
-		for (CFNode entry: cfg.getAllMethodEntries()) {
-			visitedDefs.clear();
-			CFPathTraversal defTraversal = new CFPathTraversal(cfg, entry);
-			while (defTraversal.hasNext()) {
-				CFNode defCFNode = defTraversal.next();
-				if (!visitedDefs.add(defCFNode)) {
-					defTraversal.continueNextPath();
-					continue;
-				}
-				PDNode defNode = (PDNode) defCFNode.getProperty("pdnode");
-				if (defNode == null) {
-					//Logger.debug("No PDNode: " + defCFNode);
-					continue;
-				}
-				if (defNode.getAllDEFs().length == 0) 
-					continue;
-				// first add any self-flows of this node
-				for (String flow: defNode.getAllSelfFlows()) {
-					ddg.addEdge(new Edge<>(defNode, new DDEdge(DDEdge.Type.FLOW, flow), defNode));
-				}
-				// now traverse the CFG for any USEs till a DEF
-				Set<CFNode> visitedUses = new LinkedHashSet<>();
-				for (String def: defNode.getAllDEFs()) {
-					CFPathTraversal useTraversal = new CFPathTraversal(cfg, defCFNode);
-					visitedUses.clear();
-					CFNode useCFNode = useTraversal.next(); // skip start node
-					visitedUses.add(useCFNode);
-					while (useTraversal.hasNext()) {
-						useCFNode = useTraversal.next();
-						PDNode useNode = (PDNode) useCFNode.getProperty("pdnode");
-						if (useNode == null) {
-							//Logger.debug("No PDNode: " + useCFNode);
-							continue;
-						}
-						if (useNode.hasDEF(def))
-							useTraversal.continueNextPath(); // no need to continue this path
-						if (!visitedUses.add(useCFNode))
-							useTraversal.continueNextPath(); // no need to continue this path
-						else 
-							if (useNode.hasUSE(def))
-								ddg.addEdge(new Edge<>(defNode, new DDEdge(DDEdge.Type.FLOW, def), useNode));
-					}
-				}
-			}
-		}
+		new ReachingDefinitions(cfg).addDataFlowEdges(ddg);
 	}
 	
 	/**
 	 * Visitor class which performs iterative DEF-USE analysis for all program statements.
 	 */
-	private static class DefUseVisitor extends JavaBaseVisitor<String> {
+	private class DefUseVisitor extends JavaBaseVisitor<String> {
 		
 		private static final int PARAM = 1;
 		private static final int FIELD = 101;
@@ -388,11 +839,38 @@ public class JavaDDGBuilder {
 		private Deque<JavaClass> activeClasses;
 		private MethodDefInfo methodDefInfo;
 		private JavaField[] methodParams;
-		private List<JavaField> localVars;
-		
-		public DefUseVisitor(int iter, JavaClass[] classInfos, 
-				DataDependenceGraph ddg, Map<ParserRuleContext, Object> pdNodes) {
+		private JavaField[] indexedParams;
+		private Map<String, Integer> paramIndexes;
+		private LocalScopes localVars;
+		private DefUseSchedule schedule;
+		private DefUseUnit currentUnit;
+		private int fileIndex;
+		private SymbolTable symbols;
+		
+		public DefUseVisitor(int iter, JavaClass[] classInfos, DataDependenceGraph ddg, 
+				Map<ParserRuleContext, Object> pdNodes, SymbolTable symbols) {
+			this(iter, classInfos, ddg, pdNodes, null, -1, symbols);
 			Logger.debug("FILE IS: " + currentFile);
+		}
+		
+		/**
+		 * The analysis units of the given file are recorded in the given schedule
+		 * on the first iteration, for the later iterations.
+		 */
+		public DefUseVisitor(int iter, JavaClass[] classInfos, DataDependenceGraph ddg, 
+				Map<ParserRuleContext, Object> pdNodes, DefUseSchedule schedule, int fileIndex) {
+			this(iter, classInfos, ddg, pdNodes, schedule, fileIndex, schedule.symbols);
+		}
+		
+		/**
+		 * All PDNodes created by the visitor intern their variables in the given symbol table.
+		 */
+		private DefUseVisitor(int iter, JavaClass[] classInfos, DataDependenceGraph ddg, 
+				Map<ParserRuleContext, Object> pdNodes, DefUseSchedule schedule, int fileIndex, SymbolTable symbols) {
+			this.schedule = schedule;
+			this.fileIndex = fileIndex;
+			this.symbols = symbols;
+			currentUnit = null;
 			this.ddg = ddg;
 			changed = false;
 			iteration = iter;
@@ -405,11 +883,47 @@ public class JavaDDGBuilder {
 			activeClasses = new ArrayDeque<>();
 			methodDefInfo = null;
 			methodParams = new JavaField[0];
-			localVars = new ArrayList<>();
+			localVars = new LocalScopes();
+		}
+		
+		/**
+		 * Analyze the given unit once more; i.e. only visit its method declaration,
+		 * in the same context of classes as the first iteration.
+		 */
+		public void visitUnit(DefUseUnit unit) {
+			currentUnit = unit;
+			activeClasses = new ArrayDeque<>(unit.activeClasses);
+			schedule.visiting(unit);
+			visit(unit.declaration);
+		}
+		
+		/**
+		 * Start recording a new analysis unit for the given method declaration,
+		 * if the first iteration is being recorded, and no unit is being recorded.
+		 * Returns true if a new unit is started.
+		 */
+		private boolean startUnit(ParserRuleContext declaration) {
+			if (schedule == null || iteration != 1 || currentUnit != null)
+				return false;
+			currentUnit = new DefUseUnit(fileIndex, declaration, activeClasses);
+			schedule.addUnit(currentUnit);
+			schedule.visiting(currentUnit);
+			return true;
+		}
+		
+		/**
+		 * Record the given DEF-info as being used by the current unit.
+		 */
+		private MethodDefInfo useDefInfo(MethodDefInfo defInfo) {
+			if (currentUnit != null && defInfo != null)
+				currentUnit.reads.add(defInfo);
+			return defInfo;
 		}
 		
 		private void analyseDefUse(PDNode node, ParseTree expression) {
 			Logger.debug("--- ANALYSIS ---");
+			if (currentUnit != null && methodDefInfo != null)
+				currentUnit.writes.add(methodDefInfo);
 			Logger.debug(node.toString());
 			analysisVisit = true;
 			String expr = visit(expression);
@@ -434,10 +948,16 @@ public class JavaDDGBuilder {
 				int status = isDefined(def);
 				if (status > -1) {
 					if (status < 100) {
+						boolean modified = !methodDefInfo.doesArgDEF(status);
 						methodDefInfo.setArgDEF(status, true);
+						if (schedule != null && modified)
+							schedule.modified(methodDefInfo);
 						Logger.debug("Method defines argument #" + status);
 					} else if (status == FIELD) {
+						boolean modified = !methodDefInfo.doesStateDEF();
 						methodDefInfo.setStateDEF(true);
+						if (schedule != null && modified)
+							schedule.modified(methodDefInfo);
 						if (def.startsWith("this."))
 							def = def.substring(5);
 						def = "$THIS." + def;
@@ -495,45 +1015,58 @@ public class JavaDDGBuilder {
 		 * or if the symbol is a method parameter, returns the index of the parameter.
 		 */
 		private int isDefined(String id) {
-			for (int i = 0; i < methodParams.length; ++i)
-				if (methodParams[i].NAME.equals(id))
-					return i;
-			for (JavaField local: localVars)
-				if (local.NAME.equals(id))
-					return LOCAL;
+			int param = getParamIndex(id);
+			if (param > -1)
+				return param;
+			if (localVars.lookup(id) != null)
+				return LOCAL;
 			if (id.startsWith("this."))
 				id = id.substring(5);
-			for (JavaField field: activeClasses.peek().getAllFields())
-				if (field.NAME.equals(id))
-					return FIELD;
+			if (activeClasses.peek().getField(id) != null)
+				return FIELD;
 			for (JavaClass cls: activeClasses)
-				for (JavaField field: cls.getAllFields())
-					if (field.NAME.equals(id))
-						return OUTER;
+				if (cls.getField(id) != null)
+					return OUTER;
 			return -1;
 		}
 		
+		/**
+		 * Returns the index of the method parameter with the given name,
+		 * or -1 if there is no such parameter.
+		 */
+		private int getParamIndex(String id) {
+			if (indexedParams != methodParams) {
+				paramIndexes = new HashMap<>();
+				for (int i = 0; i < methodParams.length; ++i)
+					paramIndexes.putIfAbsent(methodParams[i].NAME, i);
+				indexedParams = methodParams;
+			}
+			Integer index = paramIndexes.get(id);
+			return index == null ? -1 : index;
+		}
+		
 		/**
 		 * Return type of a given symbol.
 		 * Returns null if symbol is not found.
 		 */
 		private String getType(String id) {
 			if (isUsableExpression(id)) {
-				for (JavaField param: methodParams)
-					if (param.NAME.equals(id))
-						return param.TYPE;
-				for (JavaField local: localVars)
-					if (local.NAME.equals(id))
-						return local.TYPE;
+				int param = getParamIndex(id);
+				if (param > -1)
+					return methodParams[param].TYPE;
+				JavaField local = localVars.lookup(id);
+				if (local != null)
+					return local.TYPE;
 				if (id.startsWith("this."))
 					id = id.substring(4);
-				for (JavaField field: activeClasses.peek().getAllFields())
-					if (field.NAME.equals(id))
+				JavaField field = activeClasses.peek().getField(id);
+				if (field != null)
+					return field.TYPE;
+				for (JavaClass cls: activeClasses) {
+					field = cls.getField(id);
+					if (field != null)
 						return field.TYPE;
-				for (JavaClass cls: activeClasses)
-					for (JavaField field: cls.getAllFields())
-						if (field.NAME.equals(id))
-							return field.TYPE;
+				}
 				Logger.debug("getType(" + id + ") : is USABLE but NOT DEFINED");
 				return null;
 			} else {
@@ -563,7 +1096,9 @@ public class JavaDDGBuilder {
 		 * Returns null if not found.
 		 */
 		private MethodDefInfo findDefInfo(String callee, String name, JavaParser.ExpressionListContext ctx) {
-			List<MethodDefInfo> list = methodDEFs.get(name);
+			if (libraryResolver != null)
+				resolveLibraryClass(callee, name);
+			List<MethodDefInfo> list = lookupMethodDEFs(name);
 			Logger.debug("METHOD NAME: " + name);
 			Logger.debug("# found = " + (list == null ? 0 : list.size()));
 			//
@@ -581,80 +1116,23 @@ public class JavaDDGBuilder {
 				return mtd;
 			}
 			//
+			int arity = ctx == null ? -1 : ctx.expression().size();
 			if (callee == null) { // no callee; so search for self methods
 				Logger.debug("NO CALLEE");
-				forEachDefInfo:
-				for (MethodDefInfo mtd : list) {
-					// check package-name
-					if (!mtd.PACKAGE.equals(activeClasses.peek().PACKAGE))
-						continue;
-					// check class-name
-					boolean classNameMatch = false;
-					for (JavaClass cls: activeClasses) {
-						if (mtd.CLASS_NAME.equals(cls.NAME)) {
-							classNameMatch = true;
-							break;
-						}
-					}
-					if (!classNameMatch)
-						continue;
-					// check params-count
-					if (ctx != null && mtd.PARAM_TYPES != null &&
-							mtd.PARAM_TYPES.length != ctx.expression().size())
-						continue;
-					// check params-types
-					if (ctx != null) {
-						String[] argTypes = new String[ctx.expression().size()];
-						for (int i = 0; i < argTypes.length; ++i) {
-							String arg = visit(ctx.expression(i));
-							argTypes[i] = getType(arg);
-						}
-						if (mtd.PARAM_TYPES != null) {
-							for (int i = 0; i < argTypes.length; ++i) {
-								if (argTypes[i] == null)
-									continue;
-								if (!argTypes[i].equals(mtd.PARAM_TYPES[i]))
-									continue forEachDefInfo;
-							}
-						}
-					}
-					return mtd;
-				}
+				List<MethodDefInfo> candidates = new ArrayList<>();
+				for (JavaClass cls: activeClasses)
+					methodDEFs.addOverloads(activeClasses.peek().PACKAGE, cls.NAME, name, arity, candidates);
+				return findMatchingDefInfo(methodDEFs.sort(candidates), ctx);
 			} else if (isDefined(callee) > -1) { // has a defined callee
 				Logger.debug("DEFINED CALLEE");
 				String type = getType(callee);
-				JavaClass cls = allClassInfos.get(type);
+				JavaClass cls = lookupClassInfo(type);
 				if (cls != null && cls.hasMethod(name)) {
-					forEachDefInfo:
-					for (MethodDefInfo mtd : list) {
-						// check package-name
-						if (!mtd.PACKAGE.equals(cls.PACKAGE))
-							continue;
-						// check class-name
-						if (!mtd.CLASS_NAME.equals(cls.NAME)) 
-							continue;
-						// check params-count
-						if (ctx != null && mtd.PARAM_TYPES != null &&
-								mtd.PARAM_TYPES.length != ctx.expression().size())
-							continue;
-						// check params-types
-						if (ctx != null) {
-							String[] argTypes = new String[ctx.expression().size()];
-							for (int i = 0; i < argTypes.length; ++i) {
-								String arg = visit(ctx.expression(i));
-								argTypes[i] = getType(arg);
-							}
-							if (mtd.PARAM_TYPES != null) {
-								for (int i = 0; i < argTypes.length; ++i) {
-									if (argTypes[i] == null)
-										continue;
-									if (!argTypes[i].equals(mtd.PARAM_TYPES[i]))
-										continue forEachDefInfo;
-								}
-							}
-						}
+					List<MethodDefInfo> candidates = new ArrayList<>();
+					methodDEFs.addOverloads(cls.PACKAGE, cls.NAME, name, arity, candidates);
+					MethodDefInfo mtd = findMatchingDefInfo(candidates, ctx);
+					if (mtd != null)
 						return mtd;
-					}
 					Logger.debug("METHOD DEF INFO NOT FOUND!");
 				} else {
 					Logger.debug((cls == null ? 
@@ -670,19 +1148,58 @@ public class JavaDDGBuilder {
 			return null;
 		}
 		
+		/**
+		 * Returns the first of the given candidates which matches the types of the given arguments.
+		 * The argument types are computed only once, and only if there is any candidate.
+		 */
+		private MethodDefInfo findMatchingDefInfo(List<MethodDefInfo> candidates, JavaParser.ExpressionListContext ctx) {
+			String[] argTypes = null;
+			forEachDefInfo:
+			for (MethodDefInfo mtd : candidates) {
+				// check params-types
+				if (ctx != null) {
+					if (argTypes == null) {
+						argTypes = new String[ctx.expression().size()];
+						for (int i = 0; i < argTypes.length; ++i) {
+							String arg = visit(ctx.expression(i));
+							argTypes[i] = getType(arg);
+						}
+					}
+					if (mtd.PARAM_TYPES != null) {
+						for (int i = 0; i < argTypes.length; ++i) {
+							if (argTypes[i] == null)
+								continue;
+							if (!argTypes[i].equals(mtd.PARAM_TYPES[i]))
+								continue forEachDefInfo;
+						}
+					}
+				}
+				return mtd;
+			}
+			return null;
+		}
+		
+		/**
+		 * In lazy mode, resolve the library class which a method-call may need;
+		 * i.e. the class of a defined callee, or the class of a constructor-call.
+		 */
+		private void resolveLibraryClass(String callee, String name) {
+			String type = callee == null ? name : (isDefined(callee) > -1 ? getType(callee) : null);
+			if (type != null && !allClassInfos.containsKey(type))
+				libraryResolver.resolve(type);
+		}
+		
 		/**
 		 * Find and return matching method-definition-info.
 		 * Returns null if not found.
 		 */
 		private MethodDefInfo findDefInfo(String name, String type, JavaField[] params) {
-			List<MethodDefInfo> infoList = methodDEFs.get(name);
+			List<MethodDefInfo> infoList = lookupMethodDEFs(name);
 			if (infoList.size() > 1) {
+				List<MethodDefInfo> candidates = new ArrayList<>();
+				methodDEFs.addOverloads(activeClasses.peek().PACKAGE, activeClasses.peek().NAME, name, -1, candidates);
 				forEachInfo:
-				for (MethodDefInfo info: infoList) {
-					if (!info.PACKAGE.equals(activeClasses.peek().PACKAGE)) 
-						continue;
-					if (!info.CLASS_NAME.equals(activeClasses.peek().NAME)) 
-						continue;
+				for (MethodDefInfo info: candidates) {
 					if ((info.RET_TYPE == null && type != null) || 
 							(info.RET_TYPE != null && type == null)) 
 						continue;
@@ -753,9 +1270,10 @@ public class JavaDDGBuilder {
 		@Override
 		public String visitConstructorDeclaration(JavaParser.ConstructorDeclarationContext ctx) {
 			// Identifier formalParameters ('throws' qualifiedNameList)?  constructorBody
+			boolean unitStarted = startUnit(ctx);
 			PDNode entry;
 			if (iteration == 1) {
-				entry = new PDNode();
+				entry = new PDNode(symbols);
 				entry.setLineOfCode(ctx.getStart().getLine());
 				entry.setCodeStr(ctx.Identifier().getText() + ' ' + getOriginalCodeText(ctx.formalParameters()));
 				entry.setASTNodeList(ctx.formalParameters());
@@ -813,6 +1331,8 @@ public class JavaDDGBuilder {
 			//
 			localVars.clear();
 			methodParams = new JavaField[0];
+			if (unitStarted)
+				currentUnit = null;
 			return null;
 		}
 		
@@ -831,9 +1351,10 @@ public class JavaDDGBuilder {
 			//
 			// lastFormalParameter :  variableModifier* typeType '...' variableDeclaratorId
 			//
+			boolean unitStarted = startUnit(ctx);
 			PDNode entry;
 			if (iteration == 1) {
-				entry = new PDNode();
+				entry = new PDNode(symbols);
 				entry.setLineOfCode(ctx.getStart().getLine());
 				String retType = "void";
 				if (ctx.typeType() != null)
@@ -897,6 +1418,8 @@ public class JavaDDGBuilder {
 			//
 			localVars.clear();
 			methodParams = new JavaField[0];
+			if (unitStarted)
+				currentUnit = null;
 			return null;
 		}
 		
@@ -929,7 +1452,7 @@ public class JavaDDGBuilder {
 			//
 			// TODO: is this located correctly? Or should it be placed after 'if (analysisVisit) ...'
 			for (JavaParser.VariableDeclaratorContext var : ctx.variableDeclarators().variableDeclarator())
-				localVars.add(new JavaField(null, false, visitType(ctx.typeType()), 
+				localVars.declare(new JavaField(null, false, visitType(ctx.typeType()), 
 						var.variableDeclaratorId().Identifier().getText()));
 			//
 			if (analysisVisit)
@@ -937,7 +1460,7 @@ public class JavaDDGBuilder {
 			//
 			PDNode declr;
 			if (iteration == 1) {
-				declr = new PDNode();
+				declr = new PDNode(symbols);
 				declr.setLineOfCode(ctx.getStart().getLine());
 				declr.setCodeStr(getOriginalCodeText(ctx));
 				declr.setASTNodeList(ctx);
@@ -965,8 +1488,7 @@ public class JavaDDGBuilder {
 			//
 			visitChildren(ctx);
 			//
-			if (localVars.size() > entrySize)
-				localVars.subList(entrySize, localVars.size()).clear();
+			localVars.exit(entrySize);
 			return null;
 		}
 		
@@ -978,7 +1500,7 @@ public class JavaDDGBuilder {
 			//
 			PDNode expr;
 			if (iteration == 1) {
-				expr = new PDNode();
+				expr = new PDNode(symbols);
 				expr.setLineOfCode(ctx.getStart().getLine());
 				expr.setCodeStr(getOriginalCodeText(ctx));
 				expr.setASTNodeList(ctx);
@@ -997,7 +1519,7 @@ public class JavaDDGBuilder {
 			// 'if' parExpression statement ('else' statement)?
 			PDNode ifNode;
 			if (iteration == 1) {
-				ifNode = new PDNode();
+				ifNode = new PDNode(symbols);
 				ifNode.setLineOfCode(ctx.getStart().getLine());
 				ifNode.setCodeStr("if " + getOriginalCodeText(ctx.parExpression()));
 				ifNode.setASTNodeList(ctx.parExpression());
@@ -1025,7 +1547,7 @@ public class JavaDDGBuilder {
 				//     variableModifier* typeType variableDeclaratorId ':' expression
 				PDNode forExpr;
 				if (iteration == 1) {
-					forExpr = new PDNode();
+					forExpr = new PDNode(symbols);
 					forExpr.setLineOfCode(ctx.forControl().getStart().getLine());
 					forExpr.setCodeStr("for (" + getOriginalCodeText(ctx.forControl()) + ")");
 					forExpr.setASTNodeList(ctx.forControl());
@@ -1037,7 +1559,7 @@ public class JavaDDGBuilder {
 				// Now analyse DEF-USE by visiting the expression ...
 				String type = visitType(ctx.forControl().enhancedForControl().typeType());
 				String var = ctx.forControl().enhancedForControl().variableDeclaratorId().Identifier().getText();
-				localVars.add(new JavaField(null, false, type, var));
+				localVars.declare(new JavaField(null, false, type, var));
 				changed |= forExpr.addDEF(var);
 				analyseDefUse(forExpr, ctx.forControl().enhancedForControl().expression());
 			} else {
@@ -1046,7 +1568,7 @@ public class JavaDDGBuilder {
 				if (ctx.forControl().forInit() != null) { // non-empty init
 					PDNode forInit;
 					if (iteration == 1) {
-						forInit = new PDNode();
+						forInit = new PDNode(symbols);
 						forInit.setLineOfCode(ctx.forControl().forInit().getStart().getLine());
 						forInit.setCodeStr(getOriginalCodeText(ctx.forControl().forInit()));
 						forInit.setASTNodeList(ctx.forControl().forInit());
@@ -1065,7 +1587,7 @@ public class JavaDDGBuilder {
 				if (ctx.forControl().expression() != null) { // non-empty predicate-expression
 					PDNode forExpr;
 					if (iteration == 1) {
-						forExpr = new PDNode();
+						forExpr = new PDNode(symbols);
 						forExpr.setLineOfCode(ctx.forControl().expression().getStart().getLine());
 						forExpr.setCodeStr("for (" + getOriginalCodeText(ctx.forControl().expression()) + ")");
 						forExpr.setASTNodeList(ctx.forControl().expression());
@@ -1081,7 +1603,7 @@ public class JavaDDGBuilder {
 				if (ctx.forControl().forUpdate() != null) { // non-empty for-update
 					PDNode forUpdate;
 					if (iteration == 1) {
-						forUpdate = new PDNode();
+						forUpdate = new PDNode(symbols);
 						forUpdate.setCodeStr(getOriginalCodeText(ctx.forControl().forUpdate()));
 						forUpdate.setASTNodeList(ctx.forControl().forUpdate());
 						forUpdate.setLineOfCode(ctx.forControl().forUpdate().getStart().getLine());
@@ -1097,8 +1619,7 @@ public class JavaDDGBuilder {
 			// visit for loop body
 			String visit = visit(ctx.statement());
 			// clear any local vars defined in the for loop
-			if (localVars.size() > entrySize)
-				localVars.subList(entrySize, localVars.size()).clear();
+			localVars.exit(entrySize);
 			return visit;
 		}
 		
@@ -1107,7 +1628,7 @@ public class JavaDDGBuilder {
 			// 'while' parExpression statement
 			PDNode whileNode;
 			if (iteration == 1) {
-				whileNode = new PDNode();
+				whileNode = new PDNode(symbols);
 				whileNode.setLineOfCode(ctx.getStart().getLine());
 				whileNode.setCodeStr("while " + getOriginalCodeText(ctx.parExpression()));
 				whileNode.setASTNodeList(ctx.parExpression());
@@ -1129,7 +1650,7 @@ public class JavaDDGBuilder {
 			//
 			PDNode whileNode;
 			if (iteration == 1) {
-				whileNode = new PDNode();
+				whileNode = new PDNode(symbols);
 				whileNode.setLineOfCode(ctx.parExpression().getStart().getLine());
 				whileNode.setCodeStr("while " + getOriginalCodeText(ctx.parExpression()));
 				whileNode.setASTNodeList(ctx.parExpression());
@@ -1149,7 +1670,7 @@ public class JavaDDGBuilder {
 			//  switchBlockStatementGroup :  switchLabel+ blockStatement+
 			PDNode switchNode;
 			if (iteration == 1) {
-				switchNode = new PDNode();
+				switchNode = new PDNode(symbols);
 				switchNode.setLineOfCode(ctx.getStart().getLine());
 				switchNode.setCodeStr("switch " + getOriginalCodeText(ctx.parExpression()));
 				switchNode.setASTNodeList(ctx.parExpression());
@@ -1173,7 +1694,7 @@ public class JavaDDGBuilder {
 			// 'return' expression? ';'
 			PDNode ret;
 			if (iteration == 1) {
-				ret = new PDNode();
+				ret = new PDNode(symbols);
 				ret.setLineOfCode(ctx.getStart().getLine());
 				ret.setCodeStr(getOriginalCodeText(ctx));
 				ret.setASTNodeList(ctx);
@@ -1193,7 +1714,7 @@ public class JavaDDGBuilder {
 			// 'synchronized' parExpression block
 			PDNode syncStmt;
 			if (iteration == 1) {
-				syncStmt = new PDNode();
+				syncStmt = new PDNode(symbols);
 				syncStmt.setLineOfCode(ctx.getStart().getLine());
 				syncStmt.setCodeStr("synchronized " + getOriginalCodeText(ctx.parExpression()));
 				syncStmt.setASTNodeList(ctx.parExpression());
@@ -1213,7 +1734,7 @@ public class JavaDDGBuilder {
 			// 'throw' expression ';'
 			PDNode throwNode;
 			if (iteration == 1) {
-				throwNode = new PDNode();
+				throwNode = new PDNode(symbols);
 				throwNode.setLineOfCode(ctx.getStart().getLine());
 				throwNode.setCodeStr("throw " + getOriginalCodeText(ctx.expression()));
 				throwNode.setASTNodeList(ctx);
@@ -1242,7 +1763,7 @@ public class JavaDDGBuilder {
 				for (JavaParser.CatchClauseContext cx: ctx.catchClause()) {
 					PDNode catchNode;
 					if (iteration == 1) {
-						catchNode = new PDNode();
+						catchNode = new PDNode(symbols);
 						catchNode.setLineOfCode(cx.getStart().getLine());
 						catchNode.setCodeStr("catch (" + cx.catchType().getText() + " " + cx.Identifier().getText() + ")");
 						catchNode.setASTNodeList(cx.catchType());
@@ -1256,7 +1777,7 @@ public class JavaDDGBuilder {
 					String type = cx.catchType().getText();
 					String var = cx.Identifier().getText();
 					JavaField exceptionVar = new JavaField(null, false, type, var);
-					localVars.add(exceptionVar);
+					localVars.declare(exceptionVar);
 					changed |= catchNode.addDEF(var);
 					//
 					visit(cx.block());
@@ -1282,7 +1803,7 @@ public class JavaDDGBuilder {
 			for (JavaParser.ResourceContext rsrx: ctx.resourceSpecification().resources().resource()) {
 				PDNode resource;
 				if (iteration == 1) {
-					resource = new PDNode();
+					resource = new PDNode(symbols);
 					resource.setLineOfCode(rsrx.getStart().getLine());
 					resource.setCodeStr(getOriginalCodeText(rsrx));
 					resource.setASTNodeList(rsrx);
@@ -1294,7 +1815,7 @@ public class JavaDDGBuilder {
 				// Define the resource variable
 				String type = rsrx.classOrInterfaceType().getText();
 				String var = rsrx.variableDeclaratorId().getText();
-				localVars.add(new JavaField(null, false, type, var));
+				localVars.declare(new JavaField(null, false, type, var));
 				//
 				// Now analyse DEF-USE by visiting the expression ...
 				analyseDefUse(resource, rsrx);
@@ -1311,7 +1832,7 @@ public class JavaDDGBuilder {
 				for (JavaParser.CatchClauseContext cx: ctx.catchClause()) {
 					PDNode catchNode;
 					if (iteration == 1) {
-						catchNode = new PDNode();
+						catchNode = new PDNode(symbols);
 						catchNode.setLineOfCode(cx.getStart().getLine());
 						catchNode.setCodeStr("catch (" + cx.catchType().getText() + " " + cx.Identifier().getText() + ")");
 						catchNode.setASTNodeList(cx.catchType());
@@ -1325,7 +1846,7 @@ public class JavaDDGBuilder {
 					String type = cx.catchType().getText();
 					String var = cx.Identifier().getText();
 					JavaField exception = new JavaField(null, false, type, var);
-					localVars.add(exception);
+					localVars.declare(exception);
 					changed |= catchNode.addDEF(var);
 					//
 					visit(cx.block());
@@ -1338,8 +1859,7 @@ public class JavaDDGBuilder {
 				visit(ctx.finallyBlock().block());
 			//			
 			// Remove resources from local vars ...
-			if (localVars.size() > entrySize)
-				localVars.subList(entrySize, localVars.size()).clear();
+			localVars.exit(entrySize);
 			return null;
 		}		
 		
@@ -1520,7 +2040,7 @@ public class JavaDDGBuilder {
 				args.append(arg);
 				if (isUsableExpression(arg)) {
 					useList.add(arg);
-					if (defInfo != null && defInfo.argDEFs()[0])
+					if (defInfo != null && defInfo.doesArgDEF(0))
 						defList.add(arg);
 				}
 				for (int i = 1; i < argsList.size(); ++i) {
@@ -1528,7 +2048,7 @@ public class JavaDDGBuilder {
 					args.append(", ").append(arg);
 					if (isUsableExpression(arg)) {
 						useList.add(arg);
-						if (defInfo != null && defInfo.argDEFs()[i])
+						if (defInfo != null && defInfo.doesArgDEF(i))
 							defList.add(arg);
 					}
 				}
@@ -1565,7 +2085,7 @@ public class JavaDDGBuilder {
 				methodName = callExpression;
 			}
 			//
-			MethodDefInfo defInfo = findDefInfo(callee, methodName, ctx.expressionList());
+			MethodDefInfo defInfo = useDefInfo(findDefInfo(callee, methodName, ctx.expressionList()));
 			Logger.debug("FIND DEF RESULT: " + defInfo);
 			Logger.debug("---");
 			if (callee != null && defInfo != null && defInfo.doesStateDEF())
@@ -1633,7 +2153,7 @@ public class JavaDDGBuilder {
 			} else {
 				// class constructor ...
 				JavaParser.ArgumentsContext argsCtx = ctx.creator().classCreatorRest().arguments();
-				MethodDefInfo defInfo = findDefInfo(null, creator, argsCtx.expressionList());
+				MethodDefInfo defInfo = useDefInfo(findDefInfo(null, creator, argsCtx.expressionList()));
 				rest = '(' + visitMethodArgs(argsCtx.expressionList(), defInfo) + ')';
 			}
 			return "$NEW " + creator + rest;
@@ -1655,7 +2175,7 @@ public class JavaDDGBuilder {
 			String creator = ctx.innerCreator().Identifier().getText();
 			// 3rd process constructor arguments ...
 			JavaParser.ArgumentsContext argsCtx = ctx.innerCreator().classCreatorRest().arguments();
-			MethodDefInfo defInfo = findDefInfo(null, creator, argsCtx.expressionList());
+			MethodDefInfo defInfo = useDefInfo(findDefInfo(null, creator, argsCtx.expressionList()));
 			String rest = '(' + visitMethodArgs(argsCtx.expressionList(), defInfo) + ')';
 			return expression + ".$NEW " + creator + rest;
 		}
@@ -2074,103 +2594,310 @@ public class JavaDDGBuilder {
 		
 	}
 	
-}
-
-
-/**
- * A simple structure to store DEF information about a Java method.
- * 
- * @author Seyed Mohammad Ghaffarian
- */
-class MethodDefInfo {
 	
-	// Method ID
-	public final String NAME;
-	public final String PACKAGE;
-	public final String RET_TYPE;
-	public final String CLASS_NAME;
-	public final String[] PARAM_TYPES;
+	/**
+	 * Index of method DEF-infos by name, and by class (package and class name),
+	 * method name and number of parameters; all in the order they are added.
+	 * So finding the overloads of a method in a given class does not depend on
+	 * the number of methods with the same name in other classes.
+	 */
+	private static class MethodDefIndex {
+		
+		private final Map<String, List<MethodDefInfo>> byName = new HashMap<>();
+		private final Map<String, Map<String, Overloads>> byClass = new HashMap<>();
+		private final Map<MethodDefInfo, Integer> order = new IdentityHashMap<>();
+		
+		void add(MethodDefInfo info) {
+			byName.computeIfAbsent(info.NAME, k -> new ArrayList<>()).add(info);
+			order.putIfAbsent(info, order.size());
+			byClass.computeIfAbsent(info.PACKAGE + ':' + info.CLASS_NAME, k -> new HashMap<>())
+					.computeIfAbsent(info.NAME, k -> new Overloads()).add(info);
+		}
+		
+		/**
+		 * Returns the DEF-infos of all methods with the given name, or null if none.
+		 */
+		List<MethodDefInfo> get(String name) {
+			return byName.get(name);
+		}
+		
+		Set<Map.Entry<String, List<MethodDefInfo>>> entrySet() {
+			return byName.entrySet();
+		}
+		
+		/**
+		 * Add the DEF-infos of the given method of the given class to the given list;
+		 * only those with the given number of parameters, unless it is negative.
+		 */
+		void addOverloads(String pkg, String cls, String name, int paramsCount, List<MethodDefInfo> list) {
+			if (pkg == null || cls == null)
+				return;
+			Map<String, Overloads> methods = byClass.get(pkg + ':' + cls);
+			Overloads overloads = methods == null ? null : methods.get(name);
+			if (overloads == null)
+				return;
+			if (paramsCount < 0)
+				list.addAll(overloads.all);
+			else
+				list.addAll(overloads.byParamsCount.getOrDefault(paramsCount, Collections.emptyList()));
+		}
+		
+		/**
+		 * Sort the given DEF-infos in the order they are added, without duplicates.
+		 */
+		List<MethodDefInfo> sort(List<MethodDefInfo> list) {
+			if (list.size() > 1) {
+				list.sort((info1, info2) -> Integer.compare(order.get(info1), order.get(info2)));
+				for (int i = list.size() - 1; i > 0; --i)
+					if (list.get(i) == list.get(i - 1))
+						list.remove(i);
+			}
+			return list;
+		}
+		
+		/**
+		 * Overloads of a method in a class.
+		 */
+		private static class Overloads {
+			final List<MethodDefInfo> all = new ArrayList<>();
+			final Map<Integer, List<MethodDefInfo>> byParamsCount = new HashMap<>();
+			
+			void add(MethodDefInfo info) {
+				all.add(info);
+				byParamsCount.computeIfAbsent(info.PARAM_TYPES.length, k -> new ArrayList<>()).add(info);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Lexical scopes of the local variables of a method.
+	 * Each variable is found by a single lookup; if there are several
+	 * variables with the same name, the first declared one is found.
+	 */
+	private static class LocalScopes implements Iterable<JavaField> {
+		
+		private final List<JavaField> variables = new ArrayList<>();
+		private final Map<String, Deque<JavaField>> bindings = new HashMap<>();
+		
+		void declare(JavaField var) {
+			variables.add(var);
+			bindings.computeIfAbsent(var.NAME, k -> new ArrayDeque<>()).addLast(var);
+		}
+		
+		JavaField lookup(String name) {
+			Deque<JavaField> vars = bindings.get(name);
+			return vars == null ? null : vars.peekFirst();
+		}
+		
+		/**
+		 * Returns the number of declared variables; which marks the start of a new scope.
+		 */
+		int size() {
+			return variables.size();
+		}
+		
+		/**
+		 * Exit the scope which is started at the given size;
+		 * i.e. remove all variables declared after it.
+		 */
+		void exit(int size) {
+			while (variables.size() > size)
+				unbind(variables.remove(variables.size() - 1), true);
+		}
+		
+		void remove(JavaField var) {
+			int index = variables.indexOf(var);
+			if (index > -1)
+				unbind(variables.remove(index), false);
+		}
+		
+		void clear() {
+			variables.clear();
+			bindings.clear();
+		}
+		
+		private void unbind(JavaField var, boolean last) {
+			Deque<JavaField> vars = bindings.get(var.NAME);
+			if (last)
+				vars.removeLast();
+			else
+				vars.removeFirstOccurrence(var);
+			if (vars.isEmpty())
+				bindings.remove(var.NAME);
+		}
+		
+		@Override
+		public Iterator<JavaField> iterator() {
+			return variables.iterator();
+		}
+	}
 	
-	// DEF Info
-	private boolean stateDEF;
-	private boolean[] argDEFs;
-	private List<String> fieldDEFs;
 	
-	public MethodDefInfo(String ret, String name, String pkg, String cls, String[] args) {
-		NAME = name;
-		RET_TYPE = ret;
-		CLASS_NAME = cls;
-		PACKAGE = pkg == null ? "" : pkg;
-		PARAM_TYPES = args == null ? new String[0] : args;
-		//
-		fieldDEFs = new ArrayList<>(); 
-		stateDEF = guessByTypeOrName(); 
-		argDEFs = new boolean[PARAM_TYPES.length];  // all initialized to 'false'
+	/**
+	 * A unit of the iterative DEF-USE analysis; i.e. a method or constructor declaration
+	 * (including any local classes), along with the method DEF-infos which it reads and writes.
+	 */
+	private static class DefUseUnit {
+		
+		final int file;
+		final ParserRuleContext declaration;
+		final Deque<JavaClass> activeClasses;
+		final Set<MethodDefInfo> reads;
+		final Set<MethodDefInfo> writes;
+		long visitStamp;
+		int visitResolvedCount;
+		
+		DefUseUnit(int file, ParserRuleContext declaration, Deque<JavaClass> activeClasses) {
+			this.file = file;
+			this.declaration = declaration;
+			this.activeClasses = new ArrayDeque<>(activeClasses);
+			reads = Collections.newSetFromMap(new IdentityHashMap<>());
+			writes = Collections.newSetFromMap(new IdentityHashMap<>());
+		}
 	}
-
-	private boolean guessByTypeOrName() {
-		// First check if this method is a constructor ...
-		if (RET_TYPE == null)
-			return true;
-		// If not, then try to guess by method-name ...
-		String[] prefixes = { "set", "put", "add", "insert", "push", "append" };
-		for (String pre: prefixes)
-			if (NAME.toLowerCase().startsWith(pre))
+	
+	
+	/**
+	 * The recorded analysis units, along with the modification stamps of DEF-infos;
+	 * which determine the units that need to be analyzed again.
+	 * A DEF-info must be modified before its modification is recorded, so any 
+	 * unit visited after the record (concurrently or not) observes the change.
+	 */
+	private class DefUseSchedule {
+		
+		final List<DefUseUnit> units = new ArrayList<>();
+		final SymbolTable symbols = new SymbolTable();
+		private final Map<MethodDefInfo, Long> modifications = new IdentityHashMap<>();
+		private long stamp = 0;
+		
+		synchronized void addUnit(DefUseUnit unit) {
+			units.add(unit);
+		}
+		
+		/**
+		 * Sort the units in the order of their files and declarations;
+		 * which does not depend on the order of analyzing the files.
+		 */
+		synchronized void sortUnits() {
+			units.sort((u1, u2) -> u1.file != u2.file ? Integer.compare(u1.file, u2.file) : 
+					Integer.compare(u1.declaration.getStart().getTokenIndex(), u2.declaration.getStart().getTokenIndex()));
+		}
+		
+		synchronized void visiting(DefUseUnit unit) {
+			unit.visitStamp = stamp;
+			unit.visitResolvedCount = libraryResolver == null ? 0 : libraryResolver.getResolvedCount();
+		}
+		
+		synchronized void modified(MethodDefInfo info) {
+			modifications.put(info, ++stamp);
+		}
+		
+		/**
+		 * Checks whether any DEF-info read by the given unit is modified after 
+		 * its last visit; or more library classes are resolved (in the lazy mode).
+		 */
+		synchronized boolean isModified(DefUseUnit unit) {
+			if (libraryResolver != null && libraryResolver.getResolvedCount() != unit.visitResolvedCount)
 				return true;
-		return false;
-	}
-
-	public boolean doesStateDEF() {
-		return stateDEF;
-	}
-
-	public void setStateDEF(boolean stateDef) {
-		stateDEF = stateDef;
-	}
-
-	public boolean[] argDEFs() {
-		return argDEFs;
+			for (MethodDefInfo info: unit.reads) {
+				Long modification = modifications.get(info);
+				if (modification != null && modification > unit.visitStamp)
+					return true;
+			}
+			return false;
+		}
 	}
 	
-	public void setArgDEF(int argIndex, boolean def) {
-		argDEFs[argIndex] = def;
-	}
-
-	public void setAllArgDEFs(boolean[] argDefs) {
-		argDEFs = argDefs;
-	}
-
-	public String[] fieldDEFs() {
-		return fieldDEFs.toArray(new String[fieldDEFs.size()]);
-	}
-
-	public void addFieldDEF(String fieldName) {
-		if (!fieldDEFs.contains(fieldName)) {
-			fieldDEFs.add(fieldName);
-			stateDEF = true;
+	
+	/**
+	 * Resolver of the imported library classes, for the lazy mode.
+	 * The imports are only mapped to the library entries beforehand;
+	 * each entry is loaded (with its method DEF-infos) on its first lookup.
+	 */
+	private class LibraryResolver {
+		
+		private final JavaLibraryIndex index;
+		private final ZipFile zip;
+		private final Map<String, String> classEntries;
+		private int resolvedCount;
+		
+		LibraryResolver(String zipPath, Set<String> rawImports) throws IOException {
+			index = JavaLibraryIndex.forArchive(zipPath);
+			zip = index == null ? new ZipFile(zipPath) : null;
+			resolvedCount = 0;
+			classEntries = new HashMap<>();
+			// single-type imports shadow the classes of package imports
+			for (String qualifiedName: rawImports) {
+				if (!qualifiedName.endsWith(".*")) {
+					String path = qualifiedName.replace('.', '/') + ".java";
+					if (index != null ? index.hasEntry(path) : zip.getEntry(path) != null)
+						classEntries.put(getClassName(path), path);
+				}
+			}
+			for (String qualifiedName: rawImports) {
+				if (qualifiedName.endsWith(".*")) {
+					for (String entry: JavaPackageIndex.forArchive(zipPath).getPackageEntries(qualifiedName))
+						classEntries.putIfAbsent(getClassName(entry), entry);
+				}
+			}
+		}
+		
+		/**
+		 * Load the imported library class of the given name (if any), 
+		 * along with the method DEF-infos of its entry; each entry is loaded once.
+		 */
+		void resolve(String className) {
+			String entry = classEntries.remove(className);
+			if (entry == null)
+				return;
+			++resolvedCount;
+			List<JavaClass> classes = new ArrayList<>();
+			List<MethodDefInfo> defInfos = new ArrayList<>();
+			if (index != null) {
+				classes.addAll(index.getClasses(entry));
+				defInfos.addAll(index.getMethodDefInfos(entry));
+			} else {
+				try {
+					LibrarySummary summary = getLibrarySummary(zip, entry);
+					classes.addAll(Arrays.asList(summary.classes));
+					for (MethodDefInfo info: summary.defInfos)
+						defInfos.add(info.copy());
+				} catch (IOException ex) {
+					Logger.error(ex);
+					return;
+				}
+			}
+			for (JavaClass cls: classes)
+				allClassInfos.putIfAbsent(cls.NAME, cls);
+			for (MethodDefInfo info: defInfos)
+				methodDEFs.add(info);
+		}
+		
+		int getResolvedCount() {
+			return resolvedCount;
+		}
+		
+		void close() throws IOException {
+			if (zip != null)
+				zip.close();
 		}
 	}
 	
-	@Override
-	public boolean equals(Object obj) {
-		if (!(obj instanceof MethodDefInfo))
-			return false;
-		MethodDefInfo info = (MethodDefInfo) obj;
-		return this.NAME.equals(info.NAME) && this.CLASS_NAME.equals(info.CLASS_NAME)
-				&& this.PACKAGE.equals(info.PACKAGE) && this.RET_TYPE.equals(info.RET_TYPE)
-				&& Arrays.equals(this.PARAM_TYPES, info.PARAM_TYPES);
-	}
-
-	@Override
-	public String toString() {
-		String retType = RET_TYPE == null ? "null" : RET_TYPE;
-		String args = PARAM_TYPES == null ? "null" : Arrays.toString(PARAM_TYPES);
-		StringBuilder str = new StringBuilder();
-		str.append("{ TYPE : \"").append(retType).append("\", ");
-		str.append("NAME : \"").append(NAME).append("\", ");
-		str.append("ARGS : ").append(args).append(", ");
-		str.append("CLASS : \"").append(CLASS_NAME).append("\", ");
-		str.append("PACKAGE : \"").append(PACKAGE).append("\" }");
-		return str.toString();
+	
+	/**
+	 * DEF summary of a library entry; i.e. its classes and their method DEF-infos.
+	 * The DEF-infos are only templates, and must be copied for each analysis.
+	 */
+	private static class LibrarySummary {
+		
+		final JavaClass[] classes;
+		final List<MethodDefInfo> defInfos;
+		
+		LibrarySummary(JavaClass[] classes, List<MethodDefInfo> defInfos) {
+			this.classes = classes;
+			this.defInfos = defInfos;
+		}
 	}
+	
 }
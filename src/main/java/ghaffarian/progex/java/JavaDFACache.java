@@ -0,0 +1,620 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RuntimeMetaData;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNConfig;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.ATNSimulator;
+import org.antlr.v4.runtime.atn.ArrayPredictionContext;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.LexerATNConfig;
+import org.antlr.v4.runtime.atn.LexerAction;
+import org.antlr.v4.runtime.atn.LexerActionExecutor;
+import org.antlr.v4.runtime.atn.LexerIndexedCustomAction;
+import org.antlr.v4.runtime.atn.PredictionContext;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.atn.SemanticContext;
+import org.antlr.v4.runtime.atn.SingletonPredictionContext;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+import ghaffarian.nanologger.Logger;
+import ghaffarian.progex.java.parser.JavaLexer;
+import ghaffarian.progex.java.parser.JavaParser;
+
+/**
+ * Persistent cache of the decision DFAs of the Java lexer and parser.
+ *
+ * ANTLR builds the DFA of each decision lazily, while parsing; hence the first
+ * files of each run are parsed much slower than the later ones. This class can
+ * save the warmed-up DFAs (which are shared among all lexer and parser instances)
+ * to a file at the end of a run, and load them back at the start of another run.
+ *
+ * A saved cache is only loaded if it was created using the same grammar and
+ * the same ANTLR runtime version; otherwise it is ignored.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class JavaDFACache {
+
+	private static final int MAGIC = 0x50474446;  // "PGDF"
+	private static final int VERSION = 1;
+
+	// tags of serialized prediction-contexts
+	private static final byte CTX_EMPTY = 0;
+	private static final byte CTX_SINGLETON = 1;
+	private static final byte CTX_ARRAY = 2;
+
+	// tags of serialized semantic-contexts
+	private static final byte SEM_NONE = 0;
+	private static final byte SEM_PREDICATE = 1;
+	private static final byte SEM_PRECEDENCE = 2;
+	private static final byte SEM_AND = 3;
+	private static final byte SEM_OR = 4;
+
+	// reference to the shared error state of ANTLR
+	private static final int ERROR_STATE = -1;
+	private static final int NO_STATE = -2;
+
+	/**
+	 * Save the current DFAs of the Java lexer and parser to the given file.
+	 */
+	public static void save(File cacheFile) throws IOException {
+		JavaLexer lexer = new JavaLexer(new ANTLRInputStream(""));
+		JavaParser parser = new JavaParser(new CommonTokenStream(lexer));
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new GZIPOutputStream(new FileOutputStream(cacheFile))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(RuntimeMetaData.VERSION);
+			out.writeInt(JavaLexer._serializedATN.hashCode());
+			out.writeInt(JavaParser._serializedATN.hashCode());
+			int lexerStates = new DFAWriter(lexer.getATN(), true).write(lexer.getInterpreter().decisionToDFA, out);
+			int parserStates = new DFAWriter(parser.getATN(), false).write(parser.getInterpreter().decisionToDFA, out);
+			Logger.info("DFA cache saved to " + cacheFile.getPath() + " (" +
+					lexerStates + " lexer states, " + parserStates + " parser states)");
+		}
+	}
+
+	/**
+	 * Load the DFAs of the Java lexer and parser from the given cache file.
+	 * This should be called before any Java file is parsed;
+	 * the DFA of any decision which is not empty is left unchanged.
+	 *
+	 * @return true if the cache is loaded; otherwise false.
+	 */
+	public static boolean load(File cacheFile) throws IOException {
+		JavaLexer lexer = new JavaLexer(new ANTLRInputStream(""));
+		JavaParser parser = new JavaParser(new CommonTokenStream(lexer));
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new GZIPInputStream(new FileInputStream(cacheFile))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				Logger.warn("Ignoring invalid DFA cache file: " + cacheFile.getPath());
+				return false;
+			}
+			if (!in.readUTF().equals(RuntimeMetaData.VERSION)
+					|| in.readInt() != JavaLexer._serializedATN.hashCode()
+					|| in.readInt() != JavaParser._serializedATN.hashCode()) {
+				Logger.warn("Ignoring outdated DFA cache file: " + cacheFile.getPath());
+				return false;
+			}
+			ATNSimulator lexerSim = lexer.getInterpreter();
+			int lexerStates = new DFAReader(lexer.getATN(), true, lexerSim.getSharedContextCache())
+					.read(lexer.getInterpreter().decisionToDFA, in);
+			ATNSimulator parserSim = parser.getInterpreter();
+			int parserStates = new DFAReader(parser.getATN(), false, parserSim.getSharedContextCache())
+					.read(parser.getInterpreter().decisionToDFA, in);
+			Logger.info("DFA cache loaded from " + cacheFile.getPath() + " (" +
+					lexerStates + " lexer states, " + parserStates + " parser states)");
+			return true;
+		}
+	}
+
+
+	/**
+	 * Thrown when a DFA includes elements which cannot be saved;
+	 * in such case, the DFA of that decision is not saved at all.
+	 */
+	private static class UnsupportedStateException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		UnsupportedStateException(String msg) {
+			super(msg);
+		}
+	}
+
+
+	/**
+	 * Serializer of the DFAs of a single recognizer.
+	 * Prediction-contexts are shared among all DFAs, and are written once
+	 * before all DFAs, in an order where each parent precedes its children.
+	 */
+	private static class DFAWriter {
+
+		private final ATN atn;
+		private final boolean isLexer;
+		private final Map<PredictionContext, Integer> contextIDs;
+		private final ByteArrayOutputStream contextBytes;
+		private final DataOutputStream contexts;
+
+		DFAWriter(ATN atn, boolean isLexer) {
+			this.atn = atn;
+			this.isLexer = isLexer;
+			contextIDs = new IdentityHashMap<>();
+			contextBytes = new ByteArrayOutputStream();
+			contexts = new DataOutputStream(contextBytes);
+		}
+
+		/**
+		 * Write the given DFAs, and return the total number of written states.
+		 */
+		int write(DFA[] decisionToDFA, DataOutputStream out) throws IOException {
+			int numStates = 0;
+			List<byte[]> dfaBytes = new ArrayList<>(decisionToDFA.length);
+			for (DFA dfa: decisionToDFA) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				List<DFAState> states;
+				synchronized (dfa.states) {
+					states = new ArrayList<>(dfa.states.values());
+				}
+				try {
+					writeDFA(dfa, states, new DataOutputStream(bytes));
+					numStates += states.size();
+				} catch (UnsupportedStateException ex) {
+					Logger.debug("DFA of decision " + dfa.decision + " is not saved: " + ex.getMessage());
+					bytes.reset();
+					writeEmptyDFA(dfa, new DataOutputStream(bytes));
+				}
+				dfaBytes.add(bytes.toByteArray());
+			}
+			out.writeInt(contextIDs.size());
+			contextBytes.writeTo(out);
+			out.writeInt(dfaBytes.size());
+			for (byte[] bytes: dfaBytes)
+				out.write(bytes);
+			return numStates;
+		}
+
+		private void writeDFA(DFA dfa, List<DFAState> states, DataOutputStream out)
+				throws IOException, UnsupportedStateException {
+			Map<DFAState, Integer> stateIndex = new IdentityHashMap<>();
+			for (DFAState state: states)
+				stateIndex.put(state, stateIndex.size());
+			out.writeInt(dfa.decision);
+			out.writeInt(states.size());
+			for (DFAState state: states)
+				writeState(state, out);
+			for (DFAState state: states)
+				writeEdges(state.edges, stateIndex, out);
+			if (dfa.isPrecedenceDfa())
+				writeEdges(states.isEmpty() ? null : dfa.s0.edges, stateIndex, out);
+			else
+				out.writeInt(stateRef(dfa.s0, stateIndex));
+		}
+
+		private void writeEmptyDFA(DFA dfa, DataOutputStream out) throws IOException {
+			out.writeInt(dfa.decision);
+			out.writeInt(0);
+			if (dfa.isPrecedenceDfa())
+				out.writeInt(-1);
+			else
+				out.writeInt(NO_STATE);
+		}
+
+		private void writeState(DFAState state, DataOutputStream out)
+				throws IOException, UnsupportedStateException {
+			out.writeInt(state.stateNumber);
+			out.writeBoolean(state.isAcceptState);
+			out.writeInt(state.prediction);
+			out.writeBoolean(state.requiresFullContext);
+			writeExecutor(state.lexerActionExecutor, out);
+			if (state.predicates == null) {
+				out.writeInt(-1);
+			} else {
+				out.writeInt(state.predicates.length);
+				for (DFAState.PredPrediction pred: state.predicates) {
+					writeSemanticContext(pred.pred, out);
+					out.writeInt(pred.alt);
+				}
+			}
+			ATNConfigSet configs = state.configs;
+			out.writeBoolean(configs.fullCtx);
+			out.writeInt(configs.uniqueAlt);
+			out.writeBoolean(configs.hasSemanticContext);
+			out.writeBoolean(configs.dipsIntoOuterContext);
+			out.writeInt(configs.size());
+			for (ATNConfig config: configs.elements()) {
+				out.writeInt(config.state.stateNumber);
+				out.writeInt(config.alt);
+				out.writeInt(contextID(config.context));
+				out.writeInt(config.reachesIntoOuterContext);
+				writeSemanticContext(config.semanticContext, out);
+				if (isLexer) {
+					LexerATNConfig lexerConfig = (LexerATNConfig) config;
+					out.writeBoolean(lexerConfig.hasPassedThroughNonGreedyDecision());
+					writeExecutor(lexerConfig.getLexerActionExecutor(), out);
+				}
+			}
+		}
+
+		private void writeEdges(DFAState[] edges, Map<DFAState, Integer> stateIndex,
+				DataOutputStream out) throws IOException {
+			if (edges == null) {
+				out.writeInt(-1);
+				return;
+			}
+			int count = 0;
+			for (DFAState target: edges)
+				if (target != null && stateRef(target, stateIndex) != NO_STATE)
+					++count;
+			out.writeInt(edges.length);
+			out.writeInt(count);
+			for (int i = 0; i < edges.length; ++i) {
+				if (edges[i] != null) {
+					int ref = stateRef(edges[i], stateIndex);
+					if (ref != NO_STATE) {
+						out.writeInt(i);
+						out.writeInt(ref);
+					}
+				}
+			}
+		}
+
+		private int stateRef(DFAState state, Map<DFAState, Integer> stateIndex) {
+			if (state == null)
+				return NO_STATE;
+			if (state == ATNSimulator.ERROR)
+				return ERROR_STATE;
+			Integer idx = stateIndex.get(state);
+			return idx == null ? NO_STATE : idx;
+		}
+
+		private int contextID(PredictionContext ctx) throws IOException {
+			if (ctx == null)
+				return -1;
+			Integer id = contextIDs.get(ctx);
+			if (id != null)
+				return id;
+			if (ctx == PredictionContext.EMPTY) {
+				contexts.writeByte(CTX_EMPTY);
+			} else if (ctx instanceof SingletonPredictionContext) {
+				SingletonPredictionContext singleton = (SingletonPredictionContext) ctx;
+				int parent = contextID(singleton.parent);
+				contexts.writeByte(CTX_SINGLETON);
+				contexts.writeInt(parent);
+				contexts.writeInt(singleton.returnState);
+			} else {
+				ArrayPredictionContext array = (ArrayPredictionContext) ctx;
+				int[] parents = new int[array.parents.length];
+				for (int i = 0; i < parents.length; ++i)
+					parents[i] = contextID(array.parents[i]);
+				contexts.writeByte(CTX_ARRAY);
+				contexts.writeInt(parents.length);
+				for (int i = 0; i < parents.length; ++i) {
+					contexts.writeInt(parents[i]);
+					contexts.writeInt(array.returnStates[i]);
+				}
+			}
+			id = contextIDs.size();
+			contextIDs.put(ctx, id);
+			return id;
+		}
+
+		private void writeSemanticContext(SemanticContext sem, DataOutputStream out)
+				throws IOException, UnsupportedStateException {
+			if (sem == SemanticContext.NONE) {
+				out.writeByte(SEM_NONE);
+			} else if (sem instanceof SemanticContext.Predicate) {
+				SemanticContext.Predicate pred = (SemanticContext.Predicate) sem;
+				out.writeByte(SEM_PREDICATE);
+				out.writeInt(pred.ruleIndex);
+				out.writeInt(pred.predIndex);
+				out.writeBoolean(pred.isCtxDependent);
+			} else if (sem instanceof SemanticContext.PrecedencePredicate) {
+				out.writeByte(SEM_PRECEDENCE);
+				out.writeInt(((SemanticContext.PrecedencePredicate) sem).precedence);
+			} else if (sem instanceof SemanticContext.AND) {
+				SemanticContext[] opnds = ((SemanticContext.AND) sem).opnds;
+				out.writeByte(SEM_AND);
+				out.writeInt(opnds.length);
+				for (SemanticContext opnd: opnds)
+					writeSemanticContext(opnd, out);
+			} else if (sem instanceof SemanticContext.OR) {
+				SemanticContext[] opnds = ((SemanticContext.OR) sem).opnds;
+				out.writeByte(SEM_OR);
+				out.writeInt(opnds.length);
+				for (SemanticContext opnd: opnds)
+					writeSemanticContext(opnd, out);
+			} else {
+				throw new UnsupportedStateException("semantic-context " + sem.getClass().getName());
+			}
+		}
+
+		private void writeExecutor(LexerActionExecutor executor, DataOutputStream out)
+				throws IOException, UnsupportedStateException {
+			if (executor == null) {
+				out.writeInt(-1);
+				return;
+			}
+			LexerAction[] actions = executor.getLexerActions();
+			out.writeInt(actions.length);
+			for (LexerAction action: actions) {
+				int offset = -1;
+				if (action instanceof LexerIndexedCustomAction) {
+					offset = ((LexerIndexedCustomAction) action).getOffset();
+					action = ((LexerIndexedCustomAction) action).getAction();
+				}
+				out.writeInt(offset);
+				out.writeInt(lexerActionIndex(action));
+			}
+		}
+
+		private int lexerActionIndex(LexerAction action) throws UnsupportedStateException {
+			for (int i = 0; i < atn.lexerActions.length; ++i)
+				if (atn.lexerActions[i].equals(action))
+					return i;
+			throw new UnsupportedStateException("lexer-action " + action);
+		}
+	}
+
+
+	/**
+	 * Deserializer of the DFAs of a single recognizer.
+	 */
+	private static class DFAReader {
+
+		private final ATN atn;
+		private final boolean isLexer;
+		private final PredictionContextCache contextCache;
+		private PredictionContext[] contexts;
+
+		DFAReader(ATN atn, boolean isLexer, PredictionContextCache contextCache) {
+			this.atn = atn;
+			this.isLexer = isLexer;
+			this.contextCache = contextCache;
+		}
+
+		/**
+		 * Read the DFAs into the given array, and return the total number of loaded states.
+		 */
+		int read(DFA[] decisionToDFA, DataInputStream in) throws IOException {
+			contexts = new PredictionContext[in.readInt()];
+			for (int i = 0; i < contexts.length; ++i)
+				contexts[i] = readContext(in);
+			int numStates = 0;
+			int numDFAs = in.readInt();
+			if (numDFAs != decisionToDFA.length)
+				throw new IOException("Mismatching number of decisions in DFA cache!");
+			for (int d = 0; d < numDFAs; ++d) {
+				DFA dfa = decisionToDFA[in.readInt()];
+				DFAState[] states = new DFAState[in.readInt()];
+				for (int i = 0; i < states.length; ++i)
+					states[i] = readState(in);
+				for (DFAState state: states)
+					state.edges = readEdges(states, in);
+				DFAState[] precedenceEdges = null;
+				DFAState s0 = null;
+				if (dfa.isPrecedenceDfa())
+					precedenceEdges = readEdges(states, in);
+				else
+					s0 = stateOf(in.readInt(), states);
+				// only fill empty DFAs; the others are already warmed-up
+				synchronized (dfa.states) {
+					if (states.length == 0 || !dfa.states.isEmpty())
+						continue;
+					for (DFAState state: states)
+						dfa.states.put(state, state);
+					if (dfa.isPrecedenceDfa()) {
+						if (precedenceEdges != null)
+							dfa.s0.edges = precedenceEdges;
+					} else {
+						dfa.s0 = s0;
+					}
+				}
+				numStates += states.length;
+			}
+			return numStates;
+		}
+
+		private PredictionContext readContext(DataInputStream in) throws IOException {
+			PredictionContext ctx;
+			switch (in.readByte()) {
+				case CTX_EMPTY:
+					return PredictionContext.EMPTY;
+				case CTX_SINGLETON:
+					PredictionContext parent = contextOf(in.readInt());
+					ctx = SingletonPredictionContext.create(parent, in.readInt());
+					break;
+				case CTX_ARRAY:
+					int size = in.readInt();
+					PredictionContext[] parents = new PredictionContext[size];
+					int[] returnStates = new int[size];
+					for (int i = 0; i < size; ++i) {
+						parents[i] = contextOf(in.readInt());
+						returnStates[i] = in.readInt();
+					}
+					ctx = new ArrayPredictionContext(parents, returnStates);
+					break;
+				default:
+					throw new IOException("Invalid prediction-context in DFA cache!");
+			}
+			return contextCache.add(ctx);
+		}
+
+		private PredictionContext contextOf(int id) {
+			return id < 0 ? null : contexts[id];
+		}
+
+		private DFAState readState(DataInputStream in) throws IOException {
+			int stateNumber = in.readInt();
+			boolean isAcceptState = in.readBoolean();
+			int prediction = in.readInt();
+			boolean requiresFullContext = in.readBoolean();
+			LexerActionExecutor executor = readExecutor(in);
+			DFAState.PredPrediction[] predicates = null;
+			int numPredicates = in.readInt();
+			if (numPredicates >= 0) {
+				predicates = new DFAState.PredPrediction[numPredicates];
+				for (int i = 0; i < numPredicates; ++i) {
+					SemanticContext pred = readSemanticContext(in);
+					predicates[i] = new DFAState.PredPrediction(pred, in.readInt());
+				}
+			}
+			boolean fullCtx = in.readBoolean();
+			int uniqueAlt = in.readInt();
+			boolean hasSemanticContext = in.readBoolean();
+			boolean dipsIntoOuterContext = in.readBoolean();
+			int numConfigs = in.readInt();
+			ATNConfigSet configs = new SavedConfigSet(fullCtx);
+			for (int i = 0; i < numConfigs; ++i) {
+				ATNConfig config;
+				int atnState = in.readInt();
+				int alt = in.readInt();
+				PredictionContext context = contextOf(in.readInt());
+				int reachesIntoOuterContext = in.readInt();
+				SemanticContext sem = readSemanticContext(in);
+				if (isLexer) {
+					boolean passedThroughNonGreedy = in.readBoolean();
+					config = newLexerConfig(atnState, alt, context, passedThroughNonGreedy, readExecutor(in));
+				} else {
+					config = new ATNConfig(atn.states.get(atnState), alt, context, sem);
+				}
+				config.reachesIntoOuterContext = reachesIntoOuterContext;
+				// configs are unique already; so bypass the merging of contexts
+				configs.configs.add(config);
+			}
+			configs.uniqueAlt = uniqueAlt;
+			configs.hasSemanticContext = hasSemanticContext;
+			configs.dipsIntoOuterContext = dipsIntoOuterContext;
+			if (requiresFullContext)
+				((SavedConfigSet) configs).setConflictingAlts(
+						PredictionMode.getAlts(PredictionMode.getConflictingAltSubsets(configs)));
+			configs.setReadonly(true);
+			//
+			DFAState state = new DFAState(configs);
+			state.stateNumber = stateNumber;
+			state.isAcceptState = isAcceptState;
+			state.prediction = prediction;
+			state.requiresFullContext = requiresFullContext;
+			state.lexerActionExecutor = executor;
+			state.predicates = predicates;
+			return state;
+		}
+
+		/**
+		 * Create a lexer ATN-config; the 'passedThroughNonGreedyDecision' flag
+		 * can only be set by passing the config through a non-greedy decision.
+		 */
+		private LexerATNConfig newLexerConfig(int atnState, int alt, PredictionContext context,
+				boolean passedThroughNonGreedy, LexerActionExecutor executor) throws IOException {
+			LexerATNConfig config = new LexerATNConfig(atn.states.get(atnState), alt, context);
+			if (passedThroughNonGreedy) {
+				DecisionState nonGreedy = null;
+				for (DecisionState decision: atn.decisionToState) {
+					if (decision.nonGreedy) {
+						nonGreedy = decision;
+						break;
+					}
+				}
+				if (nonGreedy == null)
+					throw new IOException("Invalid lexer config in DFA cache!");
+				config = new LexerATNConfig(config, nonGreedy);
+			}
+			return new LexerATNConfig(config, atn.states.get(atnState), executor);
+		}
+
+		private DFAState[] readEdges(DFAState[] states, DataInputStream in) throws IOException {
+			int length = in.readInt();
+			if (length < 0)
+				return null;
+			DFAState[] edges = new DFAState[length];
+			int count = in.readInt();
+			for (int i = 0; i < count; ++i) {
+				int idx = in.readInt();
+				edges[idx] = stateOf(in.readInt(), states);
+			}
+			return edges;
+		}
+
+		private DFAState stateOf(int ref, DFAState[] states) {
+			if (ref == ERROR_STATE)
+				return ATNSimulator.ERROR;
+			if (ref == NO_STATE)
+				return null;
+			return states[ref];
+		}
+
+		private SemanticContext readSemanticContext(DataInputStream in) throws IOException {
+			switch (in.readByte()) {
+				case SEM_NONE:
+					return SemanticContext.NONE;
+				case SEM_PREDICATE:
+					int ruleIndex = in.readInt();
+					int predIndex = in.readInt();
+					return new SemanticContext.Predicate(ruleIndex, predIndex, in.readBoolean());
+				case SEM_PRECEDENCE:
+					return new SemanticContext.PrecedencePredicate(in.readInt());
+				case SEM_AND:
+					int numAnd = in.readInt();
+					SemanticContext and = readSemanticContext(in);
+					for (int i = 1; i < numAnd; ++i)
+						and = new SemanticContext.AND(and, readSemanticContext(in));
+					return and;
+				case SEM_OR:
+					int numOr = in.readInt();
+					SemanticContext or = readSemanticContext(in);
+					for (int i = 1; i < numOr; ++i)
+						or = new SemanticContext.OR(or, readSemanticContext(in));
+					return or;
+				default:
+					throw new IOException("Invalid semantic-context in DFA cache!");
+			}
+		}
+
+		private LexerActionExecutor readExecutor(DataInputStream in) throws IOException {
+			int numActions = in.readInt();
+			if (numActions < 0)
+				return null;
+			LexerAction[] actions = new LexerAction[numActions];
+			for (int i = 0; i < numActions; ++i) {
+				int offset = in.readInt();
+				LexerAction action = atn.lexerActions[in.readInt()];
+				actions[i] = offset < 0 ? action : new LexerIndexedCustomAction(offset, action);
+			}
+			return new LexerActionExecutor(actions);
+		}
+	}
+
+
+	/**
+	 * A config-set which allows setting the conflicting alternatives.
+	 */
+	private static class SavedConfigSet extends ATNConfigSet {
+		SavedConfigSet(boolean fullCtx) {
+			super(fullCtx);
+		}
+		void setConflictingAlts(BitSet alts) {
+			conflictingAlts = alts;
+		}
+	}
+}
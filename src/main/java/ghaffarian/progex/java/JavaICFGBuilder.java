@@ -2,42 +2,116 @@
 package ghaffarian.progex.java;
 
 import ghaffarian.graphs.*;
+import ghaffarian.nanologger.Logger;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
 import org.antlr.v4.runtime.ParserRuleContext;
-import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import ghaffarian.progex.graphs.cfg.CFEdge;
 import ghaffarian.progex.graphs.cfg.CFNode;
 import ghaffarian.progex.graphs.cfg.ControlFlowGraph;
+import ghaffarian.progex.graphs.cg.CGEdge;
+import ghaffarian.progex.graphs.cg.CGNode;
+import ghaffarian.progex.graphs.cg.CallGraph;
 import ghaffarian.progex.java.parser.JavaBaseVisitor;
-import ghaffarian.progex.java.parser.JavaLexer;
 import ghaffarian.progex.java.parser.JavaParser;
 
 /**
  * A Interprocedural Control Flow Graph (ICFG) builder for Java programs. 
  * A Java parser generated via ANTLRv4 is used
  * for this purpose. This implementation is based on ANTLRv4's Visitor pattern.
+ * 
+ * A builder is reusable, and keeps no state of its builds; the classes of each 
+ * project are only used during its build. The class-infos of the 'java.lang' 
+ * package are loaded once, and shared (read-only) among all builds.
+ * 
+ * Virtual calls are resolved by class hierarchy analysis (CHA); i.e. a call is linked
+ * to the overriding methods of all sub-types of the receiver class, too. Optionally,
+ * rapid type analysis (RTA) limits the overriding methods to the classes which are
+ * instantiated somewhere in the project.
+ * 
+ * If entry-point patterns are given, the ICFG is built on demand; i.e. starting from
+ * the matching methods, the reachable methods are expanded along the resolved calls,
+ * and only the files declaring reachable methods are analyzed (and get CFGs). 
+ * The resulting ICFG only contains the reachable methods.
  *
  * @author Hossein Homaei, Seyed Mohammad Ghaffarian
  */
 public class JavaICFGBuilder {
 
-	private static ArrayList<JavaClass> javaClasses = new ArrayList<>();
-	private static ArrayList<JavaClass> alwaysAvailableClasses = new ArrayList<>();
-	private static ArrayList<JavaClass> currentFileClasses = new ArrayList<>();
+	private static volatile ClassIndex javaLangClasses;
+
+	private final boolean rapidTypeAnalysis;
+	private final Pattern[] entryPoints;
+
+	/**
+	 * Create a builder which uses CHA for resolving virtual calls,
+	 * and builds the ICFG of all methods.
+	 */
+	public JavaICFGBuilder() {
+		this(false, null);
+	}
+
+	/**
+	 * Create a builder which uses RTA for resolving virtual calls, if specified.
+	 */
+	public JavaICFGBuilder(boolean rapidTypeAnalysis) {
+		this(rapidTypeAnalysis, null);
+	}
+
+	/**
+	 * Create a builder which uses RTA for resolving virtual calls, if specified;
+	 * and builds the ICFG on demand from the given entry-points, if not null.
+	 * 
+	 * An entry-point pattern is matched against the qualified name of methods
+	 * (e.g. 'pkg.Class.method'), and may contain '*' wildcards; a pattern without
+	 * any dot is only matched against the method name (e.g. 'main', 'do*').
+	 */
+	public JavaICFGBuilder(boolean rapidTypeAnalysis, String[] entryPoints) {
+		this.rapidTypeAnalysis = rapidTypeAnalysis;
+		if (entryPoints == null) {
+			this.entryPoints = null;
+		} else {
+			this.entryPoints = new Pattern[entryPoints.length];
+			for (int i = 0; i < entryPoints.length; ++i) {
+				// the wildcards match any sequence of characters;
+				// and a pattern without any dot, only matches the method name.
+				String[] parts = entryPoints[i].trim().split("\\*", -1);
+				StringBuilder regex = new StringBuilder();
+				if (!entryPoints[i].contains("."))
+					regex.append("(.*\\.)?");
+				for (int p = 0; p < parts.length; ++p) {
+					if (p > 0)
+						regex.append(".*");
+					if (!parts[p].isEmpty())
+						regex.append(Pattern.quote(parts[p]));
+				}
+				this.entryPoints[i] = Pattern.compile(regex.toString());
+			}
+		}
+	}
 
 	public static ControlFlowGraph buildForAll(String[] javaFilePaths) throws IOException {
 		File[] javaFiles = new File[javaFilePaths.length];
@@ -47,116 +121,244 @@ public class JavaICFGBuilder {
 	}
 
 	public static ControlFlowGraph buildForAll(File[] javaFiles) throws IOException {
-		//Map<ParserRuleContext, MethodKey>[] ctxToKey = new Map<ParserRuleContext, MethodKey>[files.length];
-		// Parse all Java source files
-		ParseTree[] parseTrees = new ParseTree[javaFiles.length];
-		for (int i = 0; i < javaFiles.length; i++) {
-			InputStream is = new FileInputStream(javaFiles[i]);
-			ANTLRInputStream input = new ANTLRInputStream(is);
-			JavaLexer lexer = new JavaLexer(input);
-			CommonTokenStream tokens = new CommonTokenStream(lexer);
-			JavaParser parser = new JavaParser(tokens);
-			parseTrees[i] = parser.compilationUnit();
-		}
+		return buildForAll(new JavaArtifactCache(javaFiles, 1));
+	}
 
-		//Extract all class-info
-		for (File javaFile : javaFiles) {
-			try {
-				for (JavaClass jc : JavaClassExtractor.extractInfo(javaFile)) 
-					javaClasses.add(jc);
-			} catch (IOException ex) {
-				System.err.println(ex);
+	/**
+	 * Build and return the ICFG of all Java files of the given artifact-cache,
+	 * using a new builder.
+	 */
+	public static ControlFlowGraph buildForAll(JavaArtifactCache artifacts) throws IOException {
+		return new JavaICFGBuilder().build(artifacts);
+	}
+
+	/**
+	 * Returns the index of the class-infos of the 'java.lang' package, which are always available.
+	 * The index is built on the first call, and is not modified afterwards.
+	 */
+	private static ClassIndex getJavaLangClasses() throws IOException {
+		ClassIndex classes = javaLangClasses;
+		if (classes == null) {
+			synchronized (JavaICFGBuilder.class) {
+				classes = javaLangClasses;
+				if (classes == null) {
+					classes = new ClassIndex(JavaClassExtractor.extractJavaLangInfo());
+					javaLangClasses = classes;
+				}
 			}
 		}
+		return classes;
+	}
+
+	/**
+	 * Build and return the ICFG of all Java files of the given artifact-cache.
+	 * The parse-trees, class-infos and CFGs of the files are taken from the cache.
+	 */
+	public ControlFlowGraph build(JavaArtifactCache artifacts) throws IOException {
+		// Parse all Java source files; even on demand, the class-infos of all files 
+		// are needed for finding the entry-points and resolving the calls.
+		artifacts.parseAll();
+		File[] javaFiles = artifacts.getAcceptedFiles();
+
+		//Extract all class-info (and interface-info), and index them
+		List<List<JavaClass>> fileClasses = getFileClasses(artifacts, javaFiles);
+		ArrayList<JavaClass> classesList = new ArrayList<>();
+		for (List<JavaClass> classes : fileClasses)
+			classesList.addAll(classes);
+		ClassIndex javaClasses = new ClassIndex(classesList);
 		//Extract Java Lang class Info
-		alwaysAvailableClasses.addAll(JavaClassExtractor.extractJavaLangInfo());
+		ClassIndex alwaysAvailableClasses = getJavaLangClasses();
 
 		// for each Parse-Tree, construct visitor and call visit(tree) 
 		//    returns: Map<ParserRuleContext, MethodKey> 'ctxToKey' per each java file		
-		Map<ParserRuleContext, Object>[] ctxToKey = new Map[parseTrees.length];
-		for (int i = 0; i < parseTrees.length; i++) 
-			ctxToKey[i] = new IdentityHashMap<>();
-
-		for (int i = 0; i < parseTrees.length; i++) {
-			currentFileClasses.clear();
-			currentFileClasses.addAll(JavaClassExtractor.extractInfo(javaFiles[i]));
-			ICFGVisitor icfgvisit = new ICFGVisitor();
-			icfgvisit.visit(parseTrees[i]);
-			ctxToKey[i] = icfgvisit.getMap();
-		}
-		//for each parse-tree, build CFG using 'ctxToKey'[i] as the Contextual-Property map
-		//    and use the string "calls" as the Contextual-Property key	
-		ControlFlowGraph[] cfgs = new ControlFlowGraph[javaFiles.length];;
-		for (int i = 0; i < javaFiles.length; i++) 
-			cfgs[i] = JavaCFGBuilder.build(javaFiles[i].getName(), parseTrees[i], "calls", ctxToKey[i]);
+		// then, map the keys to the nodes of the CFG of the file, in 'nodeCalls';
+		//    the nodes with called keys are the call-sites of the file.
+		// Files are processed concurrently, since each only modifies its own CFG.
+		ControlFlowGraph[] cfgs = new ControlFlowGraph[javaFiles.length];
+		List<List<CFNode>> callSites = new ArrayList<>(Collections.nCopies(javaFiles.length, null));
+		List<Set<String>> instantiatedClasses = new ArrayList<>(Collections.nCopies(javaFiles.length, null));
+		// the keys of the methods called at each call-site
+		Map<CFNode, List<MethodKey>> nodeCalls = Collections.synchronizedMap(new IdentityHashMap<>());
+		// the exit-points of each method entry, as recorded by the CFG builder
+		Map<CFNode, List<CFNode>> entryExits = Collections.synchronizedMap(new IdentityHashMap<>());
+		// the package of each method entry; the CFGs are shared, so their nodes are not modified
+		Map<CFNode, String> entryPackages = Collections.synchronizedMap(new IdentityHashMap<>());
+		IntFunction<Callable<Void>> fileTask = f -> () -> {
+			ICFGVisitor icfgvisit = new ICFGVisitor(javaClasses, alwaysAvailableClasses, fileClasses.get(f));
+			icfgvisit.visit(artifacts.getParseTree(javaFiles[f]));
+			instantiatedClasses.set(f, icfgvisit.getInstantiatedClasses());
+			cfgs[f] = artifacts.getCFG(javaFiles[f]);
+			Map<CFNode, List<MethodKey>> fileCalls = artifacts.getNodeProperties(javaFiles[f], icfgvisit.getContextCalls());
+			callSites.set(f, new ArrayList<>(fileCalls.keySet()));
+			nodeCalls.putAll(fileCalls);
+			String packageName = cfgs[f].getPackage() != null ? cfgs[f].getPackage() : "";
+			for (CFNode entry : cfgs[f].getAllMethodEntries())
+				entryPackages.put(entry, packageName);
+			entryExits.putAll(artifacts.getMethodExits(javaFiles[f]));
+			return null;
+		};
+
+		// the targets of each called method are resolved using the class hierarchy;
+		// in case of RTA, only the sub-types which are instantiated are considered.
+		Set<String> instantiated = rapidTypeAnalysis ? new HashSet<>() : null;
+		ClassHierarchy hierarchy = new ClassHierarchy(classesList, javaClasses, alwaysAvailableClasses, instantiated);
+		// the method entries of analyzed files, by their keys
+		Map<MethodKey, CFNode> keyToEntry = new HashMap<>();
 
 		// Build a new Control-Flow-Graph which is the ICFG
-		// first, add each cfg to the icfg + the NotImplemented node 
-		// then, add all method entries to the ICFG graph
 		ControlFlowGraph icfg = new ControlFlowGraph("ICFG.java");
-//		CFNode notImplemented = new CFNode();
-//		notImplemented.setLineOfCode(0);
-//		notImplemented.setCode("Not Implemented");
-//		notImplemented.setProperty("class", "Not Implemented");
-//		notImplemented.setProperty("name", "notImplemented");
-//		ArrayList<CFNode> temp = new ArrayList<>();
-//		temp.add(notImplemented);
-//		notImplemented.setProperty("exits", temp);
-//		icfg.addVertex(notImplemented);
-//		icfg.addMethodEntry(notImplemented);
-
-		for (ControlFlowGraph cfg : cfgs) {
-			for (CFNode entry : cfg.getAllMethodEntries()) {
-				if (cfg.getPackage() != null) {
-					entry.setProperty("packageName", cfg.getPackage());
-				} else {
-					entry.setProperty("packageName", "");
+		List<List<CFNode>> icfgCallSites = new ArrayList<>();
+		if (entryPoints == null) {
+			List<Callable<Void>> tasks = new ArrayList<>(javaFiles.length);
+			for (int i = 0; i < javaFiles.length; i++)
+				tasks.add(fileTask.apply(i));
+			runAll(tasks, artifacts.getNumThreads());
+			// first, add each cfg to the icfg (once) 
+			// then, add all method entries to the ICFG graph;
+			// the exit-points of each method entry are recorded by the CFG builder.
+			for (int f = 0; f < javaFiles.length; f++) {
+				if (instantiated != null)
+					instantiated.addAll(instantiatedClasses.get(f));
+				CFNode[] cfgEntries = cfgs[f].getAllMethodEntries();
+				if (cfgEntries.length == 0)
+					continue;
+				icfg.addGraph(cfgs[f]);
+				for (CFNode entry : cfgEntries) {
+					icfg.addMethodEntry(entry);
+					keyToEntry.put(getMethodKey(entry, entryPackages.get(entry)), entry);
+				}
+			}
+			icfgCallSites.addAll(callSites);
+		} else {
+			// Demand-driven construction: starting from the entry-point methods,
+			// the reachable methods are expanded along the resolved calls;
+			// and only the files which declare a reachable method are analyzed.
+			boolean[] analyzed = new boolean[javaFiles.length];
+			Set<Integer> pending = new TreeSet<>();
+			Map<String, Integer> fileIndex = new HashMap<>();
+			for (int f = 0; f < javaFiles.length; f++) {
+				fileIndex.put(javaFiles[f].getAbsolutePath(), f);
+				for (JavaClass cls : fileClasses.get(f))
+					for (JavaMethod method : cls.getAllMethods())
+						if (isEntryPoint(cls.PACKAGE, cls.NAME, method.NAME))
+							pending.add(f);
+			}
+			// the nodes of each reachable method, by its entry
+			Map<CFNode, List<CFNode>> reached = new HashMap<>();
+			Map<CFNode, ControlFlowGraph> entryCFGs = new HashMap<>();
+			Deque<CFNode> worklist = new ArrayDeque<>();
+			List<MethodKey> waiting = new ArrayList<>();
+			Map<MethodKey, Set<MethodKey>> keyToTargets = new HashMap<>();
+			while (!pending.isEmpty()) {
+				List<Callable<Void>> tasks = new ArrayList<>(pending.size());
+				for (int f : pending)
+					tasks.add(fileTask.apply(f));
+				runAll(tasks, artifacts.getNumThreads());
+				boolean newInstances = false;
+				for (int f : pending) {
+					analyzed[f] = true;
+					for (CFNode entry : cfgs[f].getAllMethodEntries()) {
+						keyToEntry.put(getMethodKey(entry, entryPackages.get(entry)), entry);
+						entryCFGs.put(entry, cfgs[f]);
+						if (isEntryPoint(entryPackages.get(entry), 
+								(String) entry.getProperty("class"), (String) entry.getProperty("name")))
+							reach(cfgs[f], entry, reached, worklist);
+					}
+					if (instantiated != null)
+						newInstances |= instantiated.addAll(instantiatedClasses.get(f));
 				}
-				ArrayList<CFNode> exitpoints = new ArrayList<>();
-				/////////////////////////////////////////
-                GraphTraversal<CFNode, CFEdge> iter = new DepthFirstTraversal<>(cfg, entry);
-				while (iter.hasNext()) {
-					CFNode node = iter.nextVertex();
-					if (cfg.getOutDegree(node) == 0) {
-						exitpoints.add(node);
+				pending.clear();
+				for (MethodKey key : waiting) {
+					CFNode entry = keyToEntry.get(key);
+					if (entry != null)
+						reach(entryCFGs.get(entry), entry, reached, worklist);
+				}
+				waiting.clear();
+				// in case of RTA, newly instantiated classes may add targets to the resolved calls
+				if (newInstances) {
+					keyToTargets.clear();
+					worklist.addAll(reached.keySet());
+				}
+				while (!worklist.isEmpty()) {
+					for (CFNode node : reached.get(worklist.poll())) {
+						List<MethodKey> keys = nodeCalls.get(node);
+						if (keys == null)
+							continue;
+						for (MethodKey key : keys) {
+							Set<MethodKey> targets = keyToTargets.get(key);
+							if (targets == null) {
+								targets = hierarchy.resolveTargets(key);
+								keyToTargets.put(key, targets);
+							}
+							for (MethodKey target : targets) {
+								CFNode entry = keyToEntry.get(target);
+								if (entry != null) {
+									reach(entryCFGs.get(entry), entry, reached, worklist);
+									continue;
+								}
+								JavaClass cls = javaClasses.getByQualifiedName(target.packageName + '.' + target.className);
+								Integer f = cls == null ? null : fileIndex.get(cls.FILE);
+								if (f != null && !analyzed[f]) {
+									pending.add(f);
+									waiting.add(target);
+								}
+							}
+						}
+					}
+				}
+			}
+			// add the reachable methods to the ICFG, in the order of files
+			for (int f = 0; f < javaFiles.length; f++) {
+				if (!analyzed[f])
+					continue;
+				for (CFNode entry : cfgs[f].getAllMethodEntries()) {
+					List<CFNode> nodes = reached.get(entry);
+					if (nodes == null)
+						continue;
+					List<CFNode> methodCallSites = new ArrayList<>();
+					for (CFNode node : nodes) {
+						icfg.addVertex(node);
+						if (nodeCalls.containsKey(node))
+							methodCallSites.add(node);
+					}
+					for (CFNode node : nodes) {
+						Iterator<Edge<CFNode, CFEdge>> edges = cfgs[f].outgoingEdgesIterator(node);
+						while (edges.hasNext())
+							icfg.addEdge(edges.next());
 					}
+					icfg.addMethodEntry(entry);
+					icfgCallSites.add(methodCallSites);
 				}
-				entry.setProperty("exits", exitpoints);
-				icfg.addGraph(cfg);
-				icfg.addMethodEntry(entry);
 			}
 		}
-		// for each CFG, get all method entries, and build the second map 
-		// returns: Map<MethodKey, CFNode> 'keyToEntry' per each java files
-		Map<MethodKey, CFNode> keyToEntry = new HashMap<>();
-		CFNode[] entries = icfg.getAllMethodEntries();
-		for (CFNode node : entries) {
-			MethodKey key = new MethodKey((String) node.getProperty("packageName"), (String) node.getProperty("class"), (String) node.getProperty("name"), node.getLineOfCode());
-			keyToEntry.put(key, node);
-		}
-
-//		MethodKey keyNotImpl = new MethodKey("Not Implemented", "Not Implemented", "notImplemented", 0);
-//		keyToEntry.put(keyNotImpl, notImplemented);
-		GraphTraversal<CFNode, CFEdge> iter = new DepthFirstTraversal<>(icfg, icfg.getAllMethodEntries()[0]);
-		while (iter.hasNext()) {
-			CFNode node = iter.nextVertex();
-			ArrayList<MethodKey> keys = (ArrayList<MethodKey>) node.getProperty("calls");
-			if (keys != null) {
+
+		// resolve the targets of each called method once, and link the call-sites to them
+		Map<MethodKey, List<CFNode>> keyToTargets = new HashMap<>();
+		for (List<CFNode> fileCallSites : icfgCallSites) {
+			for (CFNode node : fileCallSites) {
+				List<MethodKey> keys = nodeCalls.get(node);
 				// ToDO: Fix the counter problem when calling more than one method in a single statement
 				// The problem should be fixed in the visitor class 
 				// int counter = 1; 
 				for (MethodKey key : keys) {
-					//if (key != null) {
-					CFNode entry = keyToEntry.get(key);
-					if (entry != null) {// then this is a call-site
+					List<CFNode> targets = keyToTargets.get(key);
+					if (targets == null) {
+						targets = new ArrayList<>();
+						for (MethodKey target : hierarchy.resolveTargets(key)) {
+							CFNode entry = keyToEntry.get(target);
+							if (entry != null && !targets.contains(entry))
+								targets.add(entry);
+						}
+						keyToTargets.put(key, targets);
+					}
+					for (CFNode entry : targets) {// then this is a call-site
 						// add CALLS edge from 'node' to 'entry'
 						if (!icfg.containsEdge(node, entry)) {
 							icfg.addEdge(new Edge<>(node, new CFEdge(CFEdge.Type.CALLS/*, counter++*/), entry));
-							for (CFNode exitNode : (ArrayList<CFNode>) entry.getProperty("exits")) {
+							for (CFNode exitNode : entryExits.get(entry)) {
 								icfg.addEdge(new Edge<>(exitNode, new CFEdge(CFEdge.Type.RETURN), node));
 							}
 						}
-						//System.out.println("Node code:"+node.getCode()+"Entry:"+entry.getCode());
 					}
 				}
 			}
@@ -165,9 +367,217 @@ public class JavaICFGBuilder {
 		return icfg;
 	}
 
+	/**
+	 * Build and return the call graph of all Java files of the given artifact-cache,
+	 * using a new builder.
+	 */
+	public static CallGraph buildCallGraphForAll(JavaArtifactCache artifacts) throws IOException {
+		return new JavaICFGBuilder().buildCallGraph(artifacts);
+	}
+
+	/**
+	 * Build and return the method-level call graph of all Java files of the given artifact-cache.
+	 * The calls are resolved the same as the ICFG, but no CFGs are built. The nodes are the 
+	 * methods of project classes (and interfaces), and there is an edge from each method to
+	 * each target of its calls; calls outside of method bodies are ignored.
+	 * If entry-points are given, only the methods reachable from them are included.
+	 */
+	public CallGraph buildCallGraph(JavaArtifactCache artifacts) throws IOException {
+		artifacts.parseAll();
+		File[] javaFiles = artifacts.getAcceptedFiles();
+		List<List<JavaClass>> fileClasses = getFileClasses(artifacts, javaFiles);
+		ArrayList<JavaClass> classesList = new ArrayList<>();
+		for (List<JavaClass> classes : fileClasses)
+			classesList.addAll(classes);
+		ClassIndex javaClasses = new ClassIndex(classesList);
+		ClassIndex alwaysAvailableClasses = getJavaLangClasses();
+
+		// visit all files concurrently, and collect the called keys of each method
+		List<Map<MethodKey, List<MethodKey>>> methodCalls = new ArrayList<>(Collections.nCopies(javaFiles.length, null));
+		List<Set<String>> instantiatedClasses = new ArrayList<>(Collections.nCopies(javaFiles.length, null));
+		List<Callable<Void>> tasks = new ArrayList<>(javaFiles.length);
+		for (int i = 0; i < javaFiles.length; i++) {
+			final int f = i;
+			tasks.add(() -> {
+				ICFGVisitor icfgvisit = new ICFGVisitor(javaClasses, alwaysAvailableClasses, fileClasses.get(f));
+				icfgvisit.visit(artifacts.getParseTree(javaFiles[f]));
+				methodCalls.set(f, icfgvisit.getMethodCalls());
+				instantiatedClasses.set(f, icfgvisit.getInstantiatedClasses());
+				return null;
+			});
+		}
+		runAll(tasks, artifacts.getNumThreads());
+
+		Set<String> instantiated = null;
+		if (rapidTypeAnalysis) {
+			instantiated = new HashSet<>();
+			for (Set<String> fileInstantiated : instantiatedClasses)
+				instantiated.addAll(fileInstantiated);
+		}
+		ClassHierarchy hierarchy = new ClassHierarchy(classesList, javaClasses, alwaysAvailableClasses, instantiated);
+
+		// a node for each method, by its key
+		Map<MethodKey, CGNode> keyToNode = new LinkedHashMap<>();
+		for (JavaClass cls : classesList) {
+			for (JavaMethod method : cls.getAllMethods()) {
+				MethodKey key = new MethodKey(cls.PACKAGE, cls.NAME, method.NAME, method.LINE_OF_CODE);
+				if (!keyToNode.containsKey(key))
+					keyToNode.put(key, new CGNode(cls.PACKAGE, cls.NAME, method.NAME, method.ARG_TYPES, method.LINE_OF_CODE, cls.FILE));
+			}
+		}
+		// the callees of each method, resolving the targets of each called key once
+		Map<CGNode, Set<CGNode>> callees = new LinkedHashMap<>();
+		Map<MethodKey, List<CGNode>> keyToTargets = new HashMap<>();
+		for (Map<MethodKey, List<MethodKey>> fileCalls : methodCalls) {
+			for (Map.Entry<MethodKey, List<MethodKey>> calls : fileCalls.entrySet()) {
+				CGNode caller = keyToNode.get(calls.getKey());
+				if (caller == null)
+					continue;
+				Set<CGNode> callerCallees = callees.computeIfAbsent(caller, k -> new LinkedHashSet<>());
+				for (MethodKey key : calls.getValue()) {
+					List<CGNode> targets = keyToTargets.get(key);
+					if (targets == null) {
+						targets = new ArrayList<>();
+						for (MethodKey target : hierarchy.resolveTargets(key)) {
+							CGNode node = keyToNode.get(target);
+							if (node != null && !targets.contains(node))
+								targets.add(node);
+						}
+						keyToTargets.put(key, targets);
+					}
+					callerCallees.addAll(targets);
+				}
+			}
+		}
+
+		// if entry-points are given, only keep the methods reachable from them
+		Set<CGNode> included = null;
+		if (entryPoints != null) {
+			included = new HashSet<>();
+			Deque<CGNode> worklist = new ArrayDeque<>();
+			for (CGNode node : keyToNode.values())
+				if (isEntryPoint(node.getPackage(), node.getClassName(), node.getMethodName()) && included.add(node))
+					worklist.add(node);
+			while (!worklist.isEmpty())
+				for (CGNode callee : callees.getOrDefault(worklist.poll(), Collections.emptySet()))
+					if (included.add(callee))
+						worklist.add(callee);
+		}
+
+		CallGraph callGraph = new CallGraph("CallGraph.java");
+		for (CGNode node : keyToNode.values())
+			if (included == null || included.contains(node))
+				callGraph.addVertex(node);
+		for (Map.Entry<CGNode, Set<CGNode>> calls : callees.entrySet()) {
+			if (included != null && !included.contains(calls.getKey()))
+				continue;
+			for (CGNode callee : calls.getValue())
+				callGraph.addEdge(new Edge<>(calls.getKey(), new CGEdge(CGEdge.Type.CALLS), callee));
+		}
+		return callGraph;
+	}
+
+	/**
+	 * Returns the class-infos of each file, followed by its interface-infos.
+	 */
+	private static List<List<JavaClass>> getFileClasses(JavaArtifactCache artifacts, File[] javaFiles) throws IOException {
+		List<List<JavaClass>> fileClasses = new ArrayList<>(javaFiles.length);
+		for (File javaFile : javaFiles) {
+			List<JavaClass> classes = new ArrayList<>(artifacts.getClassInfos(javaFile));
+			classes.addAll(JavaClassExtractor.extractInterfacesInfo(javaFile.getAbsolutePath(), 
+					artifacts.getParseTree(javaFile)));
+			fileClasses.add(classes);
+		}
+		return fileClasses;
+	}
+
+	/**
+	 * Run all given tasks, using the given number of threads.
+	 */
+	private static void runAll(List<Callable<Void>> tasks, int numThreads) throws IOException {
+		if (numThreads <= 1 || tasks.size() <= 1) {
+			try {
+				for (Callable<Void> task: tasks)
+					task.call();
+			} catch (IOException | RuntimeException ex) {
+				throw ex;
+			} catch (Exception ex) {
+				throw new IOException(ex);
+			}
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(numThreads, tasks.size()));
+		try {
+			for (Future<Void> result: pool.invokeAll(tasks))
+				result.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("ICFG construction interrupted!", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException)
+				throw (IOException) ex.getCause();
+			if (ex.getCause() instanceof RuntimeException)
+				throw (RuntimeException) ex.getCause();
+			throw new IOException(ex.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Check whether the given method matches any of the entry-point patterns.
+	 */
+	private boolean isEntryPoint(String packageName, String className, String methodName) {
+		String qualifiedName = className + '.' + methodName;
+		if (packageName != null && !packageName.isEmpty())
+			qualifiedName = packageName + '.' + qualifiedName;
+		for (Pattern pattern : entryPoints)
+			if (pattern.matcher(qualifiedName).matches())
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the key of the given method entry, of the given package.
+	 */
+	private static MethodKey getMethodKey(CFNode entry, String packageName) {
+		return new MethodKey(packageName, (String) entry.getProperty("class"), 
+				(String) entry.getProperty("name"), entry.getLineOfCode());
+	}
+
+	/**
+	 * Mark the method of the given entry as reachable, if not already;
+	 * the nodes of the method are collected from the given CFG,
+	 * and the entry is added to the work-list for resolving its calls.
+	 */
+	private static void reach(ControlFlowGraph cfg, CFNode entry, 
+			Map<CFNode, List<CFNode>> reached, Deque<CFNode> worklist) {
+		if (reached.containsKey(entry))
+			return;
+		List<CFNode> nodes = new ArrayList<>();
+		Set<CFNode> visited = new HashSet<>();
+		Deque<CFNode> stack = new ArrayDeque<>();
+		stack.push(entry);
+		visited.add(entry);
+		while (!stack.isEmpty()) {
+			CFNode node = stack.pop();
+			nodes.add(node);
+			Iterator<Edge<CFNode, CFEdge>> edges = cfg.outgoingEdgesIterator(node);
+			while (edges.hasNext()) {
+				CFNode next = edges.next().target;
+				if (visited.add(next))
+					stack.push(next);
+			}
+		}
+		reached.put(entry, nodes);
+		worklist.add(entry);
+	}
+
 	private static class ICFGVisitor extends JavaBaseVisitor<String> {
 
-		private ArrayList<JavaClass> availableClasses;
+		private ClassIndex javaClasses;
+		private ClassIndex alwaysAvailableClasses;
+		private Map<String, JavaClass> availableClasses;
 		private Deque<JavaClass> activeClasses;
 		private LinkedHashMap<String, String> globalVariables;
 		private LinkedHashMap<String, JavaClass> localVariables;
@@ -175,23 +585,52 @@ public class JavaICFGBuilder {
 		private ArrayList<JavaMethod> returnMethod;
 		private JavaClass returnType;
 		private JavaMethod notImplemented;
-		private Map<ParserRuleContext, Object> contextualProperties;
+		private Map<ParserRuleContext, List<MethodKey>> contextCalls;
 		private ParserRuleContext currentContext;
-
-		public ICFGVisitor() {
+		private Set<String> instantiatedClasses;
+		private MethodKey currentMethod;
+		private Map<MethodKey, List<MethodKey>> methodCalls;
+
+		/**
+		 * Create a visitor for a file of the given project classes;
+		 * the always-available classes and the classes of the file are available.
+		 * Available classes are looked up by simple name, and the first one is taken;
+		 * the always-available classes come first, and are not copied per file.
+		 */
+		public ICFGVisitor(ClassIndex javaClasses, ClassIndex alwaysAvailableClasses, 
+				List<JavaClass> currentFileClasses) {
+			this.javaClasses = javaClasses;
+			this.alwaysAvailableClasses = alwaysAvailableClasses;
 			activeClasses = new ArrayDeque<>();
 			globalVariables = new LinkedHashMap<>();
 			localVariables = new LinkedHashMap<>();
-			availableClasses = new ArrayList<>();
-			// = new ArrayList<>();
+			availableClasses = new HashMap<>();
 			currentPackageName = "";
 			returnMethod = new ArrayList<>();
 			returnType = null;
 			notImplemented = new JavaMethod("", false, false, "", "NULL", null, 0);
-			contextualProperties = new HashMap<>();
+			contextCalls = new LinkedHashMap<>();
 			currentContext = null;
-			availableClasses.addAll(alwaysAvailableClasses);
-			availableClasses.addAll(currentFileClasses);
+			instantiatedClasses = new HashSet<>();
+			currentMethod = null;
+			methodCalls = new LinkedHashMap<>();
+			for (JavaClass jc : currentFileClasses)
+				addAvailableClass(jc);
+		}
+
+		/**
+		 * Make the given class available, unless a class of the same name is available.
+		 */
+		private void addAvailableClass(JavaClass jc) {
+			availableClasses.putIfAbsent(jc.NAME, jc);
+		}
+
+		/**
+		 * Returns the first available class with the given simple name, or null.
+		 */
+		private JavaClass getAvailableClass(String className) {
+			JavaClass cls = alwaysAvailableClasses.getByName(className);
+			return cls != null ? cls : availableClasses.get(className);
 		}
 
 		@Override
@@ -200,10 +639,8 @@ public class JavaICFGBuilder {
 			//annotation* 'package' qualifiedName ';'
 			currentPackageName = ctx.qualifiedName().getText();
 			//All classes of a package can be used in other files in the same package
-			for (JavaClass jc : javaClasses) {
-				if (jc.PACKAGE.equals(currentPackageName)) {
-					availableClasses.add(jc);
-				}
+			for (JavaClass jc : javaClasses.getPackageClasses(currentPackageName)) {
+				addAvailableClass(jc);
 			}
 			return null;
 		}
@@ -218,16 +655,13 @@ public class JavaICFGBuilder {
 			String importedPackage = ctx.qualifiedName().getText();
 
 			if (ctx.getText().contains(".*")) {
-				for (JavaClass jc : javaClasses) {
-					if (importedPackage.equals(jc.PACKAGE)) {
-						availableClasses.add(jc);
-					}
+				for (JavaClass jc : javaClasses.getPackageClasses(importedPackage)) {
+					addAvailableClass(jc);
 				}
 			} else {
-				for (JavaClass jc : javaClasses) {
-					if (importedPackage.equals(jc.PACKAGE + '.' + jc.NAME)) {
-						availableClasses.add(jc);
-					}
+				JavaClass jc = javaClasses.getByQualifiedName(importedPackage);
+				if (jc != null) {
+					addAvailableClass(jc);
 				}
 			}
 			return null;
@@ -236,11 +670,9 @@ public class JavaICFGBuilder {
 		@Override
 		public String visitClassDeclaration(JavaParser.ClassDeclarationContext ctx) {
 
-			for (JavaClass jc : javaClasses) {
-				if (jc.NAME.equals(ctx.Identifier().getText()) && jc.PACKAGE.equals(currentPackageName)) {
-					activeClasses.push(jc);
-					break;
-				}
+			JavaClass declared = javaClasses.getByQualifiedName(currentPackageName + '.' + ctx.Identifier().getText());
+			if (declared != null) {
+				activeClasses.push(declared);
 			}
 
 			//Add current class fields to he global variables list
@@ -253,9 +685,7 @@ public class JavaICFGBuilder {
 			//Extract imported class information from Java standard library 
 			try {
 				for (JavaClass jc : JavaClassExtractor.extractImportsInfo(activeClasses.peek().IMPORTS)) {
-					if (!availableClasses.contains(jc)) {
-						availableClasses.add(jc);
-					}
+					addAvailableClass(jc);
 				}
 
 			} catch (IOException ex) {
@@ -526,6 +956,8 @@ public class JavaICFGBuilder {
 			// variableDeclaratorId
 			//   :  Identifier ('[' ']')*
 
+			MethodKey enclosingMethod = currentMethod;
+			currentMethod = getDeclaredMethodKey(ctx.Identifier().getText(), ctx.getStart().getLine());
 			if (ctx.formalParameters().formalParameterList() != null) {
 				for (JavaParser.FormalParameterContext param
 						: ctx.formalParameters().formalParameterList().formalParameter()) {
@@ -536,8 +968,10 @@ public class JavaICFGBuilder {
 				}
 			}
 
-			visit(ctx.methodBody());
+			if (ctx.methodBody() != null) // not abstract
+				visit(ctx.methodBody());
 			localVariables.clear();
+			currentMethod = enclosingMethod;
 			return null;
 		}
 
@@ -546,6 +980,8 @@ public class JavaICFGBuilder {
 			// constructorDeclaration
 			//   :  Identifier formalParameters ('throws' qualifiedNameList)? constructorBody
 
+			MethodKey enclosingMethod = currentMethod;
+			currentMethod = getDeclaredMethodKey(ctx.Identifier().getText(), ctx.getStart().getLine());
 			if (ctx.formalParameters().formalParameterList() != null) {
 				for (JavaParser.FormalParameterContext param
 						: ctx.formalParameters().formalParameterList().formalParameter()) {
@@ -558,6 +994,7 @@ public class JavaICFGBuilder {
 
 			visit(ctx.constructorBody());
 			localVariables.clear();
+			currentMethod = enclosingMethod;
 			return null;
 		}
 
@@ -801,6 +1238,8 @@ public class JavaICFGBuilder {
 				last = ctx.creator().createdName().Identifier().size() - 1;
 				String className = ctx.creator().createdName().Identifier(last).getText();
 				lastClass = findClassbyName(className);
+				if (lastClass != null && ctx.creator().classCreatorRest() != null)
+					instantiatedClasses.add(lastClass.PACKAGE + '.' + lastClass.NAME);
 			}
 
 			ArrayList<JavaMethod> creators = new ArrayList<>();
@@ -891,8 +1330,27 @@ public class JavaICFGBuilder {
 			return ctx.getText();
 		}
 
-		public Map<ParserRuleContext, Object> getMap() {
-			return contextualProperties;
+		/**
+		 * Returns the keys of the methods called at each context of the visited file;
+		 * in the order of visit.
+		 */
+		public Map<ParserRuleContext, List<MethodKey>> getContextCalls() {
+			return contextCalls;
+		}
+
+		/**
+		 * Returns the keys of the methods called by each method of the visited file;
+		 * in the order of visit. The calls outside of any method are not included.
+		 */
+		public Map<MethodKey, List<MethodKey>> getMethodCalls() {
+			return methodCalls;
+		}
+
+		/**
+		 * Returns the qualified names of the classes instantiated in the visited file.
+		 */
+		public Set<String> getInstantiatedClasses() {
+			return instantiatedClasses;
 		}
 
 		private JavaMethod[] MergeArrays(JavaMethod[] jm1, JavaMethod[] jm2) {
@@ -987,11 +1445,9 @@ public class JavaICFGBuilder {
 			}
 			className = clsName.toString();
 
-			for (JavaClass jc : availableClasses) {
-				if (jc.NAME.equals(className)) {
-					JavaClass cls = classInstantiate(jc, genericTypes);
-					return cls;
-				}
+			JavaClass jc = getAvailableClass(className);
+			if (jc != null) {
+				return classInstantiate(jc, genericTypes);
 			}
 			return null;
 		}
@@ -1058,12 +1514,23 @@ public class JavaICFGBuilder {
 			} else {
 				key = new MethodKey("Not Implemented", "Not Implemented", "notImplemented", 0);
 			}
-			ArrayList<MethodKey> keys = new ArrayList<>();
+			List<MethodKey> keys = new ArrayList<>();
 			keys.add(key);
-			if (contextualProperties.containsKey(currentContext)) {
-				keys.addAll((ArrayList<MethodKey>) contextualProperties.get(currentContext));
+			if (contextCalls.containsKey(currentContext)) {
+				keys.addAll(contextCalls.get(currentContext));
 			}
-			contextualProperties.put(currentContext, keys);
+			contextCalls.put(currentContext, keys);
+			if (currentMethod != null)
+				methodCalls.computeIfAbsent(currentMethod, k -> new ArrayList<>()).add(key);
+		}
+
+		/**
+		 * Returns the key of the method declared in the active class,
+		 * with the given name and line-of-code; or null if there is no active class.
+		 */
+		private MethodKey getDeclaredMethodKey(String name, int line) {
+			JavaClass cls = activeClasses.peek();
+			return cls == null ? null : new MethodKey(cls.PACKAGE, cls.NAME, name, line);
 		}
 
 		private JavaClass classInstantiate(JavaClass cls, String generic){
@@ -1151,6 +1618,267 @@ public class JavaICFGBuilder {
 			return str.length();
 		}		
 	}
+
+	/**
+	 * Hash indexes of a list of classes; by package, by qualified name and by simple name.
+	 * For a qualified or simple name, the first class of the list is taken.
+	 * An index is not modified after construction; so it can be shared among visitors.
+	 */
+	private static class ClassIndex {
+
+		private final Map<String, List<JavaClass>> byPackage;
+		private final Map<String, JavaClass> byQualifiedName;
+		private final Map<String, JavaClass> byName;
+
+		ClassIndex(List<JavaClass> classes) {
+			byPackage = new HashMap<>();
+			byQualifiedName = new HashMap<>();
+			byName = new HashMap<>();
+			for (JavaClass jc : classes) {
+				byPackage.computeIfAbsent(jc.PACKAGE, k -> new ArrayList<>()).add(jc);
+				byQualifiedName.putIfAbsent(jc.PACKAGE + '.' + jc.NAME, jc);
+				byName.putIfAbsent(jc.NAME, jc);
+			}
+		}
+
+		List<JavaClass> getPackageClasses(String packageName) {
+			return byPackage.getOrDefault(packageName, Collections.emptyList());
+		}
+
+		JavaClass getByQualifiedName(String qualifiedName) {
+			return byQualifiedName.get(qualifiedName);
+		}
+
+		JavaClass getByName(String name) {
+			return byName.get(name);
+		}
+	}
+
+	/**
+	 * Class hierarchy of the project classes and interfaces, for resolving method calls.
+	 * The super-types of a class are resolved by name, similar to the available classes
+	 * of the ICFG visitor; library super-classes are included as well. 
+	 * The methods of each class are indexed on demand.
+	 */
+	private static class ClassHierarchy {
+
+		private final ClassIndex projectClasses;
+		private final ClassIndex javaLangClasses;
+		private final Set<String> instantiatedClasses;
+		private final Map<String, JavaClass> classes;
+		private final Map<JavaClass, JavaClass> superClasses;
+		private final Map<String, List<JavaClass>> subTypes;
+		private final Map<String[], Map<String, JavaClass>> importedClasses;
+		private final Map<JavaClass, Map<String, JavaMethod>> methodsByLine;
+		private final Map<JavaClass, Map<String, JavaMethod>> methodsBySignature;
+
+		/**
+		 * Build the hierarchy of the given project classes.
+		 * If the instantiated classes are given (RTA), only those sub-types are considered.
+		 */
+		ClassHierarchy(List<JavaClass> classesList, ClassIndex projectClasses, 
+				ClassIndex javaLangClasses, Set<String> instantiatedClasses) throws IOException {
+			this.projectClasses = projectClasses;
+			this.javaLangClasses = javaLangClasses;
+			this.instantiatedClasses = instantiatedClasses;
+			classes = new HashMap<>();
+			superClasses = new IdentityHashMap<>();
+			subTypes = new HashMap<>();
+			importedClasses = new IdentityHashMap<>();
+			methodsByLine = new IdentityHashMap<>();
+			methodsBySignature = new IdentityHashMap<>();
+			for (JavaClass cls : classesList)
+				classes.putIfAbsent(qualifiedName(cls), cls);
+			for (JavaClass cls : classesList) {
+				if (cls.EXTENDS != null) {
+					JavaClass sup = resolveType(cls, cls.EXTENDS);
+					superClasses.put(cls, sup);
+					if (sup != null)
+						subTypes.computeIfAbsent(qualifiedName(sup), k -> new ArrayList<>()).add(cls);
+				}
+				if (cls.getInterfaces() != null) {
+					for (String intf : cls.getInterfaces()) {
+						JavaClass sup = resolveType(cls, intf);
+						if (sup != null)
+							subTypes.computeIfAbsent(qualifiedName(sup), k -> new ArrayList<>()).add(cls);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns the keys of all methods which may be the target of the given method-key;
+		 * i.e. the called method itself (or the inherited method), and the overriding 
+		 * methods of the sub-types of the receiver class.
+		 */
+		Set<MethodKey> resolveTargets(MethodKey key) {
+			Set<MethodKey> result = new LinkedHashSet<>();
+			result.add(key);
+			JavaClass receiver = classes.get(key.packageName + '.' + key.className);
+			if (receiver == null)
+				return result;
+			// find the called method, in the receiver class or its super-classes
+			String lineKey = key.methodName + '#' + key.LoC;
+			JavaClass declaring = null;
+			JavaMethod method = null;
+			Set<JavaClass> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (JavaClass cls = receiver; cls != null && visited.add(cls); cls = getSuperClass(cls)) {
+				method = getMethodsByLine(cls).get(lineKey);
+				if (method != null) {
+					declaring = cls;
+					break;
+				}
+			}
+			if (method == null)
+				return result;
+			if (declaring != receiver)
+				result.add(new MethodKey(declaring.PACKAGE, declaring.NAME, method.NAME, method.LINE_OF_CODE));
+			// static methods, constructors and private methods are not overridden
+			if (method.STATIC || method.RET_TYPE == null || "private".equals(method.MODIFIER))
+				return result;
+			String signature = signature(method);
+			for (JavaClass sub : getAllSubTypes(receiver)) {
+				if (instantiatedClasses != null && !instantiatedClasses.contains(qualifiedName(sub)))
+					continue;
+				// the method of a sub-type, is the first one found in its super-classes
+				visited.clear();
+				for (JavaClass cls = sub; cls != null && visited.add(cls); cls = getSuperClass(cls)) {
+					if (cls == receiver || cls == declaring)
+						break;
+					JavaMethod override = getMethodsBySignature(cls).get(signature);
+					if (override != null) {
+						result.add(new MethodKey(cls.PACKAGE, cls.NAME, override.NAME, override.LINE_OF_CODE));
+						break;
+					}
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Returns all (transitive) sub-types of the given class, in breadth-first order.
+		 */
+		private List<JavaClass> getAllSubTypes(JavaClass cls) {
+			List<JavaClass> all = new ArrayList<>();
+			Set<JavaClass> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+			visited.add(cls);
+			Deque<JavaClass> queue = new ArrayDeque<>();
+			queue.add(cls);
+			while (!queue.isEmpty()) {
+				for (JavaClass sub : subTypes.getOrDefault(qualifiedName(queue.poll()), Collections.emptyList())) {
+					if (visited.add(sub)) {
+						all.add(sub);
+						queue.add(sub);
+					}
+				}
+			}
+			return all;
+		}
+
+		/**
+		 * Returns the super-class of the given class, or null if it cannot be resolved.
+		 * The super-classes of library classes are resolved on demand.
+		 */
+		private JavaClass getSuperClass(JavaClass cls) {
+			if (superClasses.containsKey(cls) || cls.EXTENDS == null)
+				return superClasses.get(cls);
+			JavaClass sup = null;
+			try {
+				sup = resolveType(cls, cls.EXTENDS);
+			} catch (IOException ex) {
+				Logger.error(ex);
+			}
+			superClasses.put(cls, sup);
+			return sup;
+		}
+
+		/**
+		 * Resolve the given type-name, as used in the given class.
+		 * The 'java.lang' classes are looked up first, then the classes of the same package,
+		 * then the imported project classes, and finally the imported library classes.
+		 */
+		private JavaClass resolveType(JavaClass context, String typeName) throws IOException {
+			int idx = typeName.indexOf('<');
+			if (idx > 0)
+				typeName = typeName.substring(0, idx);
+			String name = typeName.substring(typeName.lastIndexOf('.') + 1);
+			JavaClass cls = null;
+			if (typeName.indexOf('.') > 0)
+				cls = projectClasses.getByQualifiedName(typeName);
+			if (cls == null)
+				cls = javaLangClasses.getByName(name);
+			if (cls == null)
+				cls = projectClasses.getByQualifiedName(context.PACKAGE + '.' + name);
+			if (cls == null && context.IMPORTS != null) {
+				for (String imp : context.IMPORTS) {
+					if (imp.endsWith(".*"))
+						cls = projectClasses.getByQualifiedName(imp.substring(0, imp.length() - 1) + name);
+					else if (imp.equals(name) || imp.endsWith('.' + name))
+						cls = projectClasses.getByQualifiedName(imp);
+					if (cls != null)
+						break;
+				}
+				if (cls == null)
+					cls = getImportedClasses(context.IMPORTS).get(name);
+			}
+			if (cls != null)
+				classes.putIfAbsent(qualifiedName(cls), cls);
+			return cls;
+		}
+
+		/**
+		 * Returns the library classes of the given imports, by simple name.
+		 */
+		private Map<String, JavaClass> getImportedClasses(String[] imports) throws IOException {
+			Map<String, JavaClass> imported = importedClasses.get(imports);
+			if (imported == null) {
+				imported = new HashMap<>();
+				for (JavaClass cls : JavaClassExtractor.extractImportsInfo(imports))
+					imported.putIfAbsent(cls.NAME, cls);
+				importedClasses.put(imports, imported);
+			}
+			return imported;
+		}
+
+		/**
+		 * Returns the methods of the given class, by name and line-of-code.
+		 */
+		private Map<String, JavaMethod> getMethodsByLine(JavaClass cls) {
+			Map<String, JavaMethod> methods = methodsByLine.get(cls);
+			if (methods == null) {
+				methods = new HashMap<>();
+				for (JavaMethod method : cls.getAllMethods())
+					methods.putIfAbsent(method.NAME + '#' + method.LINE_OF_CODE, method);
+				methodsByLine.put(cls, methods);
+			}
+			return methods;
+		}
+
+		/**
+		 * Returns the (non-static) methods of the given class, by signature.
+		 */
+		private Map<String, JavaMethod> getMethodsBySignature(JavaClass cls) {
+			Map<String, JavaMethod> methods = methodsBySignature.get(cls);
+			if (methods == null) {
+				methods = new HashMap<>();
+				for (JavaMethod method : cls.getAllMethods())
+					if (!method.STATIC && method.RET_TYPE != null)
+						methods.putIfAbsent(signature(method), method);
+				methodsBySignature.put(cls, methods);
+			}
+			return methods;
+		}
+
+		private static String signature(JavaMethod method) {
+			if (method.ARG_TYPES == null)
+				return method.NAME + "()";
+			return method.NAME + '(' + String.join(",", method.ARG_TYPES) + ')';
+		}
+
+		private static String qualifiedName(JavaClass cls) {
+			return cls.PACKAGE + '.' + cls.NAME;
+		}
+	}
 }
 
 class MethodKey {
@@ -0,0 +1,200 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import ghaffarian.nanologger.Logger;
+
+/**
+ * Persistent cache of the converged method DEF-infos of imported library classes.
+ *
+ * The iterative DEF analysis of the imported library classes yields the same
+ * DEF-infos on each run, as long as the library archive, the imported entries,
+ * and the project methods and classes which are looked up by the analysis do
+ * not change. Hence, the DEF-infos are saved in a file which is keyed by the
+ * fingerprint of the archive (its last-modified time and size) and the imported
+ * entries; along with the looked up names and a fingerprint of the project state,
+ * for validating the cache.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+class JavaLibraryDEFCache {
+
+	private static final int MAGIC = 0x5047444D;  // "PGDM"
+	private static final int VERSION = 2;
+
+	final Set<String> methodNames;
+	final Set<String> classNames;
+	final byte[] projectFingerprint;
+	private final List<SavedDefInfo> defInfos;
+
+	private JavaLibraryDEFCache(Set<String> methodNames, Set<String> classNames,
+			byte[] projectFingerprint, List<SavedDefInfo> defInfos) {
+		this.methodNames = methodNames;
+		this.classNames = classNames;
+		this.projectFingerprint = projectFingerprint;
+		this.defInfos = defInfos;
+	}
+
+	/**
+	 * Returns the cache file of the given archive checksum and imported entries.
+	 */
+	private static File getCacheFile(File dir, long checksum, List<String> entries) {
+		long hash = 17;
+		for (String entry: entries)
+			hash = 31 * hash + entry.hashCode();
+		return new File(dir, String.format("%016x-%016x.defs", checksum, hash));
+	}
+
+	/**
+	 * Load the cached DEF-infos of the given archive checksum and imported entries.
+	 * Returns null if there is no such cache, or the cache is invalid.
+	 */
+	static JavaLibraryDEFCache load(File dir, long checksum, List<String> entries) {
+		File cacheFile = getCacheFile(dir, checksum, entries);
+		if (!cacheFile.isFile())
+			return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new GZIPInputStream(new FileInputStream(cacheFile))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != checksum)
+				return null;
+			int entryCount = in.readInt();
+			if (entryCount != entries.size())
+				return null;
+			for (String entry: entries)
+				if (!entry.equals(in.readUTF()))
+					return null;
+			Set<String> methodNames = readStrings(in);
+			Set<String> classNames = readStrings(in);
+			byte[] projectFingerprint = new byte[in.readInt()];
+			in.readFully(projectFingerprint);
+			int count = in.readInt();
+			List<SavedDefInfo> defInfos = new ArrayList<>(count);
+			for (int i = 0; i < count; ++i)
+				defInfos.add(SavedDefInfo.read(in));
+			return new JavaLibraryDEFCache(methodNames, classNames, projectFingerprint, defInfos);
+		} catch (IOException ex) {
+			Logger.error("Invalid library DEF cache: " + cacheFile.getPath());
+			return null;
+		}
+	}
+
+	/**
+	 * Save the converged DEF-infos of the given archive checksum and imported entries.
+	 */
+	static void save(File dir, long checksum, List<String> entries, Set<String> methodNames,
+			Set<String> classNames, byte[] projectFingerprint, List<MethodDefInfo> defInfos) throws IOException {
+		dir.mkdirs();
+		File cacheFile = getCacheFile(dir, checksum, entries);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new GZIPOutputStream(new FileOutputStream(cacheFile))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(checksum);
+			writeStrings(entries, out);
+			writeStrings(methodNames, out);
+			writeStrings(classNames, out);
+			out.writeInt(projectFingerprint.length);
+			out.write(projectFingerprint);
+			out.writeInt(defInfos.size());
+			for (MethodDefInfo info: defInfos)
+				SavedDefInfo.write(info, out);
+		}
+		Logger.info("Library DEF-infos saved to " + cacheFile.getPath());
+	}
+
+	/**
+	 * Apply the cached DEF-infos to the given DEF-infos of the library methods.
+	 * Returns false (and modifies nothing) if the given DEF-infos do not match the cache.
+	 */
+	boolean applyTo(List<MethodDefInfo> infos) {
+		if (infos.size() != defInfos.size())
+			return false;
+		for (int i = 0; i < infos.size(); ++i)
+			if (!defInfos.get(i).matches(infos.get(i)))
+				return false;
+		for (int i = 0; i < infos.size(); ++i)
+			defInfos.get(i).applyTo(infos.get(i));
+		return true;
+	}
+
+	private static void writeStrings(Collection<String> strings, DataOutputStream out) throws IOException {
+		out.writeInt(strings.size());
+		for (String str: strings)
+			out.writeUTF(str);
+	}
+
+	private static Set<String> readStrings(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		Set<String> strings = new LinkedHashSet<>(2 * count);
+		for (int i = 0; i < count; ++i)
+			strings.add(in.readUTF());
+		return strings;
+	}
+
+
+	/**
+	 * The saved DEF-info of a single library method.
+	 */
+	private static class SavedDefInfo {
+
+		private String name;
+		private String className;
+		private boolean stateDEF;
+		private boolean[] argDEFs;
+		private String[] fieldDEFs;
+
+		static void write(MethodDefInfo info, DataOutputStream out) throws IOException {
+			out.writeUTF(info.NAME);
+			out.writeUTF(info.CLASS_NAME);
+			out.writeBoolean(info.doesStateDEF());
+			boolean[] argDEFs = info.argDEFs();
+			out.writeInt(argDEFs.length);
+			for (boolean def: argDEFs)
+				out.writeBoolean(def);
+			String[] fieldDEFs = info.fieldDEFs();
+			out.writeInt(fieldDEFs.length);
+			for (String field: fieldDEFs)
+				out.writeUTF(field);
+		}
+
+		static SavedDefInfo read(DataInputStream in) throws IOException {
+			SavedDefInfo saved = new SavedDefInfo();
+			saved.name = in.readUTF();
+			saved.className = in.readUTF();
+			saved.stateDEF = in.readBoolean();
+			saved.argDEFs = new boolean[in.readInt()];
+			for (int i = 0; i < saved.argDEFs.length; ++i)
+				saved.argDEFs[i] = in.readBoolean();
+			saved.fieldDEFs = new String[in.readInt()];
+			for (int i = 0; i < saved.fieldDEFs.length; ++i)
+				saved.fieldDEFs[i] = in.readUTF();
+			return saved;
+		}
+
+		boolean matches(MethodDefInfo info) {
+			return name.equals(info.NAME) && className.equals(info.CLASS_NAME)
+					&& argDEFs.length == info.argDEFs().length;
+		}
+
+		void applyTo(MethodDefInfo info) {
+			for (String field: fieldDEFs)
+				info.addFieldDEF(field);
+			info.setStateDEF(stateDEF);
+			info.setAllArgDEFs(argDEFs);
+		}
+	}
+}
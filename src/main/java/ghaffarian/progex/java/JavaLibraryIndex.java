@@ -0,0 +1,459 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.java;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.antlr.v4.runtime.tree.ParseTree;
+import ghaffarian.nanologger.Logger;
+
+/**
+ * Precompiled binary index of a JDK source archive (such as 'src.zip').
+ *
+ * The index holds the class-infos (classes, fields and methods) of all entries
+ * of the archive, along with the method DEF-infos which are computed by the
+ * iterative DEF analysis of all the library classes. Hence, using the index,
+ * library sources are not parsed and analyzed again on each run.
+ *
+ * NOTE: the DEF-infos of the index are computed for the whole library in isolation.
+ * Without an index, only the imported entries are analyzed, along with the project
+ * methods; so the DEF-infos of a library method which calls into a non-imported
+ * entry, or calls a method of the same name as a project method, may differ.
+ * For imports covering all the library classes they depend on, both are the same.
+ *
+ * The index of an archive is stored beside it (with an '.idx' suffix), and is
+ * memory-mapped when loaded. An index which does not match the last-modified
+ * time and size of its archive is considered outdated and is ignored.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class JavaLibraryIndex {
+
+	private static final int MAGIC = 0x50474C49;  // "PGLI"
+	private static final int VERSION = 2;
+	private static final int NULL = -1;
+
+	private static final Map<String, JavaLibraryIndex> loadedIndexes = new HashMap<>();
+	private static final Map<String, Long> fingerprints = new HashMap<>();
+
+	private final ByteBuffer buffer;
+	private final int[] stringOffsets;
+	private final String[] strings;
+	private final Map<String, Integer> entryOffsets;
+	private final String zipPath;
+
+	private JavaLibraryIndex(String zipPath, ByteBuffer buffer) throws IOException {
+		this.zipPath = zipPath;
+		this.buffer = buffer;
+		int pos = 16;
+		stringOffsets = new int[buffer.getInt(pos)];
+		pos += 4;
+		for (int i = 0; i < stringOffsets.length; ++i, pos += 4)
+			stringOffsets[i] = buffer.getInt(pos);
+		strings = new String[stringOffsets.length];
+		int entryCount = buffer.getInt(pos);
+		pos += 4;
+		entryOffsets = new LinkedHashMap<>(2 * entryCount);
+		for (int i = 0; i < entryCount; ++i, pos += 8)
+			entryOffsets.put(string(buffer.getInt(pos)), buffer.getInt(pos + 4));
+	}
+
+	/**
+	 * Returns the index file of the given source archive.
+	 */
+	public static File getIndexFile(String zipPath) {
+		return new File(zipPath + ".idx");
+	}
+
+	/**
+	 * Returns the loaded index of the given source archive.
+	 * The index is loaded once per run; null is returned if there is no valid index.
+	 */
+	public static synchronized JavaLibraryIndex forArchive(String zipPath) {
+		if (loadedIndexes.containsKey(zipPath))
+			return loadedIndexes.get(zipPath);
+		JavaLibraryIndex index = null;
+		if (getIndexFile(zipPath).isFile()) {
+			try {
+				index = load(zipPath);
+			} catch (IOException ex) {
+				Logger.error(ex);
+			}
+		}
+		loadedIndexes.put(zipPath, index);
+		return index;
+	}
+
+	/**
+	 * Load (memory-map) the index of the given source archive.
+	 * Returns null if the index is invalid or outdated.
+	 */
+	public static JavaLibraryIndex load(String zipPath) throws IOException {
+		File indexFile = getIndexFile(zipPath);
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.limit() < 16 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			Logger.warn("Ignoring invalid library index: " + indexFile.getPath());
+			return null;
+		}
+		if (buffer.getLong(8) != fingerprint(zipPath)) {
+			Logger.warn("Ignoring outdated library index: " + indexFile.getPath());
+			return null;
+		}
+		Logger.info("Library index loaded: " + indexFile.getPath());
+		return new JavaLibraryIndex(zipPath, buffer);
+	}
+
+	/**
+	 * Build the index of the given source archive.
+	 * All entries of the archive are parsed and analyzed, which may take a while;
+	 * but this is only done once for each archive.
+	 */
+	public static void build(String zipPath) throws IOException {
+		Logger.info("\nBuilding library index of " + zipPath + " ... ");
+		List<String> entryNames = new ArrayList<>();
+		List<JavaClass[]> classInfos = new ArrayList<>();
+		// entries which are successfully extracted, for DEF analysis
+		List<String> analyzedNames = new ArrayList<>();
+		List<ParseTree> analyzedTrees = new ArrayList<>();
+		List<JavaClass[]> analyzedClassInfos = new ArrayList<>();
+		try (ZipFile zip = new ZipFile(zipPath)) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory())
+					continue;
+				Logger.info("Parsing " + entry.getName());
+				ParseTree tree = JavaSourceParser.parse(zip.getInputStream(entry));
+				JavaClass[] classes;
+				try {
+					List<JavaClass> list = JavaClassExtractor.extractInfo("src.zip/" + entry.getName(), tree);
+					classes = list.toArray(new JavaClass[list.size()]);
+					analyzedNames.add(entry.getName());
+					analyzedTrees.add(tree);
+					analyzedClassInfos.add(classes);
+				} catch (RuntimeException ex) {
+					Logger.error("Error on extracting class-infos of " + entry.getName());
+					Logger.error(ex);
+					classes = new JavaClass[0];
+				}
+				entryNames.add(entry.getName());
+				classInfos.add(classes);
+			}
+		}
+		Map<JavaMethod, MethodDefInfo> defInfos = 
+				JavaDDGBuilder.analyzeLibraryDEFs(analyzedNames, analyzedTrees, analyzedClassInfos);
+		analyzedTrees.clear();
+		//
+		IndexWriter writer = new IndexWriter(defInfos);
+		int[] recordOffsets = new int[entryNames.size()];
+		for (int i = 0; i < recordOffsets.length; ++i)
+			recordOffsets[i] = writer.writeRecord(classInfos.get(i));
+		for (String name: entryNames)
+			writer.stringID(name);
+		File indexFile = getIndexFile(zipPath);
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(indexFile))) {
+			writer.writeIndex(fingerprint(zipPath), entryNames, recordOffsets, out);
+		}
+		synchronized (JavaLibraryIndex.class) {
+			loadedIndexes.remove(zipPath);
+		}
+		Logger.info("Library index of " + entryNames.size() + " entries saved to " + indexFile.getPath());
+	}
+
+	/**
+	 * Returns a fingerprint of the given source archive, based on its
+	 * last-modified time and size; it is computed once per run.
+	 */
+	static synchronized long fingerprint(String zipPath) throws IOException {
+		Long fingerprint = fingerprints.get(zipPath);
+		if (fingerprint == null) {
+			File zipFile = new File(zipPath);
+			if (!zipFile.isFile())
+				throw new IOException("Library archive not found: " + zipPath);
+			fingerprint = 31 * zipFile.lastModified() + zipFile.length();
+			fingerprints.put(zipPath, fingerprint);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Checks whether the given entry exists in the indexed archive.
+	 */
+	public boolean hasEntry(String entryName) {
+		return entryOffsets.containsKey(entryName);
+	}
+
+	/**
+	 * Returns the entry names of the given wildcard package import (such as 'java.util.*'),
+	 * in the same order as the entries of the indexed archive.
+	 * The entries are resolved by the shared package index of the archive.
+	 */
+	public List<String> getPackageEntries(String qualifiedName) throws IOException {
+		return JavaPackageIndex.forArchive(zipPath).getPackageEntries(qualifiedName);
+	}
+
+	/**
+	 * Returns the class-infos of the given entry of the indexed archive.
+	 * New objects are returned on each call.
+	 */
+	public List<JavaClass> getClasses(String entryName) {
+		List<JavaClass> classes = new ArrayList<>();
+		Integer offset = entryOffsets.get(entryName);
+		if (offset != null)
+			new RecordReader(offset).readClasses(classes, null);
+		return classes;
+	}
+
+	/**
+	 * Returns the DEF-infos of all methods of the given entry of the indexed archive,
+	 * in the same order as the classes and methods of the entry.
+	 * New objects are returned on each call.
+	 */
+	List<MethodDefInfo> getMethodDefInfos(String entryName) {
+		List<MethodDefInfo> defInfos = new ArrayList<>();
+		Integer offset = entryOffsets.get(entryName);
+		if (offset != null)
+			new RecordReader(offset).readClasses(new ArrayList<>(), defInfos);
+		return defInfos;
+	}
+
+	private String string(int id) {
+		if (id == NULL)
+			return null;
+		String str = strings[id];
+		if (str == null) {
+			int offset = stringOffsets[id];
+			byte[] bytes = new byte[buffer.getInt(offset)];
+			ByteBuffer src = buffer.duplicate();
+			src.position(offset + 4);
+			src.get(bytes);
+			str = new String(bytes, StandardCharsets.UTF_8);
+			strings[id] = str;
+		}
+		return str;
+	}
+
+
+	/**
+	 * Sequential reader of an entry record of the index.
+	 */
+	private class RecordReader {
+
+		private int pos;
+
+		RecordReader(int offset) {
+			pos = offset;
+		}
+
+		private int nextInt() {
+			int value = buffer.getInt(pos);
+			pos += 4;
+			return value;
+		}
+
+		private boolean nextBoolean() {
+			return buffer.get(pos++) != 0;
+		}
+
+		private String nextString() {
+			return string(nextInt());
+		}
+
+		private String[] nextStrings() {
+			int length = nextInt();
+			if (length == NULL)
+				return null;
+			String[] array = new String[length];
+			for (int i = 0; i < length; ++i)
+				array[i] = nextString();
+			return array;
+		}
+
+		void readClasses(List<JavaClass> classes, List<MethodDefInfo> defInfos) {
+			int classCount = nextInt();
+			for (int c = 0; c < classCount; ++c) {
+				String name = nextString();
+				String pkg = nextString();
+				String extend = nextString();
+				String file = nextString();
+				String[] imports = nextStrings();
+				JavaClass cls = new JavaClass(name, pkg, extend, file, imports);
+				cls.setTypeParameters(nextString());
+				cls.setInterfaces(nextStrings());
+				int fieldCount = nextInt();
+				for (int f = 0; f < fieldCount; ++f) {
+					String modifier = nextString();
+					boolean isStatic = nextBoolean();
+					String type = nextString();
+					cls.addField(new JavaField(modifier, isStatic, type, nextString()));
+				}
+				int methodCount = nextInt();
+				for (int m = 0; m < methodCount; ++m) {
+					String modifier = nextString();
+					boolean isStatic = nextBoolean();
+					boolean isAbstract = nextBoolean();
+					String retType = nextString();
+					String mtdName = nextString();
+					String[] argTypes = nextStrings();
+					int line = nextInt();
+					cls.addMethod(new JavaMethod(modifier, isStatic, isAbstract, retType, mtdName, argTypes, line));
+					boolean stateDEF = nextBoolean();
+					boolean[] argDEFs = new boolean[nextInt()];
+					for (int i = 0; i < argDEFs.length; ++i)
+						argDEFs[i] = nextBoolean();
+					if (defInfos != null) {
+						MethodDefInfo info = new MethodDefInfo(retType, mtdName, pkg, name, argTypes);
+						info.setStateDEF(stateDEF);
+						info.setAllArgDEFs(argDEFs);
+						defInfos.add(info);
+					}
+				}
+				classes.add(cls);
+			}
+		}
+	}
+
+
+	/**
+	 * Serializer of the index; all strings are stored once in a string-table.
+	 */
+	private static class IndexWriter {
+
+		private final Map<JavaMethod, MethodDefInfo> defInfos;
+		private final Map<String, Integer> stringIDs;
+		private final List<String> stringList;
+		private final ByteArrayOutputStream recordBytes;
+		private final DataOutputStream records;
+
+		IndexWriter(Map<JavaMethod, MethodDefInfo> defInfos) {
+			this.defInfos = defInfos;
+			stringIDs = new HashMap<>();
+			stringList = new ArrayList<>();
+			recordBytes = new ByteArrayOutputStream();
+			records = new DataOutputStream(recordBytes);
+		}
+
+		int stringID(String str) {
+			if (str == null)
+				return NULL;
+			Integer id = stringIDs.get(str);
+			if (id == null) {
+				id = stringList.size();
+				stringIDs.put(str, id);
+				stringList.add(str);
+			}
+			return id;
+		}
+
+		private void writeStrings(String[] array) throws IOException {
+			if (array == null) {
+				records.writeInt(NULL);
+				return;
+			}
+			records.writeInt(array.length);
+			for (String str: array)
+				records.writeInt(stringID(str));
+		}
+
+		/**
+		 * Write the record of an entry, and return its offset in the records section.
+		 */
+		int writeRecord(JavaClass[] classes) throws IOException {
+			int offset = records.size();
+			records.writeInt(classes.length);
+			for (JavaClass cls: classes) {
+				records.writeInt(stringID(cls.NAME));
+				records.writeInt(stringID(cls.PACKAGE));
+				records.writeInt(stringID(cls.EXTENDS));
+				records.writeInt(stringID(cls.FILE));
+				writeStrings(cls.IMPORTS);
+				records.writeInt(stringID(cls.getTypeParameters()));
+				writeStrings(cls.getInterfaces());
+				JavaField[] fields = cls.getAllFields();
+				records.writeInt(fields.length);
+				for (JavaField fld: fields) {
+					records.writeInt(stringID(fld.MODIFIER));
+					records.writeBoolean(fld.STATIC);
+					records.writeInt(stringID(fld.TYPE));
+					records.writeInt(stringID(fld.NAME));
+				}
+				JavaMethod[] methods = cls.getAllMethods();
+				records.writeInt(methods.length);
+				for (JavaMethod mtd: methods) {
+					records.writeInt(stringID(mtd.MODIFIER));
+					records.writeBoolean(mtd.STATIC);
+					records.writeBoolean(mtd.ABSTRACT);
+					records.writeInt(stringID(mtd.RET_TYPE));
+					records.writeInt(stringID(mtd.NAME));
+					writeStrings(mtd.ARG_TYPES);
+					records.writeInt(mtd.LINE_OF_CODE);
+					// methods of entries which are not analyzed have no DEF-info;
+					// for these, a default DEF-info (no DEFs at all) is written
+					MethodDefInfo info = defInfos.get(mtd);
+					boolean[] argDEFs = info == null ? 
+							new boolean[mtd.ARG_TYPES == null ? 0 : mtd.ARG_TYPES.length] : info.argDEFs();
+					records.writeBoolean(info != null && info.doesStateDEF());
+					records.writeInt(argDEFs.length);
+					for (boolean def: argDEFs)
+						records.writeBoolean(def);
+				}
+			}
+			return offset;
+		}
+
+		/**
+		 * Write the whole index: header, string-table, entry-table, and records.
+		 */
+		void writeIndex(long fingerprint, List<String> entryNames, int[] recordOffsets,
+				DataOutputStream out) throws IOException {
+			List<byte[]> stringBytes = new ArrayList<>(stringList.size());
+			for (String str: stringList)
+				stringBytes.add(str.getBytes(StandardCharsets.UTF_8));
+			int headerSize = 16;
+			int stringTableSize = 4 + 4 * stringBytes.size();
+			int entryTableSize = 4 + 8 * entryNames.size();
+			int stringDataOffset = headerSize + stringTableSize + entryTableSize;
+			int stringDataSize = 0;
+			for (byte[] bytes: stringBytes)
+				stringDataSize += 4 + bytes.length;
+			int recordsOffset = stringDataOffset + stringDataSize;
+			//
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(fingerprint);
+			out.writeInt(stringBytes.size());
+			int offset = stringDataOffset;
+			for (byte[] bytes: stringBytes) {
+				out.writeInt(offset);
+				offset += 4 + bytes.length;
+			}
+			out.writeInt(entryNames.size());
+			for (int i = 0; i < entryNames.size(); ++i) {
+				out.writeInt(stringIDs.get(entryNames.get(i)));
+				out.writeInt(recordsOffset + recordOffsets[i]);
+			}
+			for (byte[] bytes: stringBytes) {
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			recordBytes.writeTo(out);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Index of the entries of a source archive (such as 'src.zip'), by package.
+ *
+ * The entries of each archive are scanned only once, and the index is shared
+ * among all users of the archive; so resolving a wildcard package import is a
+ * single lookup. An index is rebuilt if its archive file is modified.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+class JavaPackageIndex {
+
+	private static final Map<String, JavaPackageIndex> indexes = new HashMap<>();
+
+	private final long lastModified;
+	private final long length;
+	private final Map<String, List<String>> packageEntries;
+
+	private JavaPackageIndex(ZipFile zip, File zipFile) {
+		lastModified = zipFile.lastModified();
+		length = zipFile.length();
+		packageEntries = new HashMap<>();
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			if (entry.isDirectory())
+				continue;
+			String name = entry.getName();
+			int slash = name.lastIndexOf('/');
+			String pkg = slash < 0 ? "" : name.substring(0, slash + 1);
+			packageEntries.computeIfAbsent(pkg, k -> new ArrayList<>()).add(name);
+		}
+	}
+
+	/**
+	 * Returns the package index of the given opened archive.
+	 */
+	static synchronized JavaPackageIndex forArchive(ZipFile zip) {
+		File zipFile = new File(zip.getName());
+		JavaPackageIndex index = indexes.get(zip.getName());
+		if (index == null || !index.isCurrent(zipFile)) {
+			index = new JavaPackageIndex(zip, zipFile);
+			indexes.put(zip.getName(), index);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the package index of the given archive;
+	 * the archive is only opened if it is not indexed yet, or is modified.
+	 */
+	static synchronized JavaPackageIndex forArchive(String zipPath) throws IOException {
+		JavaPackageIndex index = indexes.get(zipPath);
+		if (index != null && index.isCurrent(new File(zipPath)))
+			return index;
+		try (ZipFile zip = new ZipFile(zipPath)) {
+			return forArchive(zip);
+		}
+	}
+
+	private boolean isCurrent(File zipFile) {
+		return lastModified == zipFile.lastModified() && length == zipFile.length();
+	}
+
+	/**
+	 * Returns the entry names of the given wildcard package import (such as 'java.util.*'),
+	 * in the same order as the entries of the archive.
+	 */
+	List<String> getPackageEntries(String qualifiedName) {
+		// qualifiedName ends with ".*"
+		String pkg = qualifiedName.replace('.', '/').substring(0, qualifiedName.length() - 1);
+		List<String> entries = packageEntries.get(pkg);
+		return entries == null ? Collections.emptyList() : Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Returns the entries of the given wildcard package import (such as 'java.util.*')
+	 * of the given opened archive, in the same order as the entries of the archive.
+	 */
+	static List<ZipEntry> getPackageEntries(ZipFile zip, String qualifiedName) {
+		List<String> names = forArchive(zip).getPackageEntries(qualifiedName);
+		List<ZipEntry> entries = new ArrayList<>(names.size());
+		for (String name: names)
+			entries.add(zip.getEntry(name));
+		return entries;
+	}
+}
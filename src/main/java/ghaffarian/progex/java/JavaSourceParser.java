@@ -0,0 +1,224 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import ghaffarian.progex.java.parser.JavaLexer;
+import ghaffarian.progex.java.parser.JavaParser;
+
+/**
+ * Shared parsing facility for Java source files.
+ *
+ * Parsing is performed in two stages: first the faster SLL prediction mode
+ * is tried with a bail-out error strategy; only if this stage fails, the
+ * input is parsed again using the full LL prediction mode. For valid inputs,
+ * the SLL stage almost always succeeds and yields the same parse-tree as LL.
+ *
+ * In fail-fast mode, no error recovery is tried: lexing and parsing are
+ * aborted on the first error; which is useful for quickly rejecting 
+ * invalid input files.
+ *
+ * Source files are memory-mapped and decoded (as UTF-8) directly into 
+ * the character array consumed by the lexer; and no file handle is kept 
+ * open after loading.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class JavaSourceParser {
+
+	/**
+	 * Load the characters of the given Java source file.
+	 */
+	public static CharStream load(File javaFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(javaFile.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("File is too large: " + javaFile.getPath());
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			return decode(bytes, javaFile.getPath());
+		}
+	}
+
+	/**
+	 * Load the characters of the given Java source stream.
+	 * The given stream is read completely and closed.
+	 */
+	public static CharStream load(InputStream source) throws IOException {
+		try (InputStream in = source) {
+			return decode(ByteBuffer.wrap(in.readAllBytes()), null);
+		}
+	}
+
+	/**
+	 * Decode the given UTF-8 bytes into a character stream for the lexer.
+	 * Malformed input is replaced, the same as reading via an InputStreamReader.
+	 */
+	private static CharStream decode(ByteBuffer bytes, String name) throws IOException {
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		// UTF-8 never decodes to more chars than the number of bytes
+		char[] chars = new char[bytes.remaining()];
+		CharBuffer out = CharBuffer.wrap(chars);
+		CoderResult result = decoder.decode(bytes, out, true);
+		if (!result.isUnderflow())
+			result.throwException();
+		decoder.flush(out);
+		ANTLRInputStream input = new ANTLRInputStream(chars, out.position());
+		input.name = name;
+		return input;
+	}
+
+	/**
+	 * Tokenize the given Java source file.
+	 * The given listeners (if any) are notified of lexical errors.
+	 */
+	public static CommonTokenStream tokenize(File javaFile, ANTLRErrorListener... listeners) throws IOException {
+		return tokenize(load(javaFile), listeners);
+	}
+
+	/**
+	 * Tokenize the given Java source stream; the stream is closed afterwards.
+	 * The given listeners (if any) are notified of lexical errors.
+	 */
+	public static CommonTokenStream tokenize(InputStream source, ANTLRErrorListener... listeners) throws IOException {
+		return tokenize(load(source), listeners);
+	}
+
+	/**
+	 * Tokenize the given Java source characters.
+	 * The given listeners (if any) are notified of lexical errors.
+	 */
+	public static CommonTokenStream tokenize(CharStream source, ANTLRErrorListener... listeners) {
+		JavaLexer lexer = new JavaLexer(source);
+		for (ANTLRErrorListener listener: listeners)
+			lexer.addErrorListener(listener);
+		return new CommonTokenStream(lexer);
+	}
+
+	/**
+	 * Parse the given Java source file and return the parse-tree.
+	 */
+	public static ParseTree parse(File javaFile) throws IOException {
+		return parse(tokenize(javaFile));
+	}
+
+	/**
+	 * Parse the given Java source stream and return the parse-tree.
+	 * The given stream is closed after reading.
+	 */
+	public static ParseTree parse(InputStream source) throws IOException {
+		return parse(tokenize(source));
+	}
+
+	/**
+	 * Parse the given token stream and return the parse-tree of the compilation-unit.
+	 * The given listeners (if any) are notified of syntax errors;
+	 * but only errors of the full LL stage are reported.
+	 */
+	public static ParseTree parse(CommonTokenStream tokens, ANTLRErrorListener... listeners) {
+		return parse(tokens, false, listeners);
+	}
+
+	/**
+	 * Parse the given token stream in fail-fast mode and return the parse-tree.
+	 * Both lexing and parsing are aborted on the first error, which is 
+	 * reported by throwing a SyntaxErrorException; no error recovery is tried.
+	 */
+	public static ParseTree parseFailFast(CommonTokenStream tokens) throws SyntaxErrorException {
+		Lexer lexer = (Lexer) tokens.getTokenSource();
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(FailFastErrorListener.INSTANCE);
+		return parse(tokens, true);
+	}
+
+	private static ParseTree parse(CommonTokenStream tokens, boolean failFast, ANTLRErrorListener... listeners) {
+		JavaParser parser = new JavaParser(tokens);
+		// first stage: SLL prediction; bail out on the first syntax error
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		parser.removeErrorListeners();
+		parser.setErrorHandler(new BailErrorStrategy());
+		try {
+			return parser.compilationUnit();
+		} catch (ParseCancellationException ex) {
+			// second stage: full LL prediction with default error recovery;
+			// SLL may fail on valid inputs, hence even fail-fast mode needs this stage
+			parser.reset();
+			if (failFast) {
+				parser.addErrorListener(FailFastErrorListener.INSTANCE);
+			} else {
+				parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+				for (ANTLRErrorListener listener: listeners)
+					parser.addErrorListener(listener);
+			}
+			parser.setErrorHandler(new DefaultErrorStrategy());
+			parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+			return parser.compilationUnit();
+		}
+	}
+
+
+	/**
+	 * Thrown on the first lexical or syntax error in fail-fast mode.
+	 */
+	public static class SyntaxErrorException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int line;
+		private final int column;
+
+		public SyntaxErrorException(int line, int column, String msg) {
+			super(msg);
+			this.line = line;
+			this.column = column;
+		}
+
+		public int getLine() {
+			return line;
+		}
+
+		public int getColumn() {
+			return column;
+		}
+	}
+
+
+	/**
+	 * Error listener which aborts lexing/parsing on the first reported error.
+	 */
+	private static class FailFastErrorListener extends BaseErrorListener {
+
+		static final FailFastErrorListener INSTANCE = new FailFastErrorListener();
+
+		@Override
+		public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
+				int line, int charPositionInLine, String msg, RecognitionException e) {
+			throw new SyntaxErrorException(line, charPositionInLine, msg);
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex.java;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A simple structure to store DEF information about a Java method.
+ * 
+ * @author Seyed Mohammad Ghaffarian
+ */
+class MethodDefInfo {
+	
+	// Method ID
+	public final String NAME;
+	public final String PACKAGE;
+	public final String RET_TYPE;
+	public final String CLASS_NAME;
+	public final String[] PARAM_TYPES;
+	
+	// DEF Info; the DEF-infos are updated by concurrent workers,
+	// hence argDEFs is only accessed while holding the lock of this object.
+	private volatile boolean stateDEF;
+	private boolean[] argDEFs;
+	private List<String> fieldDEFs;
+	
+	public MethodDefInfo(String ret, String name, String pkg, String cls, String[] args) {
+		NAME = name;
+		RET_TYPE = ret;
+		CLASS_NAME = cls;
+		PACKAGE = pkg == null ? "" : pkg;
+		PARAM_TYPES = args == null ? new String[0] : args;
+		//
+		fieldDEFs = new ArrayList<>(); 
+		stateDEF = guessByTypeOrName(); 
+		argDEFs = new boolean[PARAM_TYPES.length];  // all initialized to 'false'
+	}
+
+	private boolean guessByTypeOrName() {
+		// First check if this method is a constructor ...
+		if (RET_TYPE == null)
+			return true;
+		// If not, then try to guess by method-name ...
+		String[] prefixes = { "set", "put", "add", "insert", "push", "append" };
+		for (String pre: prefixes)
+			if (NAME.toLowerCase().startsWith(pre))
+				return true;
+		return false;
+	}
+
+	public boolean doesStateDEF() {
+		return stateDEF;
+	}
+
+	public void setStateDEF(boolean stateDef) {
+		stateDEF = stateDef;
+	}
+
+	/**
+	 * Returns a copy of the argument DEFs of this method.
+	 */
+	public synchronized boolean[] argDEFs() {
+		return argDEFs.clone();
+	}
+	
+	public synchronized boolean doesArgDEF(int argIndex) {
+		return argDEFs[argIndex];
+	}
+	
+	public synchronized void setArgDEF(int argIndex, boolean def) {
+		argDEFs[argIndex] = def;
+	}
+
+	public synchronized void setAllArgDEFs(boolean[] argDefs) {
+		argDEFs = argDefs.clone();
+	}
+
+	public synchronized String[] fieldDEFs() {
+		return fieldDEFs.toArray(new String[fieldDEFs.size()]);
+	}
+
+	public synchronized void addFieldDEF(String fieldName) {
+		if (!fieldDEFs.contains(fieldName)) {
+			fieldDEFs.add(fieldName);
+			stateDEF = true;
+		}
+	}
+	
+	/**
+	 * Returns a copy of this DEF-info, which can be modified independently.
+	 */
+	public synchronized MethodDefInfo copy() {
+		MethodDefInfo info = new MethodDefInfo(RET_TYPE, NAME, PACKAGE, CLASS_NAME, PARAM_TYPES);
+		info.stateDEF = stateDEF;
+		info.argDEFs = argDEFs.clone();
+		info.fieldDEFs.addAll(fieldDEFs);
+		return info;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof MethodDefInfo))
+			return false;
+		MethodDefInfo info = (MethodDefInfo) obj;
+		// RET_TYPE is null for constructors
+		return Objects.equals(this.NAME, info.NAME) && Objects.equals(this.CLASS_NAME, info.CLASS_NAME)
+				&& Objects.equals(this.PACKAGE, info.PACKAGE) && Objects.equals(this.RET_TYPE, info.RET_TYPE)
+				&& Arrays.equals(this.PARAM_TYPES, info.PARAM_TYPES);
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 7;
+		hash = 31 * hash + Objects.hashCode(this.NAME);
+		hash = 31 * hash + Objects.hashCode(this.CLASS_NAME);
+		hash = 31 * hash + Objects.hashCode(this.PACKAGE);
+		hash = 31 * hash + Objects.hashCode(this.RET_TYPE);
+		hash = 31 * hash + Arrays.hashCode(this.PARAM_TYPES);
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		String retType = RET_TYPE == null ? "null" : RET_TYPE;
+		String args = PARAM_TYPES == null ? "null" : Arrays.toString(PARAM_TYPES);
+		StringBuilder str = new StringBuilder();
+		str.append("{ TYPE : \"").append(retType).append("\", ");
+		str.append("NAME : \"").append(NAME).append("\", ");
+		str.append("ARGS : ").append(args).append(", ");
+		str.append("CLASS : \"").append(CLASS_NAME).append("\", ");
+		str.append("PACKAGE : \"").append(PACKAGE).append("\" }");
+		return str.toString();
+	}
+}
@@ -2,6 +2,18 @@
 package ghaffarian.progex;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import ghaffarian.progex.graphs.cfg.CFNode;
+import ghaffarian.progex.graphs.cfg.ControlFlowGraph;
+import ghaffarian.progex.graphs.pdg.PDNode;
+import ghaffarian.progex.graphs.pdg.ProgramDependeceGraph;
+import ghaffarian.progex.java.JavaPDGBuilder;
 import ghaffarian.progex.utils.FileUtils;
 
 import static org.junit.Assert.*;
@@ -146,4 +158,70 @@ public class BasicAnalysisTests {
         assertEquals(testFiles.length, outDataFiles.length);
         assertEquals(testFiles.length, outCtrlFiles.length);
     }
+    
+    @Test
+    public void javaMergedPDGJsonTest() {
+        String outDir = OUTPUT_DIR + "PDG-MERGED/";
+        String[] args = {"-pdg", "-mergepdg", "-outdir", outDir, "-format", "json", JAVA_SRC_DIR};
+        Main.main(args);
+        //
+        String[] testFiles = FileUtils.listFilesWithSuffix(new String[] {JAVA_SRC_DIR}, Execution.Languages.JAVA.suffix);
+        String[] outFiles = FileUtils.listFilesWithSuffix(new String[] {outDir}, "-PDG.json");
+        String[] outCtrlFiles = FileUtils.listFilesWithSuffix(new String[] {outDir}, "-PDG-CTRL.json");
+        assertEquals(testFiles.length, outFiles.length);
+        assertEquals(0, outCtrlFiles.length);
+    }
+    
+    @Test
+    public void javaMergedPDGStructureTest() throws IOException {
+        String outDir = OUTPUT_DIR + "PDG-MERGED-GML/";
+        String[] testFiles = FileUtils.listFilesWithSuffix(new String[] {JAVA_SRC_DIR}, Execution.Languages.JAVA.suffix);
+        ProgramDependeceGraph[] pdgs = JavaPDGBuilder.buildForAll(testFiles);
+        assertEquals(testFiles.length, pdgs.length);
+        for (ProgramDependeceGraph pdg: pdgs) {
+            // the statements of the DDG are the same nodes as the statements of the CDG
+            Iterator<PDNode> dataNodes = pdg.DDS.allVerticesIterator();
+            while (dataNodes.hasNext())
+                assertTrue(pdg.FILE_NAME, pdg.CDS.containsVertex(dataNodes.next()));
+            // so, the merged PDG has one node per statement; i.e. the CDG nodes,
+            // and the nodes of the CFG (of the DDG) which are not statements of the CDG.
+            ControlFlowGraph cfg = pdg.DDS.getCFG();
+            int nodeCount = pdg.CDS.vertexCount();
+            Iterator<CFNode> cfNodes = cfg.allVerticesIterator();
+            while (cfNodes.hasNext()) {
+                PDNode pdNode = cfNodes.next().getPDNode();
+                if (pdNode == null || !pdg.CDS.containsVertex(pdNode))
+                    ++nodeCount;
+            }
+            int edgeCount = pdg.CDS.edgeCount() + cfg.edgeCount() + pdg.DDS.edgeCount();
+            pdg.exportGML(outDir);
+            String name = pdg.FILE_NAME.substring(0, pdg.FILE_NAME.indexOf('.'));
+            List<String> lines = Files.readAllLines(Paths.get(outDir, name + "-PDG.gml"), StandardCharsets.UTF_8);
+            assertEquals(pdg.FILE_NAME, nodeCount, Collections.frequency(lines, "  node ["));
+            assertEquals(pdg.FILE_NAME, edgeCount, Collections.frequency(lines, "  edge ["));
+        }
+    }
+    
+    @Test
+    public void javaPDGMultiThreadTest() throws IOException {
+        String stDir = OUTPUT_DIR + "PDG-ST/";
+        String mtDir = OUTPUT_DIR + "PDG-MT/";
+        Main.main(new String[] {"-pdg", "-outdir", stDir, "-format", "gml", JAVA_SRC_DIR});
+        Main.main(new String[] {"-pdg", "-threads", "4", "-outdir", mtDir, "-format", "gml", JAVA_SRC_DIR});
+        //
+        String[] testFiles = FileUtils.listFilesWithSuffix(new String[] {JAVA_SRC_DIR}, Execution.Languages.JAVA.suffix);
+        String[] outDataFiles = FileUtils.listFilesWithSuffix(new String[] {mtDir}, "-PDG-DATA.gml");
+        String[] outCtrlFiles = FileUtils.listFilesWithSuffix(new String[] {mtDir}, "-PDG-CTRL.gml");
+        assertEquals(testFiles.length, outDataFiles.length);
+        assertEquals(testFiles.length, outCtrlFiles.length);
+        // parallel parsing must yield the same graphs as sequential parsing
+        for (String[] outFiles: new String[][] {outDataFiles, outCtrlFiles}) {
+            for (String mtFile: outFiles) {
+                File stFile = new File(stDir, new File(mtFile).getName());
+                assertTrue(stFile.exists());
+                assertEquals(new String(Files.readAllBytes(stFile.toPath()), StandardCharsets.UTF_8),
+                             new String(Files.readAllBytes(Paths.get(mtFile)), StandardCharsets.UTF_8));
+            }
+        }
+    }
 }
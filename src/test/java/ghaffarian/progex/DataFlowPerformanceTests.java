@@ -0,0 +1,68 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import ghaffarian.nanologger.Logger;
+import ghaffarian.progex.graphs.pdg.DataDependenceGraph;
+import ghaffarian.progex.graphs.pdg.ReachingDefinitions;
+import ghaffarian.progex.java.JavaArtifactCache;
+import ghaffarian.progex.java.JavaDDGBuilder;
+import ghaffarian.progex.utils.FileUtils;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Performance benchmarks for adding the data-flow edges of DDGs.
+ * These are excluded from the default test run; use the 'benchmark' profile.
+ * The equivalence of the compared algorithms is tested by DataFlowTests.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class DataFlowPerformanceTests {
+
+    private final String JAVA_SRC_DIR = "src/test/resources/java/";
+    private static final int ROUNDS = 20;
+
+    @Test
+    public void reachingDefinitionsBenchmark() throws IOException {
+        String[] srcFiles = FileUtils.listFilesWithSuffix(new String[] {JAVA_SRC_DIR}, Execution.Languages.JAVA.suffix);
+        JavaArtifactCache artifacts = new JavaArtifactCache(srcFiles, 1);
+        artifacts.parseAll();
+        File[] files = artifacts.getAcceptedFiles();
+        DataDependenceGraph[] ddgs = JavaDDGBuilder.buildForAll(files, artifacts);
+        List<DataDependenceGraph> graphs = new ArrayList<>();
+        for (DataDependenceGraph ddg: ddgs)
+            if (ddg != null)
+                graphs.add(ddg);
+        assertFalse(graphs.isEmpty());
+        // warm-up rounds for the JIT compiler
+        for (int r = 0; r < ROUNDS; ++r) {
+            for (DataDependenceGraph ddg: graphs) {
+                DataFlowTests.addEdgesByTraversal(ddg.getCFG(), DataFlowTests.emptyCopy(ddg));
+                new ReachingDefinitions(ddg.getCFG()).addDataFlowEdges(DataFlowTests.emptyCopy(ddg));
+            }
+        }
+        long traversalTime = 0, reachingTime = 0;
+        for (int r = 0; r < ROUNDS; ++r) {
+            for (DataDependenceGraph ddg: graphs) {
+                DataDependenceGraph copy = DataFlowTests.emptyCopy(ddg);
+                long start = System.nanoTime();
+                DataFlowTests.addEdgesByTraversal(ddg.getCFG(), copy);
+                traversalTime += System.nanoTime() - start;
+                //
+                copy = DataFlowTests.emptyCopy(ddg);
+                start = System.nanoTime();
+                new ReachingDefinitions(ddg.getCFG()).addDataFlowEdges(copy);
+                reachingTime += System.nanoTime() - start;
+            }
+        }
+        Logger.info("Added data-flow edges of " + graphs.size() + " files, " + ROUNDS + " rounds:");
+        Logger.info("  Path traversals      = " + (traversalTime / 1_000_000) + " ms");
+        Logger.info("  Reaching definitions = " + (reachingTime / 1_000_000) + " ms");
+        Logger.info("  Speedup              = " + String.format("%.2f", (double) traversalTime / reachingTime));
+    }
+}
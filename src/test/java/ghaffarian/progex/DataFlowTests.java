@@ -0,0 +1,308 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import ghaffarian.graphs.Edge;
+import ghaffarian.progex.graphs.cfg.CFNode;
+import ghaffarian.progex.graphs.cfg.CFPathTraversal;
+import ghaffarian.progex.graphs.cfg.ControlFlowGraph;
+import ghaffarian.progex.graphs.pdg.DDEdge;
+import ghaffarian.progex.graphs.pdg.DataDependenceGraph;
+import ghaffarian.progex.graphs.pdg.PDNode;
+import ghaffarian.progex.graphs.pdg.ReachingDefinitions;
+import ghaffarian.progex.graphs.pdg.SymbolTable;
+import ghaffarian.progex.java.JavaArtifactCache;
+import ghaffarian.progex.java.JavaDDGBuilder;
+import ghaffarian.progex.utils.FileUtils;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Tests for the data-flow analysis of DDGs; such as the method summaries of DEF-USE analysis,
+ * the equivalence of different algorithms of adding the data-flow edges, and the golden DDGs
+ * of the DEF-USE analysis.
+ * The timing of these algorithms is measured by DataFlowPerformanceTests.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class DataFlowTests {
+
+    private final String JAVA_SRC_DIR = "src/test/resources/java/basic/";
+    private final String SUMMARY_SRC_DIR = "src/test/resources/java/summary/";
+    private static final String GOLDEN_DIR = "src/test/resources/java/golden/";
+    private static final String OUTPUT_DIR = "out/java/dataflow/";
+
+    @Test
+    public void reachingDefinitionsTest() throws IOException {
+        String[] srcFiles = FileUtils.listFilesWithSuffix(new String[] {JAVA_SRC_DIR}, Execution.Languages.JAVA.suffix);
+        File[] files = new File[srcFiles.length];
+        for (int i = 0; i < files.length; ++i)
+            files[i] = new File(srcFiles[i]);
+        DataDependenceGraph[] ddgs = JavaDDGBuilder.buildForAll(files, new JavaArtifactCache(files, 1));
+        for (DataDependenceGraph ddg: ddgs) {
+            assertNotNull(ddg);
+            // both algorithms must yield the same data-flow edges
+            DataDependenceGraph traversal = emptyCopy(ddg);
+            addEdgesByTraversal(ddg.getCFG(), traversal);
+            DataDependenceGraph reaching = emptyCopy(ddg);
+            new ReachingDefinitions(ddg.getCFG()).addDataFlowEdges(reaching);
+            assertFalse(edgeSet(reaching).isEmpty());
+            assertEquals(edgeSet(traversal), edgeSet(reaching));
+            assertEquals(edgeSet(ddg), edgeSet(reaching));
+        }
+    }
+
+    @Test
+    public void methodSummaryTest() throws IOException {
+        File[] files = {new File(SUMMARY_SRC_DIR + "Caller.java"), new File(SUMMARY_SRC_DIR + "Counter.java")};
+        DataDependenceGraph[] ddgs = new JavaDDGBuilder().build(files, new JavaArtifactCache(files, 1));
+        // the summaries of the mutually recursive methods are computed together;
+        // 'addOdd' modifies the counter through 'addEven', but 'get' does not.
+        assertArrayEquals(new String[] {"counter"}, findNode(ddgs[0], "counter.addOdd(4)").getAllDEFs());
+        assertEquals(0, findNode(ddgs[0], "return counter.get();").getAllDEFs().length);
+        // the result depends neither on the order of files, nor on the number of threads
+        File[] reversed = {files[1], files[0]};
+        DataDependenceGraph[] reversedDDGs = new JavaDDGBuilder().build(reversed, new JavaArtifactCache(reversed, 4));
+        assertEquals(describe(ddgs[0]), describe(reversedDDGs[1]));
+        assertEquals(describe(ddgs[1]), describe(reversedDDGs[0]));
+    }
+
+    @Test
+    public void symbolTableTest() throws IOException {
+        File[] files = sourceFiles(JAVA_SRC_DIR);
+        DataDependenceGraph[] ddgs = new JavaDDGBuilder(false, null, libraryStubs()).build(files, new JavaArtifactCache(files, 1));
+        // the interned DEF-USE sets must behave the same as the plain sets of nodes without a symbol table;
+        // the variables are added twice, in reverse order the second time.
+        SymbolTable symbols = new SymbolTable();
+        for (DataDependenceGraph ddg: ddgs) {
+            Iterator<PDNode> nodes = ddg.allVerticesIterator();
+            while (nodes.hasNext()) {
+                PDNode node = nodes.next();
+                PDNode plain = new PDNode();
+                PDNode interned = new PDNode(symbols);
+                addTwice(node.getAllDEFs(), plain, interned, PDNode::addDEF);
+                addTwice(node.getAllUSEs(), plain, interned, PDNode::addUSE);
+                addTwice(node.getAllSelfFlows(), plain, interned, PDNode::addSelfFlow);
+                assertArrayEquals(node.getAllDEFs(), interned.getAllDEFs());
+                assertArrayEquals(plain.getAllDEFs(), interned.getAllDEFs());
+                assertArrayEquals(plain.getAllUSEs(), interned.getAllUSEs());
+                assertArrayEquals(plain.getAllSelfFlows(), interned.getAllSelfFlows());
+                for (String var: node.getAllUSEs()) {
+                    assertEquals(plain.hasDEF(var), interned.hasDEF(var));
+                    assertTrue(interned.hasUSE(var));
+                }
+                assertFalse(interned.hasDEF("$NONE") || interned.hasUSE("$NONE"));
+            }
+        }
+    }
+
+    @Test
+    public void scopedLookupTest() throws IOException {
+        // locals of sibling blocks, loops and catch clauses, shadowing parameters and fields
+        assertSameAsGolden("src/test/resources/java/scopes/", GOLDEN_DIR + "scopes-ddg.txt");
+    }
+
+    @Test
+    public void methodIndexTest() throws IOException {
+        // calls of methods with the same name, in different classes and with different parameters
+        assertSameAsGolden("src/test/resources/java/overloads/", GOLDEN_DIR + "overloads-ddg.txt");
+        assertSameAsGolden(JAVA_SRC_DIR, GOLDEN_DIR + "basic-ddg.txt");
+    }
+
+    /**
+     * Adds the given variables to both nodes twice, by the given method;
+     * both nodes must report the same changes.
+     */
+    private static void addTwice(String[] vars, PDNode plain, PDNode interned, BiPredicate<PDNode, String> add) {
+        for (int i = 0; i < 2 * vars.length; ++i) {
+            String var = i < vars.length ? vars[i] : vars[2 * vars.length - 1 - i];
+            assertEquals(add.test(plain, var), add.test(interned, var));
+        }
+    }
+
+    /**
+     * Asserts that the DDGs of the Java files of the given directory are the same as the golden file;
+     * which holds the sorted DEF-USE sets of all nodes, and all data-dependence edges.
+     */
+    private static void assertSameAsGolden(String srcDir, String goldenFile) throws IOException {
+        File[] files = sourceFiles(srcDir);
+        DataDependenceGraph[] ddgs = new JavaDDGBuilder(false, null, libraryStubs()).build(files, new JavaArtifactCache(files, 1));
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < ddgs.length; ++i) {
+            String prefix = files[i].getName() + " ";
+            Iterator<PDNode> nodes = ddgs[i].allVerticesIterator();
+            while (nodes.hasNext()) {
+                PDNode node = nodes.next();
+                lines.add(prefix + node + " DEFs" + Arrays.toString(node.getAllDEFs()) + " USEs" + Arrays.toString(node.getAllUSEs()));
+            }
+            Iterator<Edge<PDNode, DDEdge>> edges = ddgs[i].allEdgesIterator();
+            while (edges.hasNext()) {
+                Edge<PDNode, DDEdge> edge = edges.next();
+                lines.add(prefix + edge.source + " -(" + edge.label.type + ": " + edge.label.var + ")-> " + edge.target);
+            }
+        }
+        Collections.sort(lines);
+        List<String> golden = new ArrayList<>();
+        for (String line: Files.readAllLines(Paths.get(goldenFile), StandardCharsets.UTF_8))
+            if (!line.startsWith("#"))
+                golden.add(line);
+        assertEquals(golden, lines);
+    }
+
+    private static File[] sourceFiles(String srcDir) {
+        String[] srcFiles = FileUtils.listFilesWithSuffix(new String[] {srcDir}, Execution.Languages.JAVA.suffix);
+        Arrays.sort(srcFiles);
+        File[] files = new File[srcFiles.length];
+        for (int i = 0; i < files.length; ++i)
+            files[i] = new File(srcFiles[i]);
+        return files;
+    }
+
+    /**
+     * Writes a library archive of a few stubs of 'java.lang' classes, which are used by the test sources;
+     * hence, the analysis does not depend on the JDK sources which are available.
+     */
+    private static String libraryStubs() throws IOException {
+        new File(OUTPUT_DIR).mkdirs();
+        String zipPath = OUTPUT_DIR + "stubs-src.zip";
+        String builder = "package java.lang;\n"
+                       + "public final class StringBuilder {\n"
+                       + "    private String value;\n"
+                       + "    public StringBuilder() { value = \"\"; }\n"
+                       + "    public StringBuilder(String str) { value = str; }\n"
+                       + "    public StringBuilder append(Object obj) { value = value + obj; return this; }\n"
+                       + "    public String toString() { return value; }\n"
+                       + "}\n";
+        String integer = "package java.lang;\n"
+                       + "public final class Integer {\n"
+                       + "    public static int parseInt(String s) { return s.length(); }\n"
+                       + "}\n";
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipPath))) {
+            zip.putNextEntry(new ZipEntry("java/lang/StringBuilder.java"));
+            zip.write(builder.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("java/lang/Integer.java"));
+            zip.write(integer.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return zipPath;
+    }
+
+    private static PDNode findNode(DataDependenceGraph ddg, String code) {
+        Iterator<PDNode> nodes = ddg.allVerticesIterator();
+        while (nodes.hasNext()) {
+            PDNode node = nodes.next();
+            if (code.equals(node.getCodeStr()))
+                return node;
+        }
+        fail("No node for: " + code);
+        return null;
+    }
+
+    /**
+     * Returns the DEFs and USEs of the nodes of the given DDG, and its data-flow edges;
+     * regardless of the order of nodes and edges.
+     */
+    private static Set<String> describe(DataDependenceGraph ddg) {
+        Set<String> description = new HashSet<>();
+        Iterator<PDNode> nodes = ddg.allVerticesIterator();
+        while (nodes.hasNext()) {
+            PDNode node = nodes.next();
+            description.add(node + " DEFs" + Arrays.toString(node.getAllDEFs()) + " USEs" + Arrays.toString(node.getAllUSEs()));
+        }
+        Iterator<Edge<PDNode, DDEdge>> edges = ddg.allEdgesIterator();
+        while (edges.hasNext()) {
+            Edge<PDNode, DDEdge> edge = edges.next();
+            description.add(edge.source + " -(" + edge.label.type + ": " + edge.label.var + ")-> " + edge.target);
+        }
+        return description;
+    }
+
+    /**
+     * Returns a DDG with the same nodes as the given DDG, but without any edges.
+     */
+    static DataDependenceGraph emptyCopy(DataDependenceGraph ddg) {
+        DataDependenceGraph copy = new DataDependenceGraph(new File(ddg.getCFG().fileName), ddg.tokens);
+        Iterator<PDNode> nodes = ddg.allVerticesIterator();
+        while (nodes.hasNext())
+            copy.addVertex(nodes.next());
+        return copy;
+    }
+
+    static Set<String> edgeSet(DataDependenceGraph ddg) {
+        Map<PDNode, Integer> ids = new IdentityHashMap<>();
+        Iterator<PDNode> nodes = ddg.allVerticesIterator();
+        while (nodes.hasNext())
+            ids.put(nodes.next(), ids.size());
+        Set<String> edges = new HashSet<>();
+        Iterator<Edge<PDNode, DDEdge>> edgesIterator = ddg.allEdgesIterator();
+        while (edgesIterator.hasNext()) {
+            Edge<PDNode, DDEdge> edge = edgesIterator.next();
+            if (edge.label.type == DDEdge.Type.FLOW)
+                edges.add(ids.get(edge.source) + " -(" + edge.label.var + ")-> " + ids.get(edge.target));
+        }
+        return edges;
+    }
+
+    /**
+     * The former algorithm of adding data-flow edges;
+     * which traverses the CFG paths from each DEF of each node, till another DEF.
+     */
+    static void addEdgesByTraversal(ControlFlowGraph cfg, DataDependenceGraph ddg) {
+        Set<CFNode> visitedDefs = new LinkedHashSet<>();
+        for (CFNode entry: cfg.getAllMethodEntries()) {
+            visitedDefs.clear();
+            CFPathTraversal defTraversal = new CFPathTraversal(cfg, entry);
+            while (defTraversal.hasNext()) {
+                CFNode defCFNode = defTraversal.next();
+                if (!visitedDefs.add(defCFNode)) {
+                    defTraversal.continueNextPath();
+                    continue;
+                }
+                PDNode defNode = (PDNode) defCFNode.getProperty("pdnode");
+                if (defNode == null || defNode.getAllDEFs().length == 0)
+                    continue;
+                for (String flow: defNode.getAllSelfFlows())
+                    ddg.addEdge(new Edge<>(defNode, new DDEdge(DDEdge.Type.FLOW, flow), defNode));
+                Set<CFNode> visitedUses = new LinkedHashSet<>();
+                for (String def: defNode.getAllDEFs()) {
+                    CFPathTraversal useTraversal = new CFPathTraversal(cfg, defCFNode);
+                    visitedUses.clear();
+                    CFNode useCFNode = useTraversal.next(); // skip start node
+                    visitedUses.add(useCFNode);
+                    while (useTraversal.hasNext()) {
+                        useCFNode = useTraversal.next();
+                        PDNode useNode = (PDNode) useCFNode.getProperty("pdnode");
+                        if (useNode == null)
+                            continue;
+                        if (useNode.hasDEF(def))
+                            useTraversal.continueNextPath();
+                        if (!visitedUses.add(useCFNode))
+                            useTraversal.continueNextPath();
+                        else if (useNode.hasUSE(def))
+                            ddg.addEdge(new Edge<>(defNode, new DDEdge(DDEdge.Type.FLOW, def), useNode));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import ghaffarian.graphs.Edge;
+import ghaffarian.progex.graphs.cfg.CFEdge;
+import ghaffarian.progex.graphs.cfg.CFNode;
+import ghaffarian.progex.graphs.cfg.ControlFlowGraph;
+import ghaffarian.progex.graphs.cg.CGEdge;
+import ghaffarian.progex.graphs.cg.CGNode;
+import ghaffarian.progex.graphs.cg.CallGraph;
+import ghaffarian.progex.java.JavaArtifactCache;
+import ghaffarian.progex.java.JavaICFGBuilder;
+import ghaffarian.progex.utils.FileUtils;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Tests for the resolution of calls by the interprocedural analyses;
+ * i.e. the ICFG and the call graph.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class InterproceduralTests {
+
+    private final String JAVA_SRC_DIR = "src/test/resources/java/basic/";
+    private final String HIERARCHY_SRC_DIR = "src/test/resources/java/hierarchy/";
+    private static final String OUTPUT_DIR = "out/java/interprocedural/";
+
+    @Test
+    public void classHierarchyTargetsTest() throws IOException {
+        JavaICFGBuilder builder = new JavaICFGBuilder(false);
+        Map<String, Set<String>> callees = callees(builder.buildCallGraph(artifacts(HIERARCHY_SRC_DIR)));
+        // a virtual call is linked to the overriding methods of all sub-types of the receiver
+        assertEquals(set("p.Shape.area", "p.Circle.area", "p.Square.area", "p.Shape.describe", "p.Square.describe",
+                         "p.Named.name", "p.Circle.name", "p.Square.name", "p.Main.print"), callees.get("p.Main.main"));
+        assertEquals(set("p.Shape.area", "p.Circle.area", "p.Square.area"), callees.get("p.Unused.total"));
+        JavaArtifactCache artifacts = artifacts(HIERARCHY_SRC_DIR);
+        assertSameTargets(callees, builder.build(artifacts), packages(artifacts));
+    }
+
+    @Test
+    public void rapidTypeTargetsTest() throws IOException {
+        JavaICFGBuilder builder = new JavaICFGBuilder(true);
+        Map<String, Set<String>> callees = callees(builder.buildCallGraph(artifacts(HIERARCHY_SRC_DIR)));
+        // 'Square' is never instantiated, hence its methods are not targets
+        assertEquals(set("p.Shape.area", "p.Circle.area", "p.Shape.describe", "p.Named.name", "p.Circle.name", "p.Main.print"),
+                     callees.get("p.Main.main"));
+        assertEquals(set("p.Shape.area", "p.Circle.area"), callees.get("p.Unused.total"));
+        JavaArtifactCache artifacts = artifacts(HIERARCHY_SRC_DIR);
+        assertSameTargets(callees, builder.build(artifacts), packages(artifacts));
+    }
+
+    @Test
+    public void entryPointPruningTest() throws IOException {
+        JavaArtifactCache fullArtifacts = artifacts(HIERARCHY_SRC_DIR);
+        ControlFlowGraph fullICFG = new JavaICFGBuilder(false).build(fullArtifacts);
+        JavaICFGBuilder builder = new JavaICFGBuilder(false, new String[] {"main"});
+        JavaArtifactCache artifacts = artifacts(HIERARCHY_SRC_DIR);
+        ControlFlowGraph icfg = builder.build(artifacts);
+        Map<CFNode, String> packages = packages(artifacts);
+        // only the methods reachable from the entry-points are included
+        Set<String> reachable = set("p.Main.main", "p.Main.print", "p.Shape.area", "p.Shape.describe",
+                                    "p.Circle.area", "p.Circle.name", "p.Square.area", "p.Square.describe", "p.Square.name");
+        assertEquals(reachable, entryNames(icfg, packages));
+        Map<String, Set<String>> fullCallees = icfgCallees(fullICFG, packages(fullArtifacts));
+        fullCallees.keySet().retainAll(reachable);
+        assertEquals(fullCallees, icfgCallees(icfg, packages));
+        // the call graph includes the same methods, and the interface methods
+        reachable.add("p.Named.name");
+        CallGraph callGraph = builder.buildCallGraph(artifacts(HIERARCHY_SRC_DIR));
+        Set<String> methods = new TreeSet<>();
+        Iterator<CGNode> nodes = callGraph.allVerticesIterator();
+        while (nodes.hasNext())
+            methods.add(name(nodes.next()));
+        assertEquals(reachable, methods);
+        assertSameTargets(callees(callGraph), icfg, packages);
+        // a qualified pattern only matches the methods of its class
+        artifacts = artifacts(HIERARCHY_SRC_DIR);
+        icfg = new JavaICFGBuilder(false, new String[] {"p.Unused.*"}).build(artifacts);
+        assertEquals(set("p.Unused.total", "p.Shape.area", "p.Circle.area", "p.Square.area"), 
+                     entryNames(icfg, packages(artifacts)));
+    }
+
+    @Test
+    public void entryPointRapidTypeTest() throws IOException {
+        JavaArtifactCache artifacts = artifacts(HIERARCHY_SRC_DIR);
+        ControlFlowGraph icfg = new JavaICFGBuilder(true, new String[] {"main"}).build(artifacts);
+        // with RTA, only the methods of instantiated classes are reached
+        assertEquals(set("p.Main.main", "p.Main.print", "p.Shape.area", "p.Shape.describe", "p.Circle.area", "p.Circle.name"),
+                     entryNames(icfg, packages(artifacts)));
+    }
+
+    @Test
+    public void callGraphTest() throws IOException {
+        JavaICFGBuilder builder = new JavaICFGBuilder();
+        Map<String, Set<String>> callees = callees(builder.buildCallGraph(artifacts(JAVA_SRC_DIR)));
+        assertFalse(callees.isEmpty());
+        // the call edges are the calls of the ICFG, by method
+        JavaArtifactCache artifacts = artifacts(JAVA_SRC_DIR);
+        assertSameTargets(callees, builder.build(artifacts), packages(artifacts));
+    }
+
+    @Test
+    public void callGraphExportTest() {
+        for (String format: new String[] {"dot", "gml", "json"}) {
+            String outDir = OUTPUT_DIR + "CG-" + format.toUpperCase() + "/";
+            Main.main(new String[] {"-callgraph", "-format", format, "-outdir", outDir, JAVA_SRC_DIR});
+            assertTrue(new File(outDir, "CallGraph-CG." + format).exists());
+        }
+    }
+
+    @Test
+    public void reusableBuilderTest() throws IOException {
+        JavaICFGBuilder builder = new JavaICFGBuilder();
+        Map<String, Set<String>> callees = icfgCallees(builder, HIERARCHY_SRC_DIR);
+        // the classes of a build are not kept for the next builds;
+        // hence, each build yields the same result as a new builder.
+        Map<String, Set<String>> basicCallees = icfgCallees(builder, JAVA_SRC_DIR);
+        assertEquals(icfgCallees(new JavaICFGBuilder(), JAVA_SRC_DIR), basicCallees);
+        assertEquals(callees, icfgCallees(builder, HIERARCHY_SRC_DIR));
+    }
+
+    /**
+     * Asserts that the ICFG links the same targets as the given callees of the call graph;
+     * except the methods without a CFG (i.e. the methods of interfaces).
+     */
+    private static void assertSameTargets(Map<String, Set<String>> callees, ControlFlowGraph icfg, 
+                                          Map<CFNode, String> packages) {
+        Set<String> methods = entryNames(icfg, packages);
+        for (Set<String> targets: callees.values())
+            targets.retainAll(methods);
+        callees.values().removeIf(Set::isEmpty);
+        assertEquals(callees, icfgCallees(icfg, packages));
+    }
+
+    private static Set<String> entryNames(ControlFlowGraph icfg, Map<CFNode, String> packages) {
+        Set<String> methods = new TreeSet<>();
+        for (CFNode entry: icfg.getAllMethodEntries())
+            methods.add(name(entry, packages));
+        return methods;
+    }
+
+    private static JavaArtifactCache artifacts(String srcDir) {
+        String[] srcFiles = FileUtils.listFilesWithSuffix(new String[] {srcDir}, Execution.Languages.JAVA.suffix);
+        return new JavaArtifactCache(srcFiles, 1);
+    }
+
+    /**
+     * Returns the package of each method entry of the CFGs of the given artifact-cache;
+     * the ICFG is built from the same CFGs, but does not record the packages on the nodes.
+     */
+    private static Map<CFNode, String> packages(JavaArtifactCache artifacts) throws IOException {
+        Map<CFNode, String> packages = new IdentityHashMap<>();
+        for (File file: artifacts.getAcceptedFiles()) {
+            ControlFlowGraph cfg = artifacts.getCFG(file);
+            for (CFNode entry: cfg.getAllMethodEntries())
+                packages.put(entry, cfg.getPackage() != null ? cfg.getPackage() : "");
+        }
+        return packages;
+    }
+
+    private static Set<String> set(String... methods) {
+        return new TreeSet<>(Arrays.asList(methods));
+    }
+
+    /**
+     * Returns the called methods of each calling method of the given call graph.
+     */
+    private static Map<String, Set<String>> callees(CallGraph callGraph) {
+        Map<String, Set<String>> callees = new TreeMap<>();
+        Iterator<Edge<CGNode, CGEdge>> edges = callGraph.allEdgesIterator();
+        while (edges.hasNext()) {
+            Edge<CGNode, CGEdge> edge = edges.next();
+            callees.computeIfAbsent(name(edge.source), k -> new TreeSet<>()).add(name(edge.target));
+        }
+        return callees;
+    }
+
+    /**
+     * Returns the called methods of each calling method of the ICFG of the given sources.
+     */
+    private static Map<String, Set<String>> icfgCallees(JavaICFGBuilder builder, String srcDir) throws IOException {
+        JavaArtifactCache artifacts = artifacts(srcDir);
+        ControlFlowGraph icfg = builder.build(artifacts);
+        return icfgCallees(icfg, packages(artifacts));
+    }
+
+    /**
+     * Returns the called methods of each calling method of the given ICFG;
+     * i.e. the CALLS edges of the nodes of each method, by the method entries.
+     */
+    private static Map<String, Set<String>> icfgCallees(ControlFlowGraph icfg, Map<CFNode, String> packages) {
+        Map<String, Set<String>> callees = new TreeMap<>();
+        for (CFNode entry: icfg.getAllMethodEntries()) {
+            Set<CFNode> visited = new HashSet<>();
+            Deque<CFNode> stack = new ArrayDeque<>();
+            stack.push(entry);
+            visited.add(entry);
+            while (!stack.isEmpty()) {
+                Iterator<Edge<CFNode, CFEdge>> edges = icfg.outgoingEdgesIterator(stack.pop());
+                while (edges.hasNext()) {
+                    Edge<CFNode, CFEdge> edge = edges.next();
+                    if (edge.label.type == CFEdge.Type.CALLS)
+                        callees.computeIfAbsent(name(entry, packages), k -> new TreeSet<>()).add(name(edge.target, packages));
+                    else if (edge.label.type != CFEdge.Type.RETURN && visited.add(edge.target))
+                        stack.push(edge.target);
+                }
+            }
+        }
+        return callees;
+    }
+
+    private static String name(CGNode node) {
+        return node.getPackage() + '.' + node.getClassName() + '.' + node.getMethodName();
+    }
+
+    private static String name(CFNode entry, Map<CFNode, String> packages) {
+        return packages.get(entry) + "." + entry.getProperty("class") + '.' + entry.getProperty("name");
+    }
+}
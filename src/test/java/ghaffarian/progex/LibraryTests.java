@@ -0,0 +1,305 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import ghaffarian.graphs.Edge;
+import ghaffarian.progex.graphs.pdg.DDEdge;
+import ghaffarian.progex.graphs.pdg.DataDependenceGraph;
+import ghaffarian.progex.graphs.pdg.PDNode;
+import ghaffarian.progex.java.JavaArtifactCache;
+import ghaffarian.progex.java.JavaClass;
+import ghaffarian.progex.java.JavaClassExtractor;
+import ghaffarian.progex.java.JavaDDGBuilder;
+import ghaffarian.progex.java.JavaLibraryIndex;
+import ghaffarian.progex.utils.FileUtils;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Tests for the library support of the Java analyses;
+ * such as the precompiled library index.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class LibraryTests {
+
+    private static final String JAVA_SRC_DIR = "src/test/resources/java/basic/";
+    private static final String OUTPUT_DIR = "out/java/library/";
+    private static final String LIBRARY_ZIP = "res/jdk7-src.zip";
+    private static final String[] ENTRIES = {"test/Test1.java", "test/Test2.java", "test/Test3.java"};
+
+    @Test
+    public void indexRoundTripTest() throws IOException {
+        String zipPath = writeArchive("index-src.zip");
+        JavaLibraryIndex.build(zipPath);
+        JavaLibraryIndex index = JavaLibraryIndex.load(zipPath);
+        assertNotNull(index);
+        assertEquals(Arrays.asList(ENTRIES), index.getPackageEntries("test.*"));
+        assertTrue(index.getPackageEntries("java.util.*").isEmpty());
+        for (String entry: ENTRIES) {
+            assertTrue(entry, index.hasEntry(entry));
+            List<JavaClass> extracted;
+            try (FileInputStream in = new FileInputStream(JAVA_SRC_DIR + entry.substring(5))) {
+                extracted = JavaClassExtractor.extractInfo("src.zip/" + entry, in);
+            }
+            assertEquals(entry, toStrings(extracted), toStrings(index.getClasses(entry)));
+        }
+        assertFalse(index.hasEntry("test/Test4.java"));
+    }
+
+    @Test
+    public void outdatedIndexTest() throws IOException {
+        String zipPath = writeArchive("outdated-src.zip");
+        JavaLibraryIndex.build(zipPath);
+        // an index beside an archive with a different last-modified time and size is ignored
+        String otherPath = OUTPUT_DIR + "other-src.zip";
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(otherPath))) {
+            zip.putNextEntry(new ZipEntry(ENTRIES[0]));
+            zip.write(Files.readAllBytes(new File(JAVA_SRC_DIR + "Test1.java").toPath()));
+            zip.closeEntry();
+        }
+        new File(otherPath).setLastModified(new File(zipPath).lastModified() - 60_000);
+        File otherIndex = JavaLibraryIndex.getIndexFile(otherPath);
+        Files.copy(JavaLibraryIndex.getIndexFile(zipPath).toPath(), otherIndex.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertNull(JavaLibraryIndex.load(otherPath));
+    }
+
+    @Test
+    public void defCacheTest() throws IOException {
+        // the DEF cache is only used when the library archive is not indexed
+        Assume.assumeTrue(new File(LIBRARY_ZIP).exists());
+        Assume.assumeFalse(JavaLibraryIndex.getIndexFile(LIBRARY_ZIP).exists());
+        File projectDir = new File(OUTPUT_DIR + "defcache-project/");
+        File cacheDir = new File(OUTPUT_DIR + "defcache/");
+        deleteDir(projectDir);
+        deleteDir(cacheDir);
+        projectDir.mkdirs();
+        for (String srcFile: FileUtils.listFilesWithSuffix(new String[] {JAVA_SRC_DIR}, Execution.Languages.JAVA.suffix))
+            Files.copy(Paths.get(srcFile), new File(projectDir, new File(srcFile).getName()).toPath());
+        String[] args = {"-pdg", "-defcache", cacheDir.getPath(), "-format", "gml", "-outdir", null, projectDir.getPath()};
+        // cache miss: the library DEF-infos are analyzed and saved
+        args[6] = OUTPUT_DIR + "DEFCACHE-MISS/";
+        Main.main(args);
+        File[] cacheFiles = cacheDir.listFiles();
+        assertEquals(1, cacheFiles.length);
+        long oldTime = cacheFiles[0].lastModified() - 60_000;
+        assertTrue(cacheFiles[0].setLastModified(oldTime));
+        // cache hit: the same DEF-infos are loaded, and the cache is not saved again
+        args[6] = OUTPUT_DIR + "DEFCACHE-HIT/";
+        Main.main(args);
+        assertEquals(oldTime, cacheFiles[0].lastModified());
+        assertSameOutputs(OUTPUT_DIR + "DEFCACHE-MISS/", OUTPUT_DIR + "DEFCACHE-HIT/", "-PDG-DATA.gml");
+        // a project method with the same name as a looked up library method invalidates the cache
+        String appender = "public class Appender {\n"
+                        + "    private StringBuilder buffer = new StringBuilder();\n"
+                        + "    public void append(String str) { buffer.append(str); }\n"
+                        + "}\n";
+        Files.write(new File(projectDir, "Appender.java").toPath(), appender.getBytes(StandardCharsets.UTF_8));
+        args[6] = OUTPUT_DIR + "DEFCACHE-CHANGED/";
+        Main.main(args);
+        assertEquals(1, cacheDir.listFiles().length);
+        assertNotEquals(oldTime, cacheFiles[0].lastModified());
+    }
+
+    @Test
+    public void lazyLibraryTest() throws IOException {
+        Assume.assumeTrue(new File(LIBRARY_ZIP).exists());
+        File projectDir = new File(OUTPUT_DIR + "lazylib-project/");
+        deleteDir(projectDir);
+        projectDir.mkdirs();
+        String appends = "import java.util.ArrayList;\n"
+                       + "import java.util.List;\n"
+                       + "public class Appends {\n"
+                       + "    public String join(String a, String b) {\n"
+                       + "        StringBuilder buffer = new StringBuilder();\n"
+                       + "        buffer.append(a);\n"
+                       + "        buffer.append(b);\n"
+                       + "        return buffer.toString();\n"
+                       + "    }\n"
+                       + "    public int collect(String a) {\n"
+                       + "        List<String> items = new ArrayList<>();\n"
+                       + "        items.add(a);\n"
+                       + "        return items.size();\n"
+                       + "    }\n"
+                       + "}\n";
+        Files.write(new File(projectDir, "Appends.java").toPath(), appends.getBytes(StandardCharsets.UTF_8));
+        Main.main(new String[] {"-pdg", "-format", "gml", "-outdir", OUTPUT_DIR + "EAGER-LIB/", projectDir.getPath()});
+        Main.main(new String[] {"-pdg", "-lazylib", "-format", "gml", "-outdir", OUTPUT_DIR + "LAZY-LIB/", projectDir.getPath()});
+        // the library classes resolved on demand yield the same DEFs as the imported packages
+        assertSameOutputs(OUTPUT_DIR + "EAGER-LIB/", OUTPUT_DIR + "LAZY-LIB/", "-PDG-DATA.gml");
+        String ddg = new String(Files.readAllBytes(Paths.get(OUTPUT_DIR + "LAZY-LIB/Appends-PDG-DATA.gml")), StandardCharsets.UTF_8);
+        // by the library summaries, 'append' modifies the builder, but 'toString' does not
+        assertTrue(ddg.matches("(?s).*label \"buffer\\.append\\(a\\)\"\\s+defs \\[var \"buffer\"\\].*"));
+        assertTrue(ddg.matches("(?s).*label \"return buffer\\.toString\\(\\);\"\\s+defs \\[\\].*"));
+    }
+
+    @Test
+    public void indexEquivalenceTest() throws IOException {
+        new File(OUTPUT_DIR).mkdirs();
+        String zipPath = OUTPUT_DIR + "counter-src.zip";
+        String counter = "package lib;\n"
+                       + "public class Counter {\n"
+                       + "    private int count;\n"
+                       + "    public void increment() { count++; }\n"
+                       + "    public int current() { return count; }\n"
+                       + "    public void copyTo(int[] target) { target[0] = count; }\n"
+                       + "    public void bump(Counter other) { Steps.twice(other); }\n"
+                       + "}\n";
+        String steps = "package lib;\n"
+                     + "public class Steps {\n"
+                     + "    public static void twice(Counter counter) { counter.increment(); counter.increment(); }\n"
+                     + "}\n";
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipPath))) {
+            zip.putNextEntry(new ZipEntry("lib/Counter.java"));
+            zip.write(counter.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("lib/Steps.java"));
+            zip.write(steps.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        JavaLibraryIndex.getIndexFile(zipPath).delete();
+        File projectDir = new File(OUTPUT_DIR + "index-project/");
+        deleteDir(projectDir);
+        projectDir.mkdirs();
+        String client = "import lib.*;\n"
+                      + "public class Client {\n"
+                      + "    public int run(int[] values) {\n"
+                      + "        Counter counter = new Counter();\n"
+                      + "        Counter other = new Counter();\n"
+                      + "        counter.bump(other);\n"
+                      + "        counter.copyTo(values);\n"
+                      + "        return other.current();\n"
+                      + "    }\n"
+                      + "}\n";
+        File[] files = {new File(projectDir, "Client.java")};
+        Files.write(files[0].toPath(), client.getBytes(StandardCharsets.UTF_8));
+        // without the index, the imported entries are analyzed along with the project
+        DataDependenceGraph analyzed = new JavaDDGBuilder(false, null, zipPath).build(files, new JavaArtifactCache(files, 1))[0];
+        JavaLibraryIndex.build(zipPath);
+        assertNotNull(JavaLibraryIndex.forArchive(zipPath));
+        DataDependenceGraph indexed = new JavaDDGBuilder(false, null, zipPath).build(files, new JavaArtifactCache(files, 1))[0];
+        // the imports cover the whole library; so the DEF-infos of the index are the same
+        assertEquals(describe(analyzed), describe(indexed));
+        assertArrayEquals(new String[] {"other"}, findNode(indexed, "counter.bump(other)").getAllDEFs());
+        assertEquals(0, findNode(indexed, "return other.current();").getAllDEFs().length);
+    }
+
+    @Test
+    public void libraryCacheEvictionTest() throws IOException {
+        // an archive with more entries than the capacity of the library cache (2048)
+        new File(OUTPUT_DIR).mkdirs();
+        String zipPath = OUTPUT_DIR + "many-src.zip";
+        int count = 2100;
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipPath))) {
+            for (int i = 0; i < count; ++i) {
+                zip.putNextEntry(new ZipEntry("many/C" + i + ".java"));
+                String src = "package many;\npublic class C" + i + " {\n    int value" + i + "() { return " + i + "; }\n}\n";
+                zip.write(src.getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        JavaLibraryIndex.getIndexFile(zipPath).delete();
+        List<JavaClass> all = JavaClassExtractor.extractImportsInfo(zipPath, new String[] {"many.*"});
+        assertEquals(count, all.size());
+        // the recently extracted entries are still cached, and shared
+        JavaClass last = JavaClassExtractor.extractImportsInfo(zipPath, new String[] {"many.C" + (count - 1)}).get(0);
+        assertSame(all.get(count - 1), last);
+        // the eldest entries are evicted; hence extracted again, the same as before
+        List<JavaClass> first = JavaClassExtractor.extractImportsInfo(zipPath, new String[] {"many.C0", "many.C1"});
+        assertEquals(2, first.size());
+        for (int i = 0; i < first.size(); ++i) {
+            assertNotSame(all.get(i), first.get(i));
+            assertEquals(all.get(i).toString(), first.get(i).toString());
+            assertEquals("value" + i, first.get(i).getAllMethods()[0].NAME);
+        }
+        // and the re-extracted entries are cached again
+        assertSame(first.get(0), JavaClassExtractor.extractImportsInfo(zipPath, new String[] {"many.C0"}).get(0));
+    }
+
+    private static String writeArchive(String name) throws IOException {
+        new File(OUTPUT_DIR).mkdirs();
+        String zipPath = OUTPUT_DIR + name;
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipPath))) {
+            for (String entry: ENTRIES) {
+                zip.putNextEntry(new ZipEntry(entry));
+                zip.write(Files.readAllBytes(new File(JAVA_SRC_DIR + entry.substring(5)).toPath()));
+                zip.closeEntry();
+            }
+        }
+        return zipPath;
+    }
+
+    private static void assertSameOutputs(String expectedDir, String actualDir, String suffix) throws IOException {
+        String[] expectedFiles = FileUtils.listFilesWithSuffix(new String[] {expectedDir}, suffix);
+        String[] actualFiles = FileUtils.listFilesWithSuffix(new String[] {actualDir}, suffix);
+        assertTrue(expectedFiles.length > 0);
+        assertEquals(expectedFiles.length, actualFiles.length);
+        for (String expectedFile: expectedFiles) {
+            File actualFile = new File(actualDir, new File(expectedFile).getName());
+            assertTrue(actualFile.exists());
+            assertEquals(new String(Files.readAllBytes(Paths.get(expectedFile)), StandardCharsets.UTF_8),
+                         new String(Files.readAllBytes(actualFile.toPath()), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null)
+            for (File file: files)
+                deleteDir(file);
+        dir.delete();
+    }
+
+    private static PDNode findNode(DataDependenceGraph ddg, String code) {
+        Iterator<PDNode> nodes = ddg.allVerticesIterator();
+        while (nodes.hasNext()) {
+            PDNode node = nodes.next();
+            if (code.equals(node.getCodeStr()))
+                return node;
+        }
+        fail("No node for: " + code);
+        return null;
+    }
+
+    /**
+     * Returns the DEFs and USEs of the nodes of the given DDG, and its data-flow edges;
+     * regardless of the order of nodes and edges.
+     */
+    private static Set<String> describe(DataDependenceGraph ddg) {
+        Set<String> description = new HashSet<>();
+        Iterator<PDNode> nodes = ddg.allVerticesIterator();
+        while (nodes.hasNext()) {
+            PDNode node = nodes.next();
+            description.add(node + " DEFs" + Arrays.toString(node.getAllDEFs()) + " USEs" + Arrays.toString(node.getAllUSEs()));
+        }
+        Iterator<Edge<PDNode, DDEdge>> edges = ddg.allEdgesIterator();
+        while (edges.hasNext()) {
+            Edge<PDNode, DDEdge> edge = edges.next();
+            description.add(edge.source + " -(" + edge.label.type + ": " + edge.label.var + ")-> " + edge.target);
+        }
+        return description;
+    }
+
+    private static List<String> toStrings(List<JavaClass> classes) {
+        List<String> strings = new ArrayList<>();
+        for (JavaClass cls: classes)
+            strings.add(cls.toString());
+        return strings;
+    }
+}
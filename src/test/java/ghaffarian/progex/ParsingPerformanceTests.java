@@ -0,0 +1,178 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import ghaffarian.nanologger.Logger;
+import ghaffarian.progex.java.JavaDFACache;
+import ghaffarian.progex.java.JavaSourceParser;
+import ghaffarian.progex.java.parser.JavaLexer;
+import ghaffarian.progex.java.parser.JavaParser;
+import ghaffarian.progex.utils.FileUtils;
+
+import org.junit.*;
+
+/**
+ * Performance benchmarks for parsing the Java test-cases.
+ * These are excluded from the default test run; use the 'benchmark' profile.
+ * The equivalence of the compared strategies is tested by ParsingTests.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class ParsingPerformanceTests {
+
+    private final String JAVA_SRC_DIR = "src/test/resources/java/";
+    private static final int ROUNDS = 10;
+
+    @Test
+    public void twoStageParsingBenchmark() throws IOException {
+        String[] srcFiles = FileUtils.listFilesWithSuffix(new String[] {JAVA_SRC_DIR}, Execution.Languages.JAVA.suffix);
+        String[] sources = new String[srcFiles.length];
+        for (int i = 0; i < srcFiles.length; ++i)
+            sources[i] = new String(Files.readAllBytes(new File(srcFiles[i]).toPath()), StandardCharsets.UTF_8);
+        // warm-up rounds for the JIT compiler
+        for (int r = 0; r < ROUNDS; ++r) {
+            for (String src: sources) {
+                parseLL(src);
+                parseTwoStage(src);
+            }
+        }
+        long llTime = 0, twoStageTime = 0;
+        for (int r = 0; r < ROUNDS; ++r) {
+            clearDFA();
+            long start = System.nanoTime();
+            for (String src: sources)
+                parseLL(src);
+            llTime += System.nanoTime() - start;
+            //
+            clearDFA();
+            start = System.nanoTime();
+            for (String src: sources)
+                parseTwoStage(src);
+            twoStageTime += System.nanoTime() - start;
+        }
+        Logger.info("Parsed " + sources.length + " files, " + ROUNDS + " rounds (cold DFA cache):");
+        Logger.info("  LL parsing         = " + (llTime / 1_000_000) + " ms");
+        Logger.info("  SLL + LL fallback  = " + (twoStageTime / 1_000_000) + " ms");
+        Logger.info("  Speedup            = " + String.format("%.2f", (double) llTime / twoStageTime));
+    }
+
+    @Test
+    public void preloadedDFABenchmark() throws IOException {
+        String[] srcFiles = FileUtils.listFilesWithSuffix(new String[] {JAVA_SRC_DIR}, Execution.Languages.JAVA.suffix);
+        String[] sources = new String[srcFiles.length];
+        for (int i = 0; i < srcFiles.length; ++i)
+            sources[i] = new String(Files.readAllBytes(new File(srcFiles[i]).toPath()), StandardCharsets.UTF_8);
+        // warm-up the DFAs and save them
+        clearDFA();
+        for (String src: sources)
+            parseTwoStage(src);
+        File cacheFile = File.createTempFile("progex-dfa", ".cache");
+        cacheFile.deleteOnExit();
+        JavaDFACache.save(cacheFile);
+        // warm-up rounds for the JIT compiler
+        for (int r = 0; r < ROUNDS; ++r)
+            for (String src: sources)
+                parseTwoStage(src);
+        long coldTime = 0, loadTime = 0, preloadedTime = 0;
+        for (int r = 0; r < ROUNDS; ++r) {
+            clearDFA();
+            long start = System.nanoTime();
+            for (String src: sources)
+                parseTwoStage(src);
+            coldTime += System.nanoTime() - start;
+            //
+            clearDFA();
+            start = System.nanoTime();
+            JavaDFACache.load(cacheFile);
+            loadTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            for (String src: sources)
+                parseTwoStage(src);
+            preloadedTime += System.nanoTime() - start;
+        }
+        Logger.info("Parsed " + sources.length + " files, " + ROUNDS + " rounds:");
+        Logger.info("  Cold DFA cache      = " + (coldTime / 1_000_000) + " ms");
+        Logger.info("  Preloaded DFA cache = " + (preloadedTime / 1_000_000) + " ms" +
+                    " (+ " + (loadTime / 1_000_000) + " ms loading)");
+        Logger.info("  Speedup             = " + String.format("%.2f", (double) coldTime / (preloadedTime + loadTime)));
+    }
+
+    @Test
+    public void failFastParsingBenchmark() throws IOException {
+        String[] srcFiles = FileUtils.listFilesWithSuffix(new String[] {JAVA_SRC_DIR}, Execution.Languages.JAVA.suffix);
+        String[] sources = new String[srcFiles.length];
+        String[] brokenSources = new String[srcFiles.length];
+        for (int i = 0; i < srcFiles.length; ++i) {
+            sources[i] = new String(Files.readAllBytes(new File(srcFiles[i]).toPath()), StandardCharsets.UTF_8);
+            // break each source by an invalid statement at the start of the first body
+            int brace = sources[i].indexOf('{') + 1;
+            brokenSources[i] = sources[i].substring(0, brace) + " int = ; " + sources[i].substring(brace);
+        }
+        // warm-up rounds for the JIT compiler
+        for (int r = 0; r < ROUNDS; ++r) {
+            for (String src: brokenSources) {
+                parseRecovering(src);
+                parseRejecting(src);
+            }
+        }
+        long recoveryTime = 0, failFastTime = 0;
+        for (int r = 0; r < ROUNDS; ++r) {
+            long start = System.nanoTime();
+            for (String src: brokenSources)
+                parseRecovering(src);
+            recoveryTime += System.nanoTime() - start;
+            //
+            start = System.nanoTime();
+            for (String src: brokenSources)
+                parseRejecting(src);
+            failFastTime += System.nanoTime() - start;
+        }
+        Logger.info("Parsed " + brokenSources.length + " broken files, " + ROUNDS + " rounds:");
+        Logger.info("  Error recovery  = " + (recoveryTime / 1_000_000) + " ms");
+        Logger.info("  Fail-fast       = " + (failFastTime / 1_000_000) + " ms");
+        Logger.info("  Speedup         = " + String.format("%.2f", (double) recoveryTime / failFastTime));
+    }
+
+    private static ParseTree parseLL(String src) {
+        JavaLexer lexer = new JavaLexer(new ANTLRInputStream(src));
+        JavaParser parser = new JavaParser(new CommonTokenStream(lexer));
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        return parser.compilationUnit();
+    }
+
+    private static ParseTree parseTwoStage(String src) {
+        return JavaSourceParser.parse(JavaSourceParser.tokenize(new ANTLRInputStream(src)));
+    }
+
+    private static ParseTree parseFailFast(String src) {
+        return JavaSourceParser.parseFailFast(JavaSourceParser.tokenize(new ANTLRInputStream(src)));
+    }
+
+    private static void parseRecovering(String src) {
+        // error reports of the lexer and the LL stage are printed to the console, as in a normal run
+        JavaSourceParser.parse(JavaSourceParser.tokenize(new ANTLRInputStream(src)), new BaseErrorListener());
+    }
+
+    private static void parseRejecting(String src) {
+        try {
+            parseFailFast(src);
+        } catch (JavaSourceParser.SyntaxErrorException ex) {
+            // rejected
+        }
+    }
+
+    private static void clearDFA() {
+        JavaLexer lexer = new JavaLexer(new ANTLRInputStream(""));
+        lexer.getInterpreter().clearDFA();
+        JavaParser parser = new JavaParser(new CommonTokenStream(lexer));
+        parser.getInterpreter().clearDFA();
+    }
+}
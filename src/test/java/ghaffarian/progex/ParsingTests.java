@@ -0,0 +1,126 @@
+/*** In The Name of Allah ***/
+package ghaffarian.progex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.Trees;
+import ghaffarian.progex.java.JavaArtifactCache;
+import ghaffarian.progex.java.JavaDFACache;
+import ghaffarian.progex.java.JavaSourceParser;
+import ghaffarian.progex.java.parser.JavaLexer;
+import ghaffarian.progex.java.parser.JavaParser;
+import ghaffarian.progex.utils.FileUtils;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Tests for the equivalence of different parsing strategies on the basic test-cases.
+ * The timing of these strategies is measured by ParsingPerformanceTests.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class ParsingTests {
+
+    private final String JAVA_SRC_DIR = "src/test/resources/java/basic/";
+    private static final String OUTPUT_DIR = "out/java/parsing/";
+    private static final List<String> RULE_NAMES = Arrays.asList(JavaParser.ruleNames);
+
+    @Test
+    public void twoStageParsingTest() throws IOException {
+        for (String src: readSources()) {
+            JavaParser parser = new JavaParser(new CommonTokenStream(new JavaLexer(new ANTLRInputStream(src))));
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            ParseTree llTree = parser.compilationUnit();
+            ParseTree twoStageTree = parse(src);
+            assertEquals(Trees.toStringTree(llTree, RULE_NAMES), Trees.toStringTree(twoStageTree, RULE_NAMES));
+        }
+    }
+
+    @Test
+    public void dfaCacheRoundTripTest() throws IOException {
+        String[] sources = readSources();
+        clearDFA();
+        String[] coldTrees = new String[sources.length];
+        for (int i = 0; i < sources.length; ++i)
+            coldTrees[i] = Trees.toStringTree(parse(sources[i]), RULE_NAMES);
+        File cacheFile = File.createTempFile("progex-dfa", ".cache");
+        cacheFile.deleteOnExit();
+        JavaDFACache.save(cacheFile);
+        //
+        clearDFA();
+        assertTrue(JavaDFACache.load(cacheFile));
+        for (int i = 0; i < sources.length; ++i)
+            assertEquals(coldTrees[i], Trees.toStringTree(parse(sources[i]), RULE_NAMES));
+    }
+
+    @Test
+    public void failFastRejectionTest() throws IOException {
+        String[] srcFiles = FileUtils.listFilesWithSuffix(new String[] {JAVA_SRC_DIR}, Execution.Languages.JAVA.suffix);
+        File outDir = new File(OUTPUT_DIR + "fail-fast/");
+        outDir.mkdirs();
+        // every other file is broken by an invalid statement at the start of its first body
+        File[] files = new File[srcFiles.length];
+        Set<File> brokenFiles = new HashSet<>();
+        for (int i = 0; i < srcFiles.length; ++i) {
+            String src = new String(Files.readAllBytes(new File(srcFiles[i]).toPath()), StandardCharsets.UTF_8);
+            if (i % 2 == 1) {
+                int brace = src.indexOf('{') + 1;
+                src = src.substring(0, brace) + " int = ; " + src.substring(brace);
+            }
+            files[i] = new File(outDir, new File(srcFiles[i]).getName());
+            Files.write(files[i].toPath(), src.getBytes(StandardCharsets.UTF_8));
+            if (i % 2 == 1)
+                brokenFiles.add(files[i]);
+        }
+        JavaArtifactCache artifacts = new JavaArtifactCache(files, 1);
+        artifacts.setFailFast(true);
+        for (File file: files) {
+            assertEquals(file.getName(), brokenFiles.contains(file), artifacts.isRejected(file));
+            assertEquals(file.getName(), brokenFiles.contains(file), artifacts.getParseTree(file) == null);
+        }
+    }
+
+    @Test
+    public void artifactReleaseTest() throws IOException {
+        File javaFile = new File(JAVA_SRC_DIR + "Test1.java");
+        JavaArtifactCache artifacts = new JavaArtifactCache(new File[] {javaFile}, 1);
+        ParseTree tree = artifacts.getParseTree(javaFile);
+        assertSame(tree, artifacts.getParseTree(javaFile));
+        // released artifacts are recomputed on the next request
+        artifacts.release(javaFile);
+        ParseTree reparsed = artifacts.getParseTree(javaFile);
+        assertNotSame(tree, reparsed);
+        assertEquals(Trees.toStringTree(tree, RULE_NAMES), Trees.toStringTree(reparsed, RULE_NAMES));
+        assertFalse(artifacts.hasSyntaxErrors(javaFile));
+    }
+
+    private String[] readSources() throws IOException {
+        String[] srcFiles = FileUtils.listFilesWithSuffix(new String[] {JAVA_SRC_DIR}, Execution.Languages.JAVA.suffix);
+        String[] sources = new String[srcFiles.length];
+        for (int i = 0; i < srcFiles.length; ++i)
+            sources[i] = new String(Files.readAllBytes(new File(srcFiles[i]).toPath()), StandardCharsets.UTF_8);
+        return sources;
+    }
+
+    private static ParseTree parse(String src) {
+        return JavaSourceParser.parse(JavaSourceParser.tokenize(new ANTLRInputStream(src)));
+    }
+
+    private static void clearDFA() {
+        JavaLexer lexer = new JavaLexer(new ANTLRInputStream(""));
+        lexer.getInterpreter().clearDFA();
+        JavaParser parser = new JavaParser(new CommonTokenStream(lexer));
+        parser.getInterpreter().clearDFA();
+    }
+}
@@ -0,0 +1,18 @@
+package p;
+
+public class Circle extends Shape implements Named {
+
+	private double r;
+
+	public Circle(double r) {
+		this.r = r;
+	}
+
+	public double area() {
+		return 3.14 * r * r;
+	}
+
+	public String name() {
+		return "circle";
+	}
+}
@@ -0,0 +1,17 @@
+package p;
+
+public class Main {
+
+	public static void main(String[] args) {
+		Shape s = new Circle(2);
+		double a = s.area();
+		String d = s.describe();
+		Named n = new Circle(1);
+		String m = n.name();
+		print(d + m);
+	}
+
+	public static void print(String str) {
+		System.out.println(str);
+	}
+}
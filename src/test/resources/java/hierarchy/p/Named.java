@@ -0,0 +1,6 @@
+package p;
+
+public interface Named {
+
+	String name();
+}
@@ -0,0 +1,10 @@
+package p;
+
+public abstract class Shape {
+
+	public abstract double area();
+
+	public String describe() {
+		return "shape " + area();
+	}
+}
@@ -0,0 +1,22 @@
+package p;
+
+public class Square extends Shape implements Named {
+
+	private double s;
+
+	public Square(double s) {
+		this.s = s;
+	}
+
+	public double area() {
+		return s * s;
+	}
+
+	public String name() {
+		return "square";
+	}
+
+	public String describe() {
+		return "square " + s;
+	}
+}
@@ -0,0 +1,8 @@
+package p;
+
+public class Unused {
+
+	public double total(Shape first, Shape second) {
+		return first.area() + second.area();
+	}
+}
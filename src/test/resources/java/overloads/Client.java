@@ -0,0 +1,16 @@
+public class Client {
+
+	public int run() {
+		Store a = new Store();
+		Store b = new Store();
+		Tally c = new Tally();
+		Tally d = new Tally();
+		a.add(b);
+		a.add(b, 2);
+		c.add(3);
+		d.copy(c);
+		int x = a.get(b);
+		int y = c.get();
+		return x + y + d.get();
+	}
+}
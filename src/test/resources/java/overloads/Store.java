@@ -0,0 +1,24 @@
+public class Store {
+
+	private int size;
+
+	public void add(int item) {
+		size += item;
+	}
+
+	public void add(Store other) {
+		other.add(1);
+	}
+
+	public void add(Store other, int item) {
+		size = item;
+	}
+
+	public int get() {
+		return size;
+	}
+
+	public int get(Store other) {
+		return other.get();
+	}
+}
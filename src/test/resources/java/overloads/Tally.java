@@ -0,0 +1,16 @@
+public class Tally {
+
+	private int value;
+
+	public void add(int delta) {
+		value += delta;
+	}
+
+	public int get() {
+		return value;
+	}
+
+	public void copy(Tally from) {
+		value = from.get();
+	}
+}
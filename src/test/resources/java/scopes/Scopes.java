@@ -0,0 +1,70 @@
+public class Scopes {
+
+	private int count;
+	private int[] values = new int[8];
+
+	public int shadowing(int count) {
+		int total = count;
+		this.count = total;
+		{
+			int tmp = total * 2;
+			total += tmp;
+		}
+		{
+			int tmp = count + 1;
+			values[0] = tmp;
+		}
+		return total + this.count;
+	}
+
+	public int loops(int n) {
+		int sum = 0;
+		for (int i = 0; i < n; ++i) {
+			int step = i * 2;
+			sum += step;
+		}
+		for (int i = n; i > 0; --i) {
+			int step = i;
+			sum -= step;
+		}
+		return sum;
+	}
+
+	public void fields(int[] target) {
+		int count = 3;
+		target[0] = count;
+		this.count = count;
+		values = target;
+	}
+
+	public int handlers(String text) {
+		int value = 0;
+		try {
+			value = Integer.parseInt(text);
+		} catch (NumberFormatException e) {
+			String msg = e.getMessage();
+			value = msg.length();
+		}
+		try {
+			value += text.length();
+		} catch (RuntimeException e) {
+			value = -1;
+		}
+		return value;
+	}
+
+	public int nested(int x) {
+		if (x > 0) {
+			int y = x;
+			while (y > 10) {
+				int z = y / 2;
+				y = z;
+			}
+			x = y;
+		} else {
+			int y = -x;
+			x = y;
+		}
+		return x + count;
+	}
+}
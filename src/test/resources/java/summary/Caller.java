@@ -0,0 +1,9 @@
+
+public class Caller {
+
+	public int run() {
+		Counter counter = new Counter();
+		counter.addOdd(4);
+		return counter.get();
+	}
+}
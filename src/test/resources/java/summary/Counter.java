@@ -0,0 +1,21 @@
+
+public class Counter {
+
+	private int count;
+
+	public int get() {
+		return count;
+	}
+
+	public void addOdd(int n) {
+		if (n > 0)
+			addEven(n - 1);
+	}
+
+	public void addEven(int n) {
+		if (n > 0) {
+			count += n;
+			addOdd(n - 1);
+		}
+	}
+}